@@ -0,0 +1,248 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.bench;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+/**
+ * Simple benchmark runner.
+ * <p>
+ * Each benchmark is executed for a number of warmup iterations, followed by a number of
+ * measurement iterations of fixed duration. The score of a benchmark is the mean time per
+ * operation in nanoseconds over all measurement iterations. Results can be written to a
+ * tab-separated file, which can be passed as baseline to later runs for comparison.
+ */
+public final class Benchmark
+{
+  // Min. duration of a batch of operations, in nanoseconds
+  private static final long MIN_BATCH_TIME = 1000000L;
+  private static final int MAX_BATCH_SIZE = 1 << 20;
+
+  // Receives the results of all operations to prevent dead code elimination
+  private static volatile Object blackhole;
+
+  private final List<Case> cases = new ArrayList<>();
+  private final List<Result> results = new ArrayList<>();
+  private final int warmupIterations;
+  private final int iterations;
+  private final long iterationTime;
+
+  private int numErrors;
+
+  /**
+   * Creates a new benchmark runner.
+   * @param warmupIterations Number of iterations whose results are discarded.
+   * @param iterations Number of measured iterations.
+   * @param iterationTime Duration of a single iteration, in milliseconds.
+   */
+  public Benchmark(int warmupIterations, int iterations, long iterationTime)
+  {
+    this.warmupIterations = Math.max(0, warmupIterations);
+    this.iterations = Math.max(1, iterations);
+    this.iterationTime = Math.max(1L, iterationTime) * 1000000L;
+  }
+
+  /**
+   * Adds a benchmark.
+   * @param name Unique name of the benchmark. Names identify results across runs.
+   * @param setup Prepares the benchmark state and returns the operation to measure.
+   *              It is only called if the benchmark is selected.
+   */
+  public void add(String name, Callable<Operation> setup)
+  {
+    cases.add(new Case(name, setup));
+  }
+
+  /** Returns the number of benchmarks that could not be executed. */
+  public int getErrorCount()
+  {
+    return numErrors;
+  }
+
+  /**
+   * Executes all benchmarks whose names match one of the specified regular expressions,
+   * or all benchmarks if no expressions are specified, and prints the results.
+   */
+  public void run(List<String> filters, Map<String, Double> baseline)
+  {
+    final List<Pattern> patterns = new ArrayList<>();
+    for (final String filter: filters) {
+      patterns.add(Pattern.compile(filter, Pattern.CASE_INSENSITIVE));
+    }
+
+    System.out.format("# %d warmup and %d measurement iterations of %d ms",
+                      warmupIterations, iterations, iterationTime / 1000000L).println();
+    System.out.format("%-24s %14s %12s %9s", "Benchmark", "ns/op", "stddev", "change").println();
+    for (final Case c: cases) {
+      if (!patterns.isEmpty() && !patterns.stream().anyMatch(p -> p.matcher(c.name).find())) {
+        continue;
+      }
+      try {
+        final Result result = measure(c.name, c.setup.call());
+        results.add(result);
+        final Double base = (baseline != null) ? baseline.get(c.name) : null;
+        final String change = (base != null && base.doubleValue() > 0.0) ?
+            String.format(Locale.ENGLISH, "%+8.1f%%", (result.mean - base.doubleValue()) * 100.0 / base.doubleValue()) : "";
+        System.out.format(Locale.ENGLISH, "%-24s %14.1f %12.1f %9s", c.name, result.mean, result.stddev, change).println();
+      } catch (Throwable t) {
+        numErrors++;
+        System.out.format("%-24s failed: %s", c.name, t).println();
+        t.printStackTrace();
+      }
+    }
+  }
+
+  /** Writes the results of the last run as tab-separated values. */
+  public void writeResults(Path file) throws IOException
+  {
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write(String.format("# java %s, %s %s, %d cpus",
+                                 System.getProperty("java.version"), System.getProperty("os.name"),
+                                 System.getProperty("os.arch"), Runtime.getRuntime().availableProcessors()));
+      writer.newLine();
+      writer.write("# benchmark\tns/op\tstddev\titerations");
+      writer.newLine();
+      for (final Result result: results) {
+        writer.write(String.format(Locale.ENGLISH, "%s\t%.1f\t%.1f\t%d",
+                                   result.name, result.mean, result.stddev, result.scores.length));
+        writer.newLine();
+      }
+    }
+  }
+
+  /** Reads the scores of a result file written by {@link #writeResults(Path)}. */
+  public static Map<String, Double> readResults(Path file) throws IOException
+  {
+    final Map<String, Double> retVal = new HashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final String[] items = line.split("\t");
+        if (!line.startsWith("#") && items.length > 1) {
+          try {
+            retVal.put(items[0], Double.valueOf(items[1]));
+          } catch (NumberFormatException e) {
+          }
+        }
+      }
+    }
+    return retVal;
+  }
+
+  private Result measure(String name, Operation operation) throws Exception
+  {
+    System.gc();
+
+    // find a batch size which keeps timer overhead negligible
+    int batchSize = 1;
+    int counter = 0;
+    while (batchSize < MAX_BATCH_SIZE) {
+      final long start = System.nanoTime();
+      runBatch(operation, counter, batchSize);
+      counter += batchSize;
+      if (System.nanoTime() - start >= MIN_BATCH_TIME) {
+        break;
+      }
+      batchSize <<= 1;
+    }
+
+    for (int i = 0; i < warmupIterations; i++) {
+      runIteration(operation, counter, batchSize);
+    }
+
+    final double[] scores = new double[iterations];
+    for (int i = 0; i < iterations; i++) {
+      scores[i] = runIteration(operation, counter, batchSize);
+    }
+    return new Result(name, scores);
+  }
+
+  // Executes batches of operations for the duration of an iteration and returns the mean time per operation
+  private double runIteration(Operation operation, int counter, int batchSize) throws Exception
+  {
+    long numOps = 0L;
+    long elapsed;
+    final long start = System.nanoTime();
+    do {
+      runBatch(operation, counter, batchSize);
+      counter += batchSize;
+      numOps += batchSize;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < iterationTime);
+    return (double)elapsed / (double)numOps;
+  }
+
+  private static void runBatch(Operation operation, int counter, int batchSize) throws Exception
+  {
+    for (int i = 0; i < batchSize; i++) {
+      blackhole = operation.run((counter + i) & Integer.MAX_VALUE);
+    }
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  /** The measured operation of a benchmark. */
+  @FunctionalInterface
+  public interface Operation
+  {
+    /**
+     * Executes the operation once.
+     * @param index Invocation counter, which can be used to cycle through test data.
+     * @return An arbitrary result of the operation, which is consumed by the runner.
+     */
+    Object run(int index) throws Exception;
+  }
+
+  private static final class Case
+  {
+    final String name;
+    final Callable<Operation> setup;
+
+    Case(String name, Callable<Operation> setup)
+    {
+      this.name = name;
+      this.setup = setup;
+    }
+  }
+
+  private static final class Result
+  {
+    final String name;
+    final double[] scores;
+    final double mean;
+    final double stddev;
+
+    Result(String name, double[] scores)
+    {
+      this.name = name;
+      this.scores = scores;
+      double sum = 0.0;
+      for (final double score: scores) {
+        sum += score;
+      }
+      mean = sum / scores.length;
+      double sumSq = 0.0;
+      for (final double score: scores) {
+        sumSq += (score - mean) * (score - mean);
+      }
+      stddev = (scores.length > 1) ? Math.sqrt(sumSq / (scores.length - 1)) : 0.0;
+    }
+  }
+}
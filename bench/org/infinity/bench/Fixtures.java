@@ -0,0 +1,644 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * Generates the synthetic game used by the benchmarks.
+ * <p>
+ * All data is derived from a fixed random seed, so that each run measures the same content.
+ * The game consists of a chitin.key, a BIFF V1 archive with creatures, an area, a tileset,
+ * a BAM, IDS files and filler resources of varying size, and a dialog.tlk. The BIFF archive
+ * is additionally stored as BIFC V1.0 and BIF V1.0 archives, which are not referenced by the KEY file.
+ * PVR textures, script source and pixel data are kept in memory.
+ */
+public final class Fixtures
+{
+  public static final int NUM_STRINGS   = 20000;
+  public static final int NUM_CREATURES = 16;
+  public static final int NUM_FILLERS   = 256;
+  public static final int NUM_TILES     = 64;
+  public static final int NUM_FRAMES    = 32;
+  public static final int NUM_SCRIPT_BLOCKS = 50;
+
+  public static final String BIFF_NAME = "data\\bench.bif";
+  public static final String BIFC_NAME = "data\\benchc.cbf";
+  public static final String BIF_NAME  = "data\\benchz.bif";
+
+  private static final long SEED = 0x4e49424eL;
+
+  private static final int TYPE_2DA = 0x3f4;
+  private static final int TYPE_BAM = 0x3e8;
+  private static final int TYPE_TIS = 0x3eb;
+  private static final int TYPE_IDS = 0x3f0;
+  private static final int TYPE_CRE = 0x3f1;
+  private static final int TYPE_ARE = 0x3f2;
+
+  private static final int TILE_SIZE = 1024 + 64*64;
+
+  private static final String[][] IDS_FILES = {
+    { "TRIGGER", "0x0002 See(O:Object*)",
+                 "0x400F Global(S:Name*,S:Area*,I:Value*)",
+                 "0x4017 HPPercentLT(O:Object*,I:Hit Points*)",
+                 "0x4023 True()" },
+    { "ACTION",  "3 Attack(O:Target*)",
+                 "30 SetGlobal(S:Name*,S:Area*,I:Value*)",
+                 "63 Wait(I:Time*)",
+                 "269 DisplayStringHead(O:Object*,I:StrRef*)" },
+    { "OBJECT",  "0 NOTHING", "1 Myself", "20 LastSeenBy" },
+    { "EA",      "0 ANYONE", "2 PC", "128 NEUTRAL", "255 ENEMY" },
+    { "GENERAL", "0 ANYONE", "1 HUMANOID", "2 ANIMAL" },
+    { "RACE",    "0 NO_RACE", "1 HUMAN", "2 ELF", "3 HALF_ELF", "4 DWARF" },
+    { "CLASS",   "0 NO_CLASS", "1 MAGE", "2 FIGHTER", "3 CLERIC", "4 THIEF" },
+    { "GENDER",  "1 MALE", "2 FEMALE" },
+    { "SPECIFIC", "0 NORMAL", "1 MAGIC" },
+    { "ALIGNMEN", "0 NONE", "0x11 LAWFUL_GOOD", "0x22 NEUTRAL", "0x33 CHAOTIC_EVIL" },
+    { "ANIMATE", "0x6000 FIGHTER_MALE_HUMAN", "0x6100 FIGHTER_FEMALE_HUMAN", "0x7f00 KOBOLD" },
+    { "SLOTS",   "0 SLOT_AMULET", "1 SLOT_ARMOR", "2 SLOT_BELT", "9 SLOT_WEAPON0" },
+    { "STATS",   "1 MAXHITPOINTS", "2 ARMORCLASS", "34 LEVEL" },
+    { "STATE",   "0x00000000 STATE_NORMAL", "0x00000001 STATE_SLEEPING", "0x00000800 STATE_DEAD" },
+    { "DAMAGES", "0 CRUSHING", "0x10000 ACID", "0x20000 COLD" },
+  };
+
+  private final Path root;
+  private final Random random = new Random(SEED);
+  private final List<Resource> resources = new ArrayList<>();
+  private final List<Resource> tilesets = new ArrayList<>();
+
+  private byte[] biff;
+
+  /** Creates fixtures in the specified root folder of the synthetic game. */
+  public Fixtures(Path root)
+  {
+    this.root = root;
+  }
+
+  /** Writes all files of the synthetic game. */
+  public void create() throws IOException
+  {
+    for (int i = 0; i < NUM_CREATURES; i++) {
+      resources.add(new Resource(getCreatureName(i), TYPE_CRE, createCre()));
+    }
+    resources.add(new Resource(getAreaName(), TYPE_ARE, createAre()));
+    resources.add(new Resource(getAnimationName(), TYPE_BAM, createBam()));
+    for (final String[] ids: IDS_FILES) {
+      resources.add(new Resource(ids[0], TYPE_IDS, createIds(ids)));
+    }
+    for (int i = 0; i < NUM_FILLERS; i++) {
+      resources.add(new Resource(String.format("FILL%03d", i), TYPE_2DA, createFiller(1024 + random.nextInt(64 * 1024))));
+    }
+    tilesets.add(new Resource(getTilesetName(), TYPE_TIS, createTiles()));
+
+    biff = createBiff();
+    Files.createDirectories(root.resolve("data"));
+    Files.write(getArchive(BIFF_NAME), biff);
+    Files.write(getArchive(BIFC_NAME), createBifc(biff));
+    Files.write(getArchive(BIF_NAME), createBif(biff, BIF_NAME));
+    Files.write(getKeyFile(), createKey());
+    Files.write(root.resolve("dialog.tlk"), createTlk());
+  }
+
+  /** Returns the root folder of the synthetic game. */
+  public Path getRoot()
+  {
+    return root;
+  }
+
+  /** Returns the path of the chitin.key. */
+  public Path getKeyFile()
+  {
+    return root.resolve("chitin.key");
+  }
+
+  /** Returns the path of the specified archive. */
+  public Path getArchive(String name)
+  {
+    return root.resolve(name.replace('\\', '/'));
+  }
+
+  /** Returns the number of file entries in each of the archives. */
+  public int getArchiveFileCount()
+  {
+    return resources.size();
+  }
+
+  public static String getCreatureName(int index)
+  {
+    return String.format("BENCH%02d.CRE", index);
+  }
+
+  public static String getAreaName()
+  {
+    return "AR0100.ARE";
+  }
+
+  public static String getTilesetName()
+  {
+    return "AR0100.TIS";
+  }
+
+  public static String getAnimationName()
+  {
+    return "BENCHANI.BAM";
+  }
+
+  /** Returns BAF source code of a script which uses only symbols from the fixture IDS files. */
+  public static String getScriptSource()
+  {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < NUM_SCRIPT_BLOCKS; i++) {
+      sb.append("IF\n");
+      sb.append("  See([ENEMY])\n");
+      sb.append(String.format("  !Global(\"BENCH%d\",\"LOCALS\",%d)\n", i, i & 3));
+      sb.append(String.format("  HPPercentLT(Myself,%d)\n", 10 + i));
+      sb.append("THEN\n");
+      sb.append("  RESPONSE #80\n");
+      sb.append(String.format("    SetGlobal(\"BENCH%d\",\"LOCALS\",1)\n", i));
+      sb.append("    Attack(LastSeenBy(Myself))\n");
+      sb.append("  RESPONSE #20\n");
+      sb.append(String.format("    DisplayStringHead(Myself,%d)\n", i * 17));
+      sb.append("    Wait(2)\n");
+      sb.append("END\n\n");
+    }
+    return sb.toString();
+  }
+
+  /** Returns a PVR3 texture of the specified size with random DXT1 (format 7) or DXT5 (format 11) blocks. */
+  public byte[] createPvr(int pixelFormat, int width, int height)
+  {
+    final int blockSize = (pixelFormat == 7) ? 8 : 16;
+    final ByteBuffer bb = allocate(52 + (width / 4) * (height / 4) * blockSize);
+    bb.putInt(0x03525650).putInt(0).putLong(pixelFormat).putInt(0).putInt(0);
+    bb.putInt(height).putInt(width).putInt(1).putInt(1).putInt(1).putInt(1).putInt(0);
+    final byte[] blocks = new byte[bb.remaining()];
+    random.nextBytes(blocks);
+    bb.put(blocks);
+    return bb.array();
+  }
+
+  /** Returns a stereo ACM clip of the specified length with random compressed data. */
+  public byte[] createAcm(int numSamples)
+  {
+    final int levels = 7, subBlocks = 32;
+    final ByteBuffer bb = allocate(14 + numSamples);
+    bb.putInt(0x01032897).putInt(numSamples).putShort((short)2).putShort((short)22050);
+    bb.putShort((short)(levels | (subBlocks << 4)));
+    final byte[] data = new byte[bb.remaining()];
+    random.nextBytes(data);
+    bb.put(data);
+    return bb.array();
+  }
+
+  /** Returns ARGB pixel data of a gradient image with noise. */
+  public int[] createPixels(int width, int height)
+  {
+    final int[] pixels = new int[width * height];
+    for (int y = 0, ofs = 0; y < height; y++) {
+      for (int x = 0; x < width; x++, ofs++) {
+        final int r = (x * 255 / width + random.nextInt(16)) & 0xff;
+        final int g = (y * 255 / height + random.nextInt(16)) & 0xff;
+        final int b = ((x + y) * 127 / (width + height) + random.nextInt(64)) & 0xff;
+        pixels[ofs] = 0xff000000 | (r << 16) | (g << 8) | b;
+      }
+    }
+    return pixels;
+  }
+
+  // Creates a CRE V1.0 resource with known and memorized spells, items and effects
+  private byte[] createCre()
+  {
+    final int numKnown = 24, numMemInfo = 17, numMemorized = 12, numItems = 16, numEffects = 24;
+    final int ofsKnown = 0x2d4;
+    final int ofsMemInfo = ofsKnown + numKnown * 12;
+    final int ofsMemorized = ofsMemInfo + numMemInfo * 16;
+    final int ofsItems = ofsMemorized + numMemorized * 12;
+    final int ofsSlots = ofsItems + numItems * 20;
+    final int ofsEffects = ofsSlots + 80;
+    final ByteBuffer bb = allocate(ofsEffects + numEffects * 264);
+
+    putString(bb, 0, "CRE V1.0", 8);
+    bb.putInt(0x08, random.nextInt(NUM_STRINGS));
+    bb.putInt(0x0c, random.nextInt(NUM_STRINGS));
+    bb.put(0x33, (byte)1);  // effect version 2
+    for (int i = 0; i < 100; i++) {
+      bb.putInt(0xa4 + i * 4, (i % 3 == 0) ? random.nextInt(NUM_STRINGS) : -1);
+    }
+    bb.putInt(0x2a0, ofsKnown).putInt(0x2a4, numKnown);
+    bb.putInt(0x2a8, ofsMemInfo).putInt(0x2ac, numMemInfo);
+    bb.putInt(0x2b0, ofsMemorized).putInt(0x2b4, numMemorized);
+    bb.putInt(0x2b8, ofsSlots).putInt(0x2bc, ofsItems).putInt(0x2c0, numItems);
+    bb.putInt(0x2c4, ofsEffects).putInt(0x2c8, numEffects);
+
+    for (int i = 0; i < numKnown; i++) {
+      final int ofs = ofsKnown + i * 12;
+      putString(bb, ofs, String.format("SPWI%03d", 100 + i), 8);
+      bb.putShort(ofs + 8, (short)(i / 4)).putShort(ofs + 10, (short)1);
+    }
+    for (int i = 0; i < numMemInfo; i++) {
+      final int ofs = ofsMemInfo + i * 16;
+      final int count = (i == 0) ? numMemorized : 0;
+      bb.putShort(ofs, (short)(i % 9)).putShort(ofs + 2, (short)count).putShort(ofs + 4, (short)count);
+      bb.putShort(ofs + 6, (short)(i < 9 ? 1 : (i < 16 ? 0 : 2)));
+      bb.putInt(ofs + 8, 0).putInt(ofs + 12, count);
+    }
+    for (int i = 0; i < numMemorized; i++) {
+      final int ofs = ofsMemorized + i * 12;
+      putString(bb, ofs, String.format("SPWI%03d", 100 + i), 8);
+      bb.putInt(ofs + 8, 1);
+    }
+    for (int i = 0; i < numItems; i++) {
+      final int ofs = ofsItems + i * 20;
+      putString(bb, ofs, String.format("SW1H%02d", i), 8);
+      bb.putShort(ofs + 10, (short)random.nextInt(20));
+      bb.putInt(ofs + 16, 1);
+    }
+    for (int i = 0; i < 40; i++) {
+      bb.putShort(ofsSlots + i * 2, (short)((i < numItems) ? i : -1));
+    }
+    bb.putShort(ofsSlots + 76, (short)0);
+    final int[] opcodes = {0, 1, 10, 12, 17, 44, 54, 98, 101, 142, 206, 233};
+    for (int i = 0; i < numEffects; i++) {
+      final int ofs = ofsEffects + i * 264;
+      bb.putInt(ofs + 8, opcodes[i % opcodes.length]);
+      bb.putInt(ofs + 12, 1);
+      bb.putInt(ofs + 20, random.nextInt(20));
+      bb.putInt(ofs + 24, random.nextInt(4));
+      bb.putInt(ofs + 28, 9);
+      bb.putShort(ofs + 36, (short)100);
+      if (i % 4 == 0) {
+        putString(bb, ofs + 40, String.format("SPWI%03d", 100 + i), 8);
+      }
+    }
+    return bb.array();
+  }
+
+  // Creates an ARE V1.0 resource with actors, regions, containers, entrances and variables
+  private byte[] createAre()
+  {
+    final int numActors = 24, numRegions = 8, numContainers = 8, numItems = numContainers * 4;
+    final int numVertices = (numRegions + numContainers) * 4, numEntrances = 8, numVariables = 16;
+    final int sizeExplored = 1024;
+    final int ofsActors = 0x11c;
+    final int ofsRegions = ofsActors + numActors * 272;
+    final int ofsEntrances = ofsRegions + numRegions * 196;
+    final int ofsContainers = ofsEntrances + numEntrances * 104;
+    final int ofsItems = ofsContainers + numContainers * 192;
+    final int ofsVertices = ofsItems + numItems * 20;
+    final int ofsVariables = ofsVertices + numVertices * 4;
+    final int ofsExplored = ofsVariables + numVariables * 84;
+    final int ofsSongs = ofsExplored + sizeExplored;
+    final int ofsRest = ofsSongs + 144;
+    final int ofsEnd = ofsRest + 228;
+    final ByteBuffer bb = allocate(ofsEnd);
+
+    putString(bb, 0, "AREAV1.0", 8);
+    putString(bb, 8, "AR0100", 8);
+    bb.putInt(0x54, ofsActors).putShort(0x58, (short)numActors).putShort(0x5a, (short)numRegions);
+    bb.putInt(0x5c, ofsRegions).putInt(0x60, ofsEnd).putInt(0x64, 0);
+    bb.putInt(0x68, ofsEntrances).putInt(0x6c, numEntrances);
+    bb.putInt(0x70, ofsContainers).putShort(0x74, (short)numContainers).putShort(0x76, (short)numItems);
+    bb.putInt(0x78, ofsItems).putInt(0x7c, ofsVertices).putShort(0x80, (short)numVertices);
+    bb.putShort(0x82, (short)0).putInt(0x84, ofsEnd);
+    bb.putInt(0x88, ofsVariables).putShort(0x8c, (short)numVariables).putInt(0x90, ofsEnd);
+    bb.putInt(0x9c, sizeExplored).putInt(0xa0, ofsExplored);
+    bb.putInt(0xa4, 0).putInt(0xa8, ofsEnd).putInt(0xac, 0).putInt(0xb0, ofsEnd);
+    bb.putInt(0xb4, 0).putInt(0xb8, ofsEnd).putInt(0xbc, ofsSongs).putInt(0xc0, ofsRest);
+    bb.putInt(0xc4, ofsEnd).putInt(0xc8, 0).putInt(0xcc, ofsEnd).putInt(0xd0, 0);
+
+    for (int i = 0; i < numActors; i++) {
+      final int ofs = ofsActors + i * 272;
+      putString(bb, ofs, String.format("Actor %d", i), 32);
+      bb.putShort(ofs + 32, (short)random.nextInt(4096)).putShort(ofs + 34, (short)random.nextInt(4096));
+      bb.putInt(ofs + 40, -1);
+      bb.putShort(ofs + 52, (short)random.nextInt(16));
+      putString(bb, ofs + 128, getResRef(getCreatureName(i % NUM_CREATURES)), 8);
+    }
+    for (int i = 0; i < numRegions; i++) {
+      final int ofs = ofsRegions + i * 196;
+      putString(bb, ofs, String.format("Region %d", i), 32);
+      bb.putShort(ofs + 32, (short)(i % 3));
+      bb.putShort(ofs + 42, (short)4).putInt(ofs + 44, i * 4);
+      bb.putInt(ofs + 52, -1);
+    }
+    for (int i = 0; i < numEntrances; i++) {
+      final int ofs = ofsEntrances + i * 104;
+      putString(bb, ofs, String.format("Entrance %d", i), 32);
+      bb.putShort(ofs + 32, (short)random.nextInt(4096)).putShort(ofs + 34, (short)random.nextInt(4096));
+    }
+    for (int i = 0; i < numContainers; i++) {
+      final int ofs = ofsContainers + i * 192;
+      putString(bb, ofs, String.format("Container %d", i), 32);
+      bb.putShort(ofs + 36, (short)(i % 4 + 1));
+      bb.putInt(ofs + 64, i * 4).putInt(ofs + 68, 4);
+      bb.putInt(ofs + 80, (numRegions + i) * 4).putShort(ofs + 84, (short)4);
+    }
+    for (int i = 0; i < numItems; i++) {
+      final int ofs = ofsItems + i * 20;
+      putString(bb, ofs, String.format("MISC%02d", i), 8);
+      bb.putShort(ofs + 10, (short)1);
+    }
+    for (int i = 0; i < numVertices; i++) {
+      final int ofs = ofsVertices + i * 4;
+      bb.putShort(ofs, (short)(((i & 1) ^ (i >> 1 & 1)) * 100 + i)).putShort(ofs + 2, (short)((i >> 1 & 1) * 100 + i));
+    }
+    for (int i = 0; i < numVariables; i++) {
+      final int ofs = ofsVariables + i * 84;
+      putString(bb, ofs, String.format("AR0100_VAR%d", i), 32);
+      bb.putInt(ofs + 40, i);
+    }
+    final byte[] explored = new byte[sizeExplored];
+    random.nextBytes(explored);
+    bb.position(ofsExplored);
+    bb.put(explored);
+    return bb.array();
+  }
+
+  // Creates palette-based tiles without TIS header, as stored in BIFF tileset entries
+  private byte[] createTiles()
+  {
+    final ByteBuffer bb = allocate(NUM_TILES * TILE_SIZE);
+    for (int i = 0; i < NUM_TILES; i++) {
+      for (int c = 0; c < 256; c++) {
+        bb.putInt(0xff000000 | random.nextInt(0x1000000));
+      }
+      final byte[] pixels = new byte[64*64];
+      random.nextBytes(pixels);
+      bb.put(pixels);
+    }
+    return bb.array();
+  }
+
+  // Creates a BAM V1 resource with a single cycle of RLE-compressed frames
+  private byte[] createBam()
+  {
+    final int width = 96, height = 96;
+    final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    final int[] frameOffsets = new int[NUM_FRAMES];
+    final int ofsFrames = 0x18;
+    final int ofsCycles = ofsFrames + NUM_FRAMES * 12;
+    final int ofsPalette = ofsCycles + 4;
+    final int ofsLookup = ofsPalette + 1024;
+    final int ofsData = ofsLookup + NUM_FRAMES * 2;
+    for (int i = 0; i < NUM_FRAMES; i++) {
+      frameOffsets[i] = ofsData + data.size();
+      // ellipse of random colors on transparent background (color index 0)
+      final byte[] pixels = new byte[width * height];
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          final int dx = x - width / 2, dy = y - height / 2;
+          if (dx*dx*4 + dy*dy*9 < (width*width) + i * 16) {
+            pixels[y*width + x] = (byte)(1 + random.nextInt(255));
+          }
+        }
+      }
+      for (int ofs = 0; ofs < pixels.length; ) {
+        if (pixels[ofs] == 0) {
+          int count = 1;
+          while (count < 256 && ofs + count < pixels.length && pixels[ofs + count] == 0) {
+            count++;
+          }
+          data.write(0);
+          data.write(count - 1);
+          ofs += count;
+        } else {
+          data.write(pixels[ofs++]);
+        }
+      }
+    }
+
+    final ByteBuffer bb = allocate(ofsData + data.size());
+    putString(bb, 0, "BAM V1  ", 8);
+    bb.putShort(8, (short)NUM_FRAMES).put(10, (byte)1).put(11, (byte)0);
+    bb.putInt(12, ofsFrames).putInt(16, ofsPalette).putInt(20, ofsLookup);
+    for (int i = 0; i < NUM_FRAMES; i++) {
+      final int ofs = ofsFrames + i * 12;
+      bb.putShort(ofs, (short)width).putShort(ofs + 2, (short)height);
+      bb.putShort(ofs + 4, (short)(width / 2)).putShort(ofs + 6, (short)(height / 2));
+      bb.putInt(ofs + 8, frameOffsets[i]);
+    }
+    bb.putShort(ofsCycles, (short)NUM_FRAMES).putShort(ofsCycles + 2, (short)0);
+    bb.putInt(ofsPalette, 0xff00ff00);
+    for (int c = 1; c < 256; c++) {
+      bb.putInt(ofsPalette + c * 4, (c * 0x010203) & 0xffffff);
+    }
+    for (int i = 0; i < NUM_FRAMES; i++) {
+      bb.putShort(ofsLookup + i * 2, (short)i);
+    }
+    bb.position(ofsData);
+    bb.put(data.toByteArray());
+    return bb.array();
+  }
+
+  private static byte[] createIds(String[] ids)
+  {
+    final StringBuilder sb = new StringBuilder("IDS V1.0\r\n");
+    for (int i = 1; i < ids.length; i++) {
+      sb.append(ids[i]).append("\r\n");
+    }
+    return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  // Creates compressible data of the specified size
+  private byte[] createFiller(int size)
+  {
+    final byte[] data = new byte[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = (byte)('A' + random.nextInt(8));
+    }
+    return data;
+  }
+
+  private byte[] createBiff()
+  {
+    final int ofsEntries = 20;
+    int ofs = ofsEntries + resources.size() * 16 + tilesets.size() * 20;
+    int size = ofs;
+    for (final Resource res: resources) {
+      size += res.data.length;
+    }
+    for (final Resource res: tilesets) {
+      size += res.data.length;
+    }
+
+    final ByteBuffer bb = allocate(size);
+    putString(bb, 0, "BIFFV1  ", 8);
+    bb.putInt(8, resources.size()).putInt(12, tilesets.size()).putInt(16, ofsEntries);
+    bb.position(ofsEntries);
+    for (int i = 0; i < resources.size(); i++) {
+      final Resource res = resources.get(i);
+      bb.putInt(i).putInt(ofs).putInt(res.data.length).putShort((short)res.type).putShort((short)0);
+      ofs += res.data.length;
+    }
+    for (int i = 0; i < tilesets.size(); i++) {
+      final Resource res = tilesets.get(i);
+      bb.putInt((i + 1) << 14).putInt(ofs).putInt(res.data.length / TILE_SIZE).putInt(TILE_SIZE);
+      bb.putShort((short)res.type).putShort((short)0);
+      ofs += res.data.length;
+    }
+    for (final Resource res: resources) {
+      bb.put(res.data);
+    }
+    for (final Resource res: tilesets) {
+      bb.put(res.data);
+    }
+    return bb.array();
+  }
+
+  // Compresses the BIFF in blocks of 8 KB
+  private static byte[] createBifc(byte[] biff)
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ByteBuffer header = allocate(12);
+    putString(header, 0, "BIFCV1.0", 8);
+    header.putInt(8, biff.length);
+    out.write(header.array(), 0, 12);
+    final byte[] block = new byte[16384 + 64];
+    for (int ofs = 0; ofs < biff.length; ofs += 8192) {
+      final int len = Math.min(8192, biff.length - ofs);
+      final int compLen = deflate(biff, ofs, len, block);
+      final ByteBuffer bh = allocate(8);
+      bh.putInt(len).putInt(compLen);
+      out.write(bh.array(), 0, 8);
+      out.write(block, 0, compLen);
+    }
+    return out.toByteArray();
+  }
+
+  // Compresses the BIFF as a single zlib stream
+  private static byte[] createBif(byte[] biff, String name)
+  {
+    final byte[] nameBytes = (name.substring(name.lastIndexOf('\\') + 1) + '\0').getBytes(StandardCharsets.US_ASCII);
+    final byte[] data = new byte[biff.length + 1024];
+    final int compLen = deflate(biff, 0, biff.length, data);
+    final ByteBuffer bb = allocate(20 + nameBytes.length + compLen);
+    putString(bb, 0, "BIF V1.0", 8);
+    bb.position(8);
+    bb.putInt(nameBytes.length).put(nameBytes).putInt(biff.length).putInt(compLen).put(data, 0, compLen);
+    return bb.array();
+  }
+
+  private byte[] createKey()
+  {
+    final byte[] bifName = (BIFF_NAME + '\0').getBytes(StandardCharsets.US_ASCII);
+    final int numRes = resources.size() + tilesets.size();
+    final int ofsBif = 24;
+    final int ofsName = ofsBif + 12;
+    final int ofsRes = ofsName + bifName.length;
+    final ByteBuffer bb = allocate(ofsRes + numRes * 14);
+    putString(bb, 0, "KEY V1  ", 8);
+    bb.putInt(8, 1).putInt(12, numRes).putInt(16, ofsBif).putInt(20, ofsRes);
+    bb.putInt(ofsBif, biff.length).putInt(ofsBif + 4, ofsName).putShort(ofsBif + 8, (short)bifName.length);
+    bb.putShort(ofsBif + 10, (short)1);
+    bb.position(ofsName);
+    bb.put(bifName);
+    for (int i = 0; i < resources.size(); i++) {
+      final Resource res = resources.get(i);
+      putString(bb, bb.position(), getResRef(res.name), 8);
+      bb.position(bb.position() + 8);
+      bb.putShort((short)res.type).putInt(i);
+    }
+    for (int i = 0; i < tilesets.size(); i++) {
+      final Resource res = tilesets.get(i);
+      putString(bb, bb.position(), getResRef(res.name), 8);
+      bb.position(bb.position() + 8);
+      bb.putShort((short)res.type).putInt((i + 1) << 14);
+    }
+    return bb.array();
+  }
+
+  private byte[] createTlk()
+  {
+    final String[] strings = new String[NUM_STRINGS];
+    int size = 0;
+    for (int i = 0; i < NUM_STRINGS; i++) {
+      final StringBuilder sb = new StringBuilder(String.format("String %d:", i));
+      for (int j = random.nextInt(24); j >= 0; j--) {
+        sb.append(' ').append(Integer.toString(random.nextInt(1 << 20), 36));
+      }
+      strings[i] = sb.toString();
+      size += strings[i].length();
+    }
+    final int ofsStrings = 18 + NUM_STRINGS * 26;
+    final ByteBuffer bb = allocate(ofsStrings + size);
+    putString(bb, 0, "TLK V1  ", 8);
+    bb.position(8);
+    bb.putShort((short)0).putInt(NUM_STRINGS).putInt(ofsStrings);
+    int ofs = 0;
+    for (int i = 0; i < NUM_STRINGS; i++) {
+      bb.putShort((short)((i % 5 == 0) ? 3 : 1));
+      final byte[] sound = new byte[8];
+      if (i % 5 == 0) {
+        System.arraycopy(String.format("SND%05d", i).getBytes(StandardCharsets.US_ASCII), 0, sound, 0, 8);
+      }
+      bb.put(sound).putInt(0).putInt(0).putInt(ofs).putInt(strings[i].length());
+      ofs += strings[i].length();
+    }
+    for (final String s: strings) {
+      bb.put(s.getBytes(StandardCharsets.ISO_8859_1));
+    }
+    return bb.array();
+  }
+
+  private static int deflate(byte[] input, int offset, int length, byte[] output)
+  {
+    final Deflater deflater = new Deflater();
+    try {
+      deflater.setInput(input, offset, length);
+      deflater.finish();
+      return deflater.deflate(output);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static ByteBuffer allocate(int size)
+  {
+    return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  // Returns the resref of the specified resource name
+  private static String getResRef(String name)
+  {
+    final int extPos = name.lastIndexOf('.');
+    return ((extPos >= 0) ? name.substring(0, extPos) : name).toUpperCase(Locale.ENGLISH);
+  }
+
+  // Writes a string without changing the buffer position, truncated or null-padded to the specified length
+  private static void putString(ByteBuffer bb, int offset, String s, int length)
+  {
+    final byte[] buf = s.getBytes(StandardCharsets.ISO_8859_1);
+    for (int i = 0; i < length; i++) {
+      bb.put(offset + i, (i < buf.length) ? buf[i] : 0);
+    }
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  private static final class Resource
+  {
+    final String name;
+    final int type;
+    final byte[] data;
+
+    Resource(String name, int type, byte[] data)
+    {
+      this.name = name;
+      this.type = type;
+      this.data = data;
+    }
+  }
+}
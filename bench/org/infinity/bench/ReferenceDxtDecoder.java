@@ -0,0 +1,189 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.bench;
+
+import org.infinity.resource.graphics.PvrDecoder;
+import org.infinity.util.DynamicArray;
+
+/**
+ * Reference implementation of the DXT1 and DXT5 decoding of {@link PvrDecoder}, as it was
+ * before DXT blocks were decoded through per-block color tables. Pixels are decoded one at a
+ * time with a branch for each color code.
+ * <p>
+ * Used by the benchmarks to compare the current decoder with the previous one and to verify
+ * that both produce the same pixels. Only whole textures are decoded.
+ */
+final class ReferenceDxtDecoder
+{
+  /**
+   * Decodes the whole texture into the specified ARGB pixel buffer.
+   * @param pvr The PVR texture in DXT1 or DXT5 format.
+   * @param imgData Output buffer of at least width*height pixels.
+   * @throws IllegalArgumentException if the texture is not in DXT1 or DXT5 format.
+   */
+  public static void decode(PvrDecoder pvr, int[] imgData)
+  {
+    switch (pvr.getPixelFormat()) {
+      case DXT1:
+        decodeDXT1(pvr.getData(), pvr.getWidth(), pvr.getHeight(), imgData);
+        break;
+      case DXT5:
+        decodeDXT5(pvr.getData(), pvr.getWidth(), pvr.getHeight(), imgData);
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported pixel format: " + pvr.getPixelFormat());
+    }
+  }
+
+  private static void decodeDXT1(byte[] data, int width, int height, int[] imgData)
+  {
+    final int wordSize = 8;
+    int wordImageWidth = width >>> 2;
+    int wordImageHeight = height >>> 2;
+
+    int[] colors = new int[8];
+    int pvrOfs = 0;
+    int imgOfs = 0;
+    for (int y = 0; y < wordImageHeight; y++) {
+      for (int x = 0; x < wordImageWidth; x++) {
+        int c = DynamicArray.getInt(data, pvrOfs);
+        unpackColors565(c, colors);
+        int code = DynamicArray.getInt(data, pvrOfs+4);
+        for (int idx = 0; idx < 16; idx++, code >>>= 2) {
+          int ofs = imgOfs + (idx >>> 2)*width + (idx & 3);
+          if ((code & 3) == 0) {
+            // 100% c0, 0% c1
+            imgData[ofs] = 0xff000000 | (colors[2] << 16) | (colors[1] << 8) | colors[0];
+          } else if ((code & 3) == 1) {
+            // 0% c0, 100% c1
+            imgData[ofs] = 0xff000000 | (colors[6] << 16) | (colors[5] << 8) | colors[4];
+          } else if ((code & 3) == 2) {
+            if ((c & 0xffff) > ((c >>> 16) & 0xffff)) {
+              // 66% c0, 33% c1
+              int v = 0xff000000;
+              v |= (((colors[2] << 1) + colors[6]) / 3) << 16;
+              v |= (((colors[1] << 1) + colors[5]) / 3) << 8;
+              v |=  ((colors[0] << 1) + colors[4]) / 3;
+              imgData[ofs] = v;
+            } else {
+              // 50% c0, 50% c1
+              int v = 0xff000000;
+              v |= ((colors[2] + colors[6]) >>> 1) << 16;
+              v |= ((colors[1] + colors[5]) >>> 1) << 8;
+              v |=  (colors[0] + colors[4]) >>> 1;
+              imgData[ofs] = v;
+            }
+          } else {
+            if ((c & 0xffff) > ((c >>> 16) & 0xffff)) {
+              // 33% c0, 66% c1
+              int v = 0xff000000;
+              v |= ((colors[2] + (colors[6] << 1)) / 3) << 16;
+              v |= ((colors[1] + (colors[5] << 1)) / 3) << 8;
+              v |=  (colors[0] + (colors[4] << 1)) / 3;
+              imgData[ofs] = v;
+            } else {
+              // transparent
+              imgData[ofs] = 0;
+            }
+          }
+        }
+
+        pvrOfs += wordSize;
+        imgOfs += 4;
+      }
+      imgOfs += width*4 - width;
+    }
+  }
+
+  private static void decodeDXT5(byte[] data, int width, int height, int[] imgData)
+  {
+    final int wordSize = 16;
+    int wordImageWidth = width >>> 2;
+    int wordImageHeight = height >>> 2;
+
+    int[] alpha = new int[8];
+    int[] colors = new int[8];
+    int pvrOfs = 0;
+    int imgOfs = 0;
+    for (int y = 0; y < wordImageHeight; y++) {
+      for (int x = 0; x < wordImageWidth; x++) {
+        // creating alpha table
+        alpha[0] = DynamicArray.getByte(data, pvrOfs) & 0xff;
+        alpha[1] = DynamicArray.getByte(data, pvrOfs+1) & 0xff;
+        if (alpha[0] > alpha[1]) {
+          alpha[2] = (6*alpha[0] +   alpha[1]) / 7;
+          alpha[3] = (5*alpha[0] + 2*alpha[1]) / 7;
+          alpha[4] = (4*alpha[0] + 3*alpha[1]) / 7;
+          alpha[5] = (3*alpha[0] + 4*alpha[1]) / 7;
+          alpha[6] = (2*alpha[0] + 5*alpha[1]) / 7;
+          alpha[7] = (  alpha[0] + 6*alpha[1]) / 7;
+        } else {
+          alpha[2] = (4*alpha[0] +   alpha[1]) / 5;
+          alpha[3] = (3*alpha[0] + 2*alpha[1]) / 5;
+          alpha[4] = (2*alpha[0] + 3*alpha[1]) / 5;
+          alpha[5] = (  alpha[0] + 4*alpha[1]) / 5;
+          alpha[6] = 0;
+          alpha[7] = 255;
+        }
+
+        // decoding single DXT5 block
+        long ctrl = DynamicArray.getLong(data, pvrOfs+2) & 0xffffffffffffL;
+        int c = DynamicArray.getInt(data, pvrOfs+8);
+        unpackColors565(c, colors);
+        int code = DynamicArray.getInt(data, pvrOfs+12);
+        for (int idx = 0; idx < 16; idx++, code >>>= 2, ctrl >>>= 3) {
+          int ofs = imgOfs + (idx >>> 2)*width + (idx & 3);
+          int color = alpha[(int)(ctrl & 7L)] << 24;
+          if ((code & 3) == 0) {
+            // 100% c0, 0% c1
+            color |= (colors[2] << 16) | (colors[1] << 8) | colors[0];
+          } else if ((code & 3) == 1) {
+            // 0% c0, 100% c1
+            color |= (colors[6] << 16) | (colors[5] << 8) | colors[4];
+          } else if ((code & 3) == 2) {
+            // 66% c0, 33% c1
+            int v = (((colors[2] << 1) + colors[6]) / 3) << 16;
+            color |= v;
+            v = (((colors[1] << 1) + colors[5]) / 3) << 8;
+            color |= v;
+            v = ((colors[0] << 1) + colors[4]) / 3;
+            color |= v;
+          } else {
+            // 33% c0, 66% c1
+            int v = ((colors[2] + (colors[6] << 1)) / 3) << 16;
+            color |= v;
+            v = ((colors[1] + (colors[5] << 1)) / 3) << 8;
+            color |= v;
+            v = (colors[0] + (colors[4] << 1)) / 3;
+            if (v > 255) v = 255;
+            color |= v;
+          }
+          imgData[ofs] = color;
+        }
+
+        pvrOfs += wordSize;
+        imgOfs += 4;
+      }
+      imgOfs += (width << 2) - width;
+    }
+  }
+
+  // Converts two RGB565 words into separate components, ordered { B, G, R, A, B, G, R, A }
+  private static void unpackColors565(int inData, int[] outData)
+  {
+    outData[0] = ((inData << 3)  & 0xf8) | (inData >>> 2)  & 0x07;      // b1
+    outData[1] = ((inData >>> 3) & 0xfc) | (inData >>> 9)  & 0x03;      // g1
+    outData[2] = ((inData >>> 8) & 0xf8) | (inData >>> 13) & 0x07;      // r1
+    outData[3] = 255;                                                   // a1
+    outData[4] = ((inData >>> 13) & 0xf8) | (inData >>> 18) & 0x07;     // b2
+    outData[5] = ((inData >>> 19) & 0xfc) | (inData >>> 25) & 0x03;     // g2
+    outData[6] = ((inData >>> 24) & 0xf8) | (inData >>> 29) & 0x07;     // r2
+    outData[7] = 255;                                                   // a2
+  }
+
+  private ReferenceDxtDecoder()
+  {
+  }
+}
@@ -0,0 +1,314 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.bench;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+import org.infinity.resource.Profile;
+import org.infinity.resource.ResourceFactory;
+import org.infinity.resource.are.AreResource;
+import org.infinity.resource.bcs.Compiler;
+import org.infinity.resource.bcs.Decompiler;
+import org.infinity.resource.cre.CreResource;
+import org.infinity.resource.graphics.BamDecoder.BamControl;
+import org.infinity.resource.graphics.BamV1Decoder;
+import org.infinity.resource.graphics.ColorConvert;
+import org.infinity.resource.graphics.PvrDecoder;
+import org.infinity.resource.graphics.TisV1Decoder;
+import org.infinity.resource.key.AbstractBIFFReader;
+import org.infinity.resource.key.BufferedResourceEntry;
+import org.infinity.resource.key.ResourceEntry;
+import org.infinity.resource.sound.AcmInputStream;
+import org.infinity.util.StringTable;
+
+/**
+ * Benchmarks of archive reading, string lookups, resource parsing, script compilation,
+ * image and audio decoding, based on the synthetic game generated by {@link Fixtures}.
+ * <p>
+ * Usage: {@code ResourceBenchmarks [-w warmups] [-i iterations] [-t ms] [-o results] [-b baseline]
+ * [-p pvrz ...] [regex ...]}
+ * <p>
+ * DXT decoding is measured on synthetic 1024x1024 pages and on every PVRZ page given by {@code -p}.
+ * Each page is also decoded by {@link ReferenceDxtDecoder}, which must produce the same pixels.
+ */
+public final class ResourceBenchmarks
+{
+  public static void main(String[] args)
+  {
+    System.setProperty("java.awt.headless", "true");
+
+    int warmups = 3, iterations = 5;
+    long time = 1000L;
+    Path output = null, baseline = null;
+    final List<String> filters = new ArrayList<>();
+    final List<Path> pvrFiles = new ArrayList<>();
+    try {
+      for (int idx = 0; idx < args.length; idx++) {
+        final boolean hasValue = idx + 1 < args.length;
+        if (args[idx].equals("-w") && hasValue) {
+          warmups = Integer.parseInt(args[++idx]);
+        } else if (args[idx].equals("-i") && hasValue) {
+          iterations = Integer.parseInt(args[++idx]);
+        } else if (args[idx].equals("-t") && hasValue) {
+          time = Long.parseLong(args[++idx]);
+        } else if (args[idx].equals("-o") && hasValue) {
+          output = Paths.get(args[++idx]);
+        } else if (args[idx].equals("-b") && hasValue) {
+          baseline = Paths.get(args[++idx]);
+        } else if (args[idx].equals("-p") && hasValue) {
+          pvrFiles.add(Paths.get(args[++idx]));
+        } else if (!args[idx].isEmpty()) {
+          filters.add(args[idx]);
+        }
+      }
+    } catch (NumberFormatException e) {
+      System.err.println("Invalid argument: " + e.getMessage());
+      System.exit(2);
+    }
+
+    int exitCode = 0;
+    Path root = null;
+    try {
+      root = Files.createTempDirectory("nibench");
+      final Fixtures fixtures = new Fixtures(root);
+      fixtures.create();
+      if (!Profile.openGame(fixtures.getKeyFile(), null, Profile.Game.BG2SoA)) {
+        throw new IOException("Unable to open game: " + fixtures.getKeyFile());
+      }
+
+      final Benchmark bench = new Benchmark(warmups, iterations, time);
+      addBenchmarks(bench, fixtures, pvrFiles);
+      final Map<String, Double> baseScores = (baseline != null && Files.isRegularFile(baseline)) ?
+          Benchmark.readResults(baseline) : null;
+      bench.run(filters, baseScores);
+      if (output != null) {
+        bench.writeResults(output);
+        System.out.println("# results written to " + output);
+      }
+      if (bench.getErrorCount() > 0) {
+        exitCode = 1;
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      exitCode = 1;
+    } finally {
+      AbstractBIFFReader.resetCache();
+      if (root != null) {
+        delete(root);
+      }
+    }
+    System.exit(exitCode);
+  }
+
+  private static void addBenchmarks(Benchmark bench, Fixtures fixtures, List<Path> pvrFiles)
+  {
+    // archives: reads resources of varying size in a fixed pseudo-random order
+    final int fileCount = fixtures.getArchiveFileCount();
+    final String[][] archives = { {"biff.read", Fixtures.BIFF_NAME},
+                                  {"bifc.read", Fixtures.BIFC_NAME},
+                                  {"bif.read", Fixtures.BIF_NAME} };
+    for (final String[] archive: archives) {
+      final Path file = fixtures.getArchive(archive[1]);
+      bench.add(archive[0], () -> {
+        AbstractBIFFReader.open(file);
+        return index -> AbstractBIFFReader.open(file).getResourceBuffer((index * 7) % fileCount);
+      });
+    }
+
+    // resource lookup by name, including names of unavailable resources
+    bench.add("key.lookup", () -> {
+      final List<String> names = new ArrayList<>();
+      for (int i = 0; i < Fixtures.NUM_CREATURES; i++) {
+        names.add(Fixtures.getCreatureName(i));
+        names.add(String.format("MISS%02d.CRE", i));
+      }
+      names.add(Fixtures.getAreaName());
+      names.add(Fixtures.getTilesetName());
+      names.add("TRIGGER.IDS");
+      return index -> ResourceFactory.getResourceEntry(names.get(index % names.size()));
+    });
+
+    bench.add("tlk.lookup", () -> {
+      StringTable.getStringRef(0);
+      return index -> StringTable.getStringRef((index * 7919) % Fixtures.NUM_STRINGS, StringTable.Format.NONE);
+    });
+
+    bench.add("cre.parse", () -> {
+      final ResourceEntry[] entries = new ResourceEntry[Fixtures.NUM_CREATURES];
+      for (int i = 0; i < entries.length; i++) {
+        entries[i] = loadEntry(Fixtures.getCreatureName(i));
+      }
+      return index -> new CreResource(entries[index % entries.length]);
+    });
+
+    bench.add("are.parse", () -> {
+      final ResourceEntry entry = loadEntry(Fixtures.getAreaName());
+      return index -> new AreResource(entry);
+    });
+
+    bench.add("bcs.compile", () -> {
+      final String source = Fixtures.getScriptSource();
+      final Compiler compiler = new Compiler(source);
+      compiler.compile();
+      if (!compiler.getErrors().isEmpty()) {
+        throw new Exception("Script compiled with errors: " + compiler.getErrors().first());
+      }
+      return index -> new Compiler(source).compile();
+    });
+
+    bench.add("bcs.decompile", () -> {
+      final String code = new Compiler(Fixtures.getScriptSource()).compile();
+      final String source = new Decompiler(code, false).decompile();
+      if (!code.equals(new Compiler(source).compile())) {
+        throw new Exception("Decompiled script does not match original script");
+      }
+      return index -> new Decompiler(code, false).decompile();
+    });
+
+    // DXT pages: current decoder and previous per-pixel decoder on the same data
+    final int[][] pvrFormats = { {7, 1024}, {11, 1024} };
+    for (final int[] format: pvrFormats) {
+      final byte[] data = fixtures.createPvr(format[0], format[1], format[1]);
+      addPvrBenchmarks(bench, (format[0] == 7) ? "pvr.dxt1" : "pvr.dxt5",
+                       () -> PvrDecoder.loadPvr(new ByteArrayInputStream(data)));
+    }
+    for (final Path file: pvrFiles) {
+      String name = file.getFileName().toString().toLowerCase(Locale.ENGLISH);
+      if (name.lastIndexOf('.') > 0) {
+        name = name.substring(0, name.lastIndexOf('.'));
+      }
+      addPvrBenchmarks(bench, "pvr." + name, () -> PvrDecoder.loadPvr(file));
+    }
+
+    bench.add("tis.decode", () -> {
+      final TisV1Decoder decoder = new TisV1Decoder(ResourceFactory.getResourceEntry(Fixtures.getTilesetName()));
+      if (decoder.getTileCount() != Fixtures.NUM_TILES) {
+        throw new Exception("Unexpected number of tiles: " + decoder.getTileCount());
+      }
+      final BufferedImage image = new BufferedImage(decoder.getTileWidth(), decoder.getTileHeight(),
+                                                    BufferedImage.TYPE_INT_ARGB);
+      return index -> decoder.getTile(index % Fixtures.NUM_TILES, image);
+    });
+
+    bench.add("bam.decode", () -> {
+      final BamV1Decoder decoder = new BamV1Decoder(loadEntry(Fixtures.getAnimationName()));
+      if (decoder.frameCount() != Fixtures.NUM_FRAMES) {
+        throw new Exception("Unexpected number of frames: " + decoder.frameCount());
+      }
+      final BamControl control = decoder.createControl();
+      final BufferedImage image = new BufferedImage(decoder.getFrameInfo(0).getWidth(),
+                                                    decoder.getFrameInfo(0).getHeight(),
+                                                    BufferedImage.TYPE_INT_ARGB);
+      return index -> {
+        decoder.frameGet(control, index % Fixtures.NUM_FRAMES, image);
+        return image;
+      };
+    });
+
+    // decodes one second of stereo audio per operation
+    bench.add("acm.decode", () -> {
+      final byte[] data = fixtures.createAcm(1 << 20);
+      final byte[] samples = new byte[44100 * 2];
+      final AcmInputStream[] acm = { null };
+      return index -> {
+        if (acm[0] == null || acm[0].getSamplesRemaining() < 44100) {
+          acm[0] = new AcmInputStream(data, 0, null);
+        }
+        return acm[0].readSamples(samples, 0, 44100);
+      };
+    });
+
+    final int[] pixels = fixtures.createPixels(128, 128);
+    bench.add("color.mediancut", () -> {
+      final int[] palette = new int[256];
+      return index -> ColorConvert.medianCut(pixels, 256, palette, false);
+    });
+  }
+
+  // Adds "<name>.decode" and "<name>.reference" for the DXT page returned by "loader"
+  private static void addPvrBenchmarks(Benchmark bench, String name, Callable<PvrDecoder> loader)
+  {
+    bench.add(name + ".decode", () -> {
+      final PvrDecoder decoder = loadVerifiedPvr(loader);
+      final BufferedImage image = new BufferedImage(decoder.getWidth(), decoder.getHeight(),
+                                                    BufferedImage.TYPE_INT_ARGB);
+      return index -> decoder.decode(image);
+    });
+
+    bench.add(name + ".reference", () -> {
+      final PvrDecoder decoder = loadVerifiedPvr(loader);
+      final int[] pixels = new int[decoder.getWidth() * decoder.getHeight()];
+      return index -> {
+        ReferenceDxtDecoder.decode(decoder, pixels);
+        return pixels;
+      };
+    });
+  }
+
+  // Loads a DXT page and checks that the current and the reference decoder produce the same pixels
+  private static PvrDecoder loadVerifiedPvr(Callable<PvrDecoder> loader) throws Exception
+  {
+    final PvrDecoder decoder = loader.call();
+    if (decoder == null) {
+      throw new Exception("Unable to load PVR page");
+    }
+    if (decoder.getPixelFormat() != PvrDecoder.PixelFormat.DXT1 &&
+        decoder.getPixelFormat() != PvrDecoder.PixelFormat.DXT5) {
+      throw new Exception("Unsupported pixel format: " + decoder.getPixelFormat());
+    }
+    final BufferedImage image = new BufferedImage(decoder.getWidth(), decoder.getHeight(),
+                                                  BufferedImage.TYPE_INT_ARGB);
+    decoder.decode(image);
+    final int[] actual = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+    final int[] expected = new int[actual.length];
+    ReferenceDxtDecoder.decode(decoder, expected);
+    for (int i = 0; i < actual.length; i++) {
+      if (actual[i] != expected[i]) {
+        throw new Exception(String.format("%s pixel mismatch at (%d, %d): 0x%08x, expected 0x%08x",
+                                          decoder.getPixelFormat(), i % decoder.getWidth(),
+                                          i / decoder.getWidth(), actual[i], expected[i]));
+      }
+    }
+    return decoder;
+  }
+
+  // Returns an in-memory copy of the specified game resource
+  private static ResourceEntry loadEntry(String name) throws Exception
+  {
+    final ResourceEntry entry = ResourceFactory.getResourceEntry(name);
+    if (entry == null) {
+      throw new Exception("Resource not found: " + name);
+    }
+    return new BufferedResourceEntry(entry.getResourceBuffer(), name);
+  }
+
+  private static void delete(Path root)
+  {
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+        try {
+          Files.delete(path);
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      });
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
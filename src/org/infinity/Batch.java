@@ -0,0 +1,378 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.infinity.check.ResRefChecker;
+import org.infinity.datatype.ProRef;
+import org.infinity.datatype.ResourceRef;
+import org.infinity.datatype.TextString;
+import org.infinity.resource.AbstractStruct;
+import org.infinity.resource.Profile;
+import org.infinity.resource.Resource;
+import org.infinity.resource.ResourceFactory;
+import org.infinity.resource.StructEntry;
+import org.infinity.resource.key.BIFFLocality;
+import org.infinity.resource.key.ResourceEntry;
+import org.infinity.resource.sav.SavResource;
+import org.infinity.search.ReferenceSearcher;
+import org.infinity.util.WorkPipeline;
+import org.infinity.util.io.FileEx;
+import org.infinity.util.io.FileManager;
+import org.infinity.util.io.StreamUtils;
+
+/**
+ * Command line entry point for running exports, checks and searches without GUI.
+ * <p>
+ * Each job processes the selected resources in parallel, using one thread per CPU core.
+ * Results are printed to standard output as tab-separated lines of job name, resource name
+ * and detail, sorted by resource name. Each job is concluded by a summary line starting with '#'.
+ * Errors are printed to standard error.
+ * <p>
+ * Exit codes: 0 = success, 1 = a job failed or a check found problems, 2 = invalid arguments,
+ * 10 = game could not be opened.
+ */
+public final class Batch
+{
+  private static final int EXIT_SUCCESS = 0;
+  private static final int EXIT_FAILED  = 1;
+  private static final int EXIT_USAGE   = 2;
+  private static final int EXIT_NO_GAME = 10;
+
+  private static final String KEYFILENAME = "chitin.key";
+  /** Resource name with optional extension, as accepted by the find job. */
+  private static final Pattern RESREF = Pattern.compile("[\\x21-\\x2d\\x2f-\\x7e]{1,8}(\\.[A-Za-z0-9]{1,4})?");
+
+  private final String job;
+  private final List<String[]> results = Collections.synchronizedList(new ArrayList<>());
+  private final AtomicInteger numErrors = new AtomicInteger();
+
+  private static void printHelp()
+  {
+    System.out.println("Usage: java -cp NearInfinity.jar org.infinity.Batch [-t type] gamepath job [job ...]");
+    System.out.println("\nOptions:");
+    System.out.println("  -t type             Force the game type.");
+    System.out.println("\nJobs:");
+    System.out.println("  export:TYPES:dir    Export all resources of the comma-separated types to dir.");
+    System.out.println("  check:resref[:TYPES]  Report references to missing or illegal resources.");
+    System.out.println("  find:NAME[.EXT][:TYPES]  List resource fields which refer to resource NAME (case-insensitive).");
+    System.out.println("\nExamples:");
+    System.out.println("  java -cp NearInfinity.jar org.infinity.Batch \"C:\\Games\\Baldurs Gate II\" check:resref");
+    System.out.println("  java -cp NearInfinity.jar org.infinity.Batch /games/bg2ee export:ITM,SPL:/tmp/out find:SW1H01:CRE,STO");
+  }
+
+  public static void main(String[] args)
+  {
+    System.setProperty("java.awt.headless", "true");
+
+    Profile.Game forcedGame = null;
+    Path gamePath = null;
+    final List<String> jobs = new ArrayList<>();
+    for (int idx = 0; idx < args.length; idx++) {
+      if (args[idx].equalsIgnoreCase("-h") || args[idx].equalsIgnoreCase("-help")) {
+        printHelp();
+        System.exit(EXIT_SUCCESS);
+      } else if (args[idx].equalsIgnoreCase("-t") && idx+1 < args.length) {
+        idx++;
+        for (final Profile.Game game: Profile.Game.values()) {
+          if (game.toString().equalsIgnoreCase(args[idx])) {
+            forcedGame = game;
+            break;
+          }
+        }
+        if (forcedGame == null) {
+          System.err.println("Unknown game type: " + args[idx]);
+          System.exit(EXIT_USAGE);
+        }
+      } else if (gamePath == null) {
+        gamePath = FileManager.resolve(args[idx]);
+      } else {
+        jobs.add(args[idx]);
+      }
+    }
+    if (gamePath == null || jobs.isEmpty()) {
+      printHelp();
+      System.exit(EXIT_USAGE);
+    }
+
+    Path keyFile = gamePath;
+    if (FileEx.create(keyFile).isDirectory()) {
+      keyFile = FileManager.query(gamePath, KEYFILENAME);
+    }
+    if (keyFile == null || !FileEx.create(keyFile).isFile()) {
+      System.err.println("No game found: " + gamePath);
+      System.exit(EXIT_NO_GAME);
+    }
+
+    long time = System.nanoTime();
+    if (!Profile.openGame(keyFile, null, forcedGame) || ResourceFactory.getResourceTreeModel() == null) {
+      System.err.println("Unable to open game: " + keyFile);
+      System.exit(EXIT_NO_GAME);
+    }
+    System.out.format("# open\t%s\t%d resources\t%d ms",
+                      Profile.getGame(), ResourceFactory.getResourceTreeModel().size(),
+                      (System.nanoTime() - time) / 1000000L).println();
+
+    int exitCode = EXIT_SUCCESS;
+    for (final String job: jobs) {
+      try {
+        if (!new Batch(job).run()) {
+          exitCode = EXIT_FAILED;
+        }
+      } catch (IllegalArgumentException e) {
+        System.err.println(e.getMessage());
+        System.exit(EXIT_USAGE);
+      }
+    }
+    System.exit(exitCode);
+  }
+
+  private Batch(String job)
+  {
+    this.job = job;
+  }
+
+  /** Executes the job and prints the results. Returns {@code false} if the job failed or found problems. */
+  private boolean run()
+  {
+    final String[] params = job.split(":", 3);
+    final String name = params[0].toLowerCase(Locale.ENGLISH);
+    final long time = System.nanoTime();
+    final List<ResourceEntry> entries;
+    final boolean success;
+    switch (name) {
+      case "export":
+      {
+        if (params.length < 3) {
+          throw new IllegalArgumentException("Usage: export:TYPES:dir");
+        }
+        entries = getResources(params[1], null);
+        success = export(entries, FileManager.resolve(params[2]));
+        break;
+      }
+      case "check":
+      {
+        if (params.length < 2 || !params[1].equalsIgnoreCase("resref")) {
+          throw new IllegalArgumentException("Usage: check:resref[:TYPES]");
+        }
+        entries = getResources((params.length > 2) ? params[2] : null, ResRefChecker.FILETYPES);
+        success = checkResRefs(entries);
+        break;
+      }
+      case "find":
+      {
+        if (params.length < 2 || !RESREF.matcher(params[1]).matches()) {
+          throw new IllegalArgumentException("Usage: find:NAME[.EXT][:TYPES], NAME is a resource name of up to 8 ASCII characters");
+        }
+        final int p = params[1].lastIndexOf('.');
+        final String resref = (p >= 0) ? params[1].substring(0, p) : params[1];
+        final String extension = (p >= 0) ? params[1].substring(p + 1) : null;
+        entries = getResources((params.length > 2) ? params[2] : null, ReferenceSearcher.FILE_TYPES);
+        success = find(entries, resref, extension);
+        break;
+      }
+      default:
+        throw new IllegalArgumentException("Unknown job: " + job);
+    }
+
+    synchronized (results) {
+      results.sort((a, b) -> {
+        int retVal = a[0].compareToIgnoreCase(b[0]);
+        return (retVal != 0) ? retVal : a[1].compareTo(b[1]);
+      });
+      for (final String[] result: results) {
+        System.out.println(name + '\t' + result[0] + '\t' + result[1]);
+      }
+    }
+    System.out.format("# %s\t%d resources\t%d results\t%d errors\t%d ms",
+                      job, entries.size(), results.size(), numErrors.get(),
+                      (System.nanoTime() - time) / 1000000L).println();
+    return success && numErrors.get() == 0;
+  }
+
+  /** Returns the resources of the specified comma-separated types, or of the default types if none specified. */
+  private static List<ResourceEntry> getResources(String types, String[] defaultTypes)
+  {
+    final List<ResourceEntry> retVal = new ArrayList<>();
+    if (types != null && !types.isEmpty()) {
+      for (final String type: types.split(",")) {
+        retVal.addAll(ResourceFactory.getResources(type.trim().toUpperCase(Locale.ENGLISH)));
+      }
+    } else if (defaultTypes != null) {
+      for (final String type: defaultTypes) {
+        retVal.addAll(ResourceFactory.getResources(type));
+      }
+    } else {
+      retVal.addAll(ResourceFactory.getResources());
+    }
+    return retVal;
+  }
+
+  private boolean export(List<ResourceEntry> entries, Path outPath)
+  {
+    try {
+      Files.createDirectories(outPath);
+    } catch (Exception e) {
+      System.err.println("Unable to create folder: " + outPath);
+      return false;
+    }
+    process(entries, (entry) -> {
+      final Path output = outPath.resolve(entry.getResourceName());
+      final ByteBuffer buffer = entry.getResourceBuffer();
+      try (OutputStream os = StreamUtils.getOutputStream(output, true)) {
+        WritableByteChannel wbc = Channels.newChannel(os);
+        wbc.write(buffer);
+      }
+      results.add(new String[]{entry.getResourceName(), output.toString()});
+    });
+    return true;
+  }
+
+  private boolean checkResRefs(List<ResourceEntry> entries)
+  {
+    final List<String> spawnGroups = ResRefChecker.getSpawnGroups();
+    process(entries, (entry) -> {
+      final Resource resource = ResourceFactory.getResource(entry);
+      if (resource == null) {
+        numErrors.incrementAndGet();
+        System.err.println(job + '\t' + entry.getResourceName() + "\tunable to load resource");
+      } else if (resource instanceof AbstractStruct) {
+        for (final ResourceRef ref: ResRefChecker.findIllegalRefs((AbstractStruct)resource, spawnGroups)) {
+          results.add(new String[]{entry.getResourceName(), ref.getName() + " = " + ref.getResourceName()});
+        }
+      }
+    });
+    return results.isEmpty();
+  }
+
+  private boolean find(List<ResourceEntry> entries, String resref, String extension)
+  {
+    final byte[] pattern = resref.toUpperCase(Locale.ENGLISH).getBytes(StandardCharsets.US_ASCII);
+    process(entries, (entry) -> {
+      final Resource resource = ResourceFactory.getResource(entry);
+      if (resource instanceof AbstractStruct) {
+        findFields(entry.getResourceName(), (AbstractStruct)resource, resref, extension);
+      } else if (resource instanceof SavResource) {
+        for (final ResourceEntry savEntry: ((SavResource)resource).getFileHandler().getFileEntries()) {
+          final Resource savResource = ResourceFactory.getResource(savEntry);
+          if (savResource instanceof AbstractStruct) {
+            findFields(entry.getResourceName() + '/' + savEntry.getResourceName(),
+                       (AbstractStruct)savResource, resref, extension);
+          }
+        }
+      } else {
+        // scripts and text resources: references are delimited by non-identifier characters
+        final ByteBuffer buffer = entry.getResourceBuffer();
+        for (int ofs = indexOf(buffer, buffer.position(), pattern); ofs >= 0; ofs = indexOf(buffer, ofs + 1, pattern)) {
+          results.add(new String[]{entry.getResourceName(), "0x" + Integer.toHexString(ofs)});
+        }
+      }
+    });
+    return true;
+  }
+
+  /** Adds every resource reference field of the structure which refers to the specified resource. */
+  private void findFields(String name, AbstractStruct struct, String resref, String extension)
+  {
+    for (final StructEntry e : struct.getFlatFields()) {
+      String value = null;
+      if (e instanceof ResourceRef) {
+        final ResourceRef ref = (ResourceRef)e;
+        if (!ref.isEmpty() && ref.getText().equalsIgnoreCase(resref) &&
+            (extension == null || ref.getResourceName().equalsIgnoreCase(resref + '.' + extension))) {
+          value = ref.getResourceName();
+        }
+      } else if (e instanceof ProRef) {
+        final ResourceEntry pro = ((ProRef)e).getSelectedEntry();
+        if (pro != null && pro.getResourceRef().equalsIgnoreCase(resref) &&
+            (extension == null || extension.equalsIgnoreCase(pro.getExtension()))) {
+          value = pro.getResourceName();
+        }
+      } else if (e instanceof TextString && extension == null) {
+        // untyped references, e.g. resource 2 and 3 of effects
+        if (((TextString)e).getText().equalsIgnoreCase(resref)) {
+          value = ((TextString)e).getText();
+        }
+      }
+      if (value != null) {
+        results.add(new String[]{name, String.format("%s (0x%x) = %s", e.getName(), e.getOffset(), value)});
+      }
+    }
+  }
+
+  /**
+   * Returns the first offset from {@code start} where the upper case ASCII pattern matches
+   * in any case and is not part of a longer identifier, or -1.
+   */
+  private static int indexOf(ByteBuffer buffer, int start, byte[] pattern)
+  {
+    final int limit = buffer.limit() - pattern.length;
+    for (int i = start; i <= limit; i++) {
+      int j = 0;
+      while (j < pattern.length) {
+        int b = buffer.get(i + j);
+        if (b >= 'a' && b <= 'z') {
+          b -= 'a' - 'A';
+        }
+        if (b != pattern[j]) {
+          break;
+        }
+        j++;
+      }
+      if (j == pattern.length &&
+          (i == buffer.position() || !isNameChar(buffer.get(i - 1))) &&
+          (i + j == buffer.limit() || !isNameChar(buffer.get(i + j)))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isNameChar(byte b)
+  {
+    return (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || b == '_';
+  }
+
+  /** Processes the resources in parallel, in order of their location on disk. */
+  private void process(List<ResourceEntry> entries, Task task)
+  {
+    try (WorkPipeline pipeline = new WorkPipeline("Batch")) {
+      for (final ResourceEntry entry: BIFFLocality.sort(entries)) {
+        if (entry != null) {
+          pipeline.submit(() -> {
+            try {
+              task.run(entry);
+            } catch (Exception e) {
+              numErrors.incrementAndGet();
+              System.err.println(job + '\t' + entry.getResourceName() + '\t' + e);
+            }
+          });
+        }
+      }
+      pipeline.join(null);
+    }
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  @FunctionalInterface
+  private interface Task
+  {
+    void run(ResourceEntry entry) throws Exception;
+  }
+}
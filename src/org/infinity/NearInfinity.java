@@ -98,10 +98,13 @@
 import org.infinity.resource.cre.decoder.util.ItemInfo;
 import org.infinity.resource.cre.decoder.util.SpriteUtils;
 import org.infinity.resource.graphics.ColorConvert;
+import org.infinity.resource.graphics.PvrDecoder;
 import org.infinity.resource.key.FileResourceEntry;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.resource.key.ResourceTreeModel;
+import org.infinity.resource.key.SearchStringCache;
 import org.infinity.resource.text.PlainTextResource;
+import org.infinity.search.ReferenceIndex;
 import org.infinity.search.SearchFrame;
 import org.infinity.updater.UpdateCheck;
 import org.infinity.updater.UpdateInfo;
@@ -124,7 +127,7 @@ public final class NearInfinity extends JFrame implements ActionListener, Viewab
 {
   private static final int[] JAVA_VERSION = {1, 8};   // the minimum java version supported
 
-  private static final InfinityTextArea consoletext = new InfinityTextArea(true);
+  private static InfinityTextArea consoletext;   // created on demand, requires a graphics environment
   private static final String KEYFILENAME         = "chitin.key";
   private static final String WINDOW_SIZEX        = "WindowSizeX";
   private static final String WINDOW_SIZEY        = "WindowSizeY";
@@ -188,8 +191,11 @@ public String getDescription()
     return null;
   }
 
-  public static InfinityTextArea getConsoleText()
+  public static synchronized InfinityTextArea getConsoleText()
   {
+    if (consoletext == null) {
+      consoletext = new InfinityTextArea(true);
+    }
     return consoletext;
   }
 
@@ -226,6 +232,13 @@ public static void printHelp(String jarFile)
     System.out.format("Force game type:   java -jar %s -t bg2tob", jarFile).println();
     System.out.format("Display version:   java -jar %s -v", jarFile).println();
     System.out.format("Display help:      java -jar %s -help", jarFile).println();
+    System.out.format("Batch mode help:   java -cp %s org.infinity.Batch -help", jarFile).println();
+  }
+
+  /** Returns whether the user has canceled the progress monitor. */
+  public static boolean isProgressCanceled()
+  {
+    return (getInstance() != null && getInstance().pmProgress != null && getInstance().pmProgress.isCanceled());
   }
 
   /** Advances the progress monitor by one step with optional note. */
@@ -290,8 +303,8 @@ public static void main(String args[])
     } catch (Exception e) { // Try starting anyway if the test goes sour
       e.printStackTrace();
     }
-    System.setOut(new ConsoleStream(System.out, consoletext));
-    System.setErr(new ConsoleStream(System.err, consoletext));
+    System.setOut(new ConsoleStream(System.out, getConsoleText()));
+    System.setErr(new ConsoleStream(System.err, getConsoleText()));
 
     new NearInfinity(gameOverride, forcedGame);
   }
@@ -347,7 +360,10 @@ private NearInfinity(Path gameOverride, Profile.Game forcedGame)
       @Override
       protected Void doInBackground() throws Exception
       {
-        Profile.openGame(keyFile, BrowserMenuBar.getInstance().getBookmarkName(keyFile), forcedGame);
+        if (!Profile.openGame(keyFile, BrowserMenuBar.getInstance().getBookmarkName(keyFile), forcedGame) &&
+            isProgressCanceled()) {
+          System.exit(0);
+        }
 
         // making sure vital game resources are accessible
         Path tlkFile = Profile.getProperty(Profile.Key.GET_GAME_DIALOG_FILE);
@@ -1047,10 +1063,13 @@ private static void clearCache(boolean refreshOnly)
     Table2daCache.clearCache();
     CreMapCache.clearCache();
     SearchFrame.clearCache();
+    ReferenceIndex.clearCache();
+    SearchStringCache.clearCache();
     StringTable.resetAll();
     ProRef.clearCache();
     Signatures.clearCache();
     ColorConvert.clearCache();
+    PvrDecoder.flushCache();
     SpriteUtils.clearCache();
     ItemInfo.clearCache();
     AreResource.clearCache();
@@ -1090,7 +1109,7 @@ private static void resizeUIFont(int percent)
         UIManager.put(key, new FontUIResource(f));
       }
     }
-    consoletext.setFont(Misc.getScaledFont(consoletext.getFont()));
+    getConsoleText().setFont(Misc.getScaledFont(getConsoleText().getFont()));
   }
 
   private void storePreferences()
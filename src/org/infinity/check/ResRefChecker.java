@@ -4,6 +4,7 @@
 
 package org.infinity.check;
 
+import java.util.ArrayList;
 import java.util.List;
 import org.infinity.NearInfinity;
 
@@ -20,7 +21,7 @@
 
 public final class ResRefChecker extends AbstractChecker
 {
-  private static final String[] FILETYPES = {"ARE", "CHR", "CHU", "CRE", "DLG", "EFF", "GAM", "ITM", "PRO",
+  public static final String[] FILETYPES = {"ARE", "CHR", "CHU", "CRE", "DLG", "EFF", "GAM", "ITM", "PRO",
                                              "SPL", "STO", "VEF", "VVC", "WED", "WMP"};
   /** Window with check results. */
   private final ReferenceHitFrame hitFrame;
@@ -30,12 +31,57 @@ public ResRefChecker()
   {
     super("ResRef Checker", "ResRefChecker", FILETYPES);
     hitFrame = new ReferenceHitFrame("Illegal ResourceRefs", NearInfinity.getInstance());
+    extraValues = getSpawnGroups();
+  }
 
+  /**
+   * Returns the spawn group names defined in SPAWNGRP.2DA, which are legal values of spawn references.
+   * Returns {@code null} if the table is not available.
+   */
+  public static List<String> getSpawnGroups()
+  {
     final ResourceEntry spawnRef = ResourceFactory.getResourceEntry("SPAWNGRP.2DA");
     if (spawnRef != null) {
       PlainTextResource spawn = (PlainTextResource)ResourceFactory.getResource(spawnRef);
-      extraValues = spawn.extract2DAHeaders();
+      return spawn.extract2DAHeaders();
+    }
+    return null;
+  }
+
+  /**
+   * Returns all resource references of the specified structure that point to missing or illegal resources.
+   * @param struct The structure to check.
+   * @param spawnGroups Legal values of spawn references as returned by {@link #getSpawnGroups()}. May be {@code null}.
+   */
+  public static List<ResourceRef> findIllegalRefs(AbstractStruct struct, List<String> spawnGroups)
+  {
+    final List<ResourceRef> retVal = new ArrayList<>();
+    for (final StructEntry e : struct.getFlatFields()) {
+      if (!(e instanceof ResourceRef)) { continue; }
+
+      final ResourceRef ref = (ResourceRef)e;
+      final String resourceName = ref.getResourceName();
+
+      //TODO: when getResourceName() will return null check on null instead of this
+      if (resourceName.equalsIgnoreCase("None")) { continue; }
+
+      // For spawn refs skip values from SPAWNGRP.2DA
+      if (e instanceof SpawnResourceRef) {
+        if (spawnGroups != null && spawnGroups.contains(ref.getText())) {
+          continue;
+        }
+      } else {
+        if (struct instanceof CreResource && resourceName.length() >= 3 && resourceName.substring(0, 3).equalsIgnoreCase("rnd")) {
+          continue;
+        }
+      }
+
+      final ResourceEntry resource = ResourceFactory.getResourceEntry(resourceName);
+      if (!ref.isLegalEntry(resource)) {
+        retVal.add(ref);
+      }
     }
+    return retVal;
   }
 
 // --------------------- Begin Interface Runnable ---------------------
@@ -66,31 +112,9 @@ protected Runnable newWorker(ResourceEntry entry)
 
   private void search(ResourceEntry entry, AbstractStruct struct)
   {
-    for (final StructEntry e : struct.getFlatFields()) {
-      if (!(e instanceof ResourceRef)) { continue; }
-
-      final ResourceRef ref = (ResourceRef)e;
-      final String resourceName = ref.getResourceName();
-
-      //TODO: when getResourceName() will return null check on null instead of this
-      if (resourceName.equalsIgnoreCase("None")) { continue; }
-
-      // For spawn refs skip values from SPAWNGRP.2DA
-      if (e instanceof SpawnResourceRef) {
-        if (extraValues != null && extraValues.contains(ref.getText())) {
-          continue;
-        }
-      } else {
-        if (struct instanceof CreResource && resourceName.length() >= 3 && resourceName.substring(0, 3).equalsIgnoreCase("rnd")) {
-          continue;
-        }
-      }
-
-      final ResourceEntry resource = ResourceFactory.getResourceEntry(resourceName);
-      if (!ref.isLegalEntry(resource)) {
-        synchronized (hitFrame) {
-          hitFrame.addHit(entry, entry.getSearchString(), ref);
-        }
+    for (final ResourceRef ref : findIllegalRefs(struct, extraValues)) {
+      synchronized (hitFrame) {
+        hitFrame.addHit(entry, entry.getSearchString(), ref);
       }
     }
   }
@@ -654,13 +654,13 @@ public void setValueAt(Object aValue, int rowIndex, int columnIndex)
   @Override
   public void addTableModelListener(TableModelListener l)
   {
-    listenerList.add(TableModelListener.class, l);
+    getListenerList().add(TableModelListener.class, l);
   }
 
   @Override
   public void removeTableModelListener(TableModelListener l)
   {
-    listenerList.remove(TableModelListener.class, l);
+    removeListener(TableModelListener.class, l);
   }
 
   /**
@@ -709,7 +709,7 @@ private void fireTableChanged(int row)
   {
     final TableModelEvent e = new TableModelEvent(this, row, row);
     // Guaranteed to return a non-null array
-    final Object[] listeners = listenerList.getListenerList();
+    final Object[] listeners = getListeners();
     // Process the listeners last to first, notifying
     // those that are interested in this event
     for (int i = listeners.length-2; i >= 0; i -= 2) {
@@ -10,6 +10,7 @@
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.EventListener;
 import java.util.List;
 
 import javax.swing.event.EventListenerList;
@@ -40,7 +41,10 @@ public abstract class Datatype implements StructEntry
   protected static final Dimension DIM_BROAD = new Dimension(650, 100);
   protected static final Dimension DIM_MEDIUM = new Dimension(450, 100);
 
-  protected final EventListenerList listenerList = new EventListenerList();
+  private static final Object[] EMPTY_LISTENERS = new Object[0];
+
+  /** Registered listeners. Created on demand, since most fields never get any listeners. */
+  private EventListenerList listenerList;
   private final int length;
 
   private String name;
@@ -104,6 +108,9 @@ public void copyNameAndOffset(StructEntry entry)
   {
     name = entry.getName();
     offset = entry.getOffset();
+    if (parent != null) {
+      parent.invalidateFieldIndex();
+    }
   }
 
   @Override
@@ -123,6 +130,9 @@ public void setName(String newName)
   {
     if (newName != null) {
       name = newName;
+      if (parent != null) {
+        parent.invalidateFieldIndex();
+      }
     } else {
       throw new NullPointerException("Name of struct field must not be null");
     }
@@ -160,6 +170,9 @@ public List<StructEntry> getStructChain()
   public void setOffset(int newoffset)
   {
     offset = newoffset;
+    if (parent != null) {
+      parent.invalidateFieldIndex();
+    }
   }
 
   @Override
@@ -190,7 +203,7 @@ public ByteBuffer getDataBuffer()
    */
   public void addUpdateListener(UpdateListener l)
   {
-    listenerList.add(UpdateListener.class, l);
+    getListenerList().add(UpdateListener.class, l);
   }
 
   /**
@@ -200,7 +213,33 @@ public void addUpdateListener(UpdateListener l)
    */
   public void removeUpdateListener(UpdateListener l)
   {
-    listenerList.remove(UpdateListener.class, l);
+    removeListener(UpdateListener.class, l);
+  }
+
+  /** Returns the listener list of this object. The list is created on first access. */
+  protected synchronized EventListenerList getListenerList()
+  {
+    if (listenerList == null) {
+      listenerList = new EventListenerList();
+    }
+    return listenerList;
+  }
+
+  /** Removes the specified listener. Does nothing if no listener list has been created yet. */
+  protected synchronized <T extends EventListener> void removeListener(Class<T> t, T l)
+  {
+    if (listenerList != null) {
+      listenerList.remove(t, l);
+    }
+  }
+
+  /**
+   * Returns the registered listeners as an array of listener-type and listener pairs
+   * without creating the listener list. Guaranteed to return a non-null array.
+   */
+  protected synchronized Object[] getListeners()
+  {
+    return (listenerList != null) ? listenerList.getListenerList() : EMPTY_LISTENERS;
   }
 
   /**
@@ -215,7 +254,7 @@ protected void fireValueUpdated(UpdateEvent event)
       }
       boolean retVal = false;
       // Guaranteed to return a non-null array
-      final Object[] listeners = listenerList.getListenerList();
+      final Object[] listeners = getListeners();
       // Process the listeners last to first, notifying
       // those that are interested in this event
       for (int i = listeners.length-2; i >= 0; i -= 2) {
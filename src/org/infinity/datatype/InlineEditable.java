@@ -26,7 +26,9 @@ public interface InlineEditable extends StructEntry
 
   /** The default component used for the inline editor. */
   static final JTextField DEFAULT_EDITOR = new JTextField() {{
-      setFont(Misc.getScaledFont(BrowserMenuBar.getInstance().getScriptFont()));
+      if (BrowserMenuBar.getInstance() != null) {
+        setFont(Misc.getScaledFont(BrowserMenuBar.getInstance().getScriptFont()));
+      }
       setBorder(new LineBorder(GRID_BORDER, 1));
       setBackground(GRID_BACKGROUND);
   }};
@@ -12,6 +12,7 @@
 
 import org.infinity.gui.BrowserMenuBar;
 import org.infinity.util.Misc;
+import org.infinity.util.StringTable;
 import org.infinity.util.io.StreamUtils;
 
 /**
@@ -37,7 +38,8 @@ public TextString(ByteBuffer buffer, int offset, int length, String name)
   {
     super(offset, length, name);
     this.buffer = StreamUtils.getByteBuffer(length);
-    this.charset = Charset.forName(BrowserMenuBar.getInstance().getSelectedCharset());
+    this.charset = (BrowserMenuBar.getInstance() != null) ?
+                   Charset.forName(BrowserMenuBar.getInstance().getSelectedCharset()) : StringTable.getCharset();
     read(buffer, offset);
   }
 
@@ -9,6 +9,7 @@
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Frame;
+import java.awt.GraphicsEnvironment;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
@@ -92,6 +93,7 @@
 import org.infinity.resource.key.Keyfile;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.search.DialogSearcher;
+import org.infinity.search.ReferenceIndex;
 import org.infinity.search.SearchFrame;
 import org.infinity.search.SearchResource;
 import org.infinity.search.TextResourceSearcher;
@@ -117,7 +119,8 @@ public final class BrowserMenuBar extends JMenuBar implements KeyEventDispatcher
       new LookAndFeelInfo("Metal", "javax.swing.plaf.metal.MetalLookAndFeel");
 
   /** Defines platform-specific shortcut key (e.g. Ctrl on Win/Linux, Meta on Mac). */
-  private static final int CTRL_MASK = Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
+  private static final int CTRL_MASK = GraphicsEnvironment.isHeadless() ? InputEvent.CTRL_DOWN_MASK
+                                                                     : Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
 
   /** Name of the child node in the GUI preferences path. */
   private static final String PREFS_PROFILES_NODE = "Profiles";
@@ -393,6 +396,12 @@ public boolean cacheOverride()
     return optionsMenu.optionCacheOverride.isSelected();
   }
 
+  /** Returns whether reference searches make use of a persistent index which is built in background. */
+  public boolean getIndexReferences()
+  {
+    return optionsMenu.optionIndexReferences.isSelected();
+  }
+
   public void gameLoaded(Profile.Game oldGame, String oldFile)
   {
     gameMenu.gameLoaded(oldGame, oldFile);
@@ -1846,6 +1855,7 @@ private static final class OptionsMenu extends JMenu implements ActionListener,
     private static final String OPTION_AUTOCHECK_BCS            = "AutocheckBCS";
     private static final String OPTION_AUTOGEN_BCS_COMMENTS     = "AutogenBCSComments";
     private static final String OPTION_CACHEOVERRIDE            = "CacheOverride";
+    private static final String OPTION_INDEXREFERENCES          = "IndexReferences";
     private static final String OPTION_MORECOMPILERWARNINGS     = "MoreCompilerWarnings";
     private static final String OPTION_SHOWSTRREFS              = "ShowStrrefs";
     private static final String OPTION_SHOWCOLOREDSTRUCTURES    = "ShowColoredStructures";
@@ -1926,7 +1936,7 @@ private static final class OptionsMenu extends JMenu implements ActionListener,
                               optionIgnoreOverride, optionIgnoreReadErrors, optionCacheOverride, optionShowStrrefs,
                               optionShowColoredStructures, optionShowHexColored, optionShowUnknownResources,
                               optionKeepViewOnCopy, optionTreeSearchNames,
-                              optionHighlightOverridden, optionLaunchGameAllowed;
+                              optionHighlightOverridden, optionLaunchGameAllowed, optionIndexReferences;
 //                              optionMonitorFileChanges;
     private final JMenu mCharsetMenu, mLanguageMenu;
     private ButtonGroup bgCharsetButtons;
@@ -2014,6 +2024,12 @@ private OptionsMenu()
       optionCacheOverride.setToolTipText("Without this option selected, Refresh Tree is required " +
                                          "to discover new override files added while NI is open");
       add(optionCacheOverride);
+      optionIndexReferences =
+          new JCheckBoxMenuItem("Index references in background", getPrefs().getBoolean(OPTION_INDEXREFERENCES, false));
+      optionIndexReferences.setToolTipText("With this option enabled references of all resources are indexed in background " +
+                                           "and stored on disk to speed up \"Find references\" operations.");
+      optionIndexReferences.addActionListener(this);
+      add(optionIndexReferences);
       optionKeepViewOnCopy =
           new JCheckBoxMenuItem("Keep view after copy operations", getPrefs().getBoolean(OPTION_KEEPVIEWONCOPY, false));
       optionKeepViewOnCopy.setToolTipText("With this option enabled the resource tree will not switch to the new resource created by an \"Add Copy Of\" operation.");
@@ -2639,6 +2655,10 @@ private void gameLoaded()
       StringTable.setCharset(charsetName(getSelectedButtonData(), true));
       // update language selection
       resetGameLanguage();
+      // update reference index
+      if (optionIndexReferences.isSelected() && Profile.getGame() != Profile.Game.Unknown) {
+        ReferenceIndex.startIndexing();
+      }
     }
 
     private void storePreferences()
@@ -2655,6 +2675,7 @@ private void storePreferences()
       getPrefs().putBoolean(OPTION_AUTOCHECK_BCS, optionAutocheckBCS.isSelected());
       getPrefs().putBoolean(OPTION_AUTOGEN_BCS_COMMENTS, optionAutogenBCSComments.isSelected());
       getPrefs().putBoolean(OPTION_CACHEOVERRIDE, optionCacheOverride.isSelected());
+      getPrefs().putBoolean(OPTION_INDEXREFERENCES, optionIndexReferences.isSelected());
       getPrefs().putBoolean(OPTION_MORECOMPILERWARNINGS, optionMoreCompileWarnings.isSelected());
       getPrefs().putBoolean(OPTION_SHOWSTRREFS, optionShowStrrefs.isSelected());
       dialogViewerMenu.storePreferences(getPrefs());
@@ -3043,6 +3064,11 @@ public void actionPerformed(ActionEvent event)
       else if (event.getSource() == optionLaunchGameAllowed) {
         NearInfinity.getInstance().updateLauncher();
       }
+      else if (event.getSource() == optionIndexReferences) {
+        if (optionIndexReferences.isSelected() && Profile.getGame() != Profile.Game.Unknown) {
+          ReferenceIndex.startIndexing();
+        }
+      }
       else if (event.getSource() == optionShowSize) {
         optionSizeInHex.setEnabled(optionShowSize.isSelected());
       }
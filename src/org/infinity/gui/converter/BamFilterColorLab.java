@@ -29,7 +29,6 @@
 import org.infinity.icon.Icons;
 import org.infinity.resource.graphics.ColorConvert;
 import org.infinity.resource.graphics.PseudoBamDecoder.PseudoBamFrameEntry;
-import org.infinity.util.tuples.Triple;
 
 /**
  * ColorFilter: adjust CIELAB values L, a and b.
@@ -323,6 +322,7 @@ private BufferedImage applyEffect(BufferedImage srcImage)
       // b in range [-160, 160]
       double labB = ((Integer)spinnerB.getValue()).doubleValue();
 
+      double[] lab = new double[3];
       for (int i = 0; i < buffer.length; i++) {
         if ((cm == null || (cm != null && !pExcludeColors.isSelectedIndex(i))) &&
             (buffer[i] & 0xff000000) != 0) {
@@ -331,11 +331,11 @@ private BufferedImage applyEffect(BufferedImage srcImage)
           int fr = ((buffer[i] >>> 16) & 0xff) * fa / 255;
           int fg = ((buffer[i] >>> 8) & 0xff) * fa / 255;
           int fb = (buffer[i] & 0xff) * fa / 255;
-          int rgb = (fr << 16) | (fg << 8) | fb;
-          Triple<Double, Double, Double> lab = ColorConvert.convertRGBtoLab(rgb);
-          double l = lab.getValue0().doubleValue();
-          double a = lab.getValue1().doubleValue();
-          double b = lab.getValue2().doubleValue();
+          int rgb = 0xff000000 | (fr << 16) | (fg << 8) | fb;
+          ColorConvert.convertRGBtoLab(rgb, lab, 0);
+          double l = lab[0];
+          double a = lab[1];
+          double b = lab[2];
 
 //          float fa = isPremultiplied ? (float)((buffer[i] >>> 24) & 0xff) : 255.0f;
 //          float fr = (float)((buffer[i] >>> 16) & 0xff) / fa;
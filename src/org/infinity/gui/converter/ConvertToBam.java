@@ -50,6 +50,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.stream.IntStream;
 
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
@@ -109,6 +110,7 @@
 import org.infinity.resource.graphics.ColorConvert;
 import org.infinity.resource.graphics.DxtEncoder;
 import org.infinity.resource.graphics.GifSequenceReader;
+import org.infinity.resource.graphics.PaletteMatcher;
 import org.infinity.resource.graphics.PseudoBamDecoder;
 import org.infinity.resource.graphics.PseudoBamDecoder.PseudoBamControl;
 import org.infinity.resource.graphics.PseudoBamDecoder.PseudoBamCycleEntry;
@@ -4154,55 +4156,32 @@ private void updateFinalBamDecoder(int bamVersion) throws Exception
         if (transIndex < 0) {
           transIndex = 0;
         }
-        HashMap<Integer, Byte> colorCache = new HashMap<>(4096);
-        for (int i = 0; i < palette.length; i++) {
-          if (i != transIndex) {
-            colorCache.put(Integer.valueOf(palette[i]), Byte.valueOf((byte)i));
-          }
-        }
 
-        // processing frames
-        IndexColorModel cm = new IndexColorModel(8, 256, palette, 0, getUseAlpha(), transIndex, DataBuffer.TYPE_BYTE);
-        for (int i = 0; i < srcListFrames.size(); i++) {
-          PseudoBamFrameEntry srcEntry = srcListFrames.get(i);
-          BufferedImage srcImage = ColorConvert.toBufferedImage(srcEntry.getFrame(), true, true);
-          int[] srcBuf = ((DataBufferInt)srcImage.getRaster().getDataBuffer()).getData();
-          BufferedImage dstImage = new BufferedImage(srcEntry.getWidth(), srcEntry.getHeight(),
-                                                     BufferedImage.TYPE_BYTE_INDEXED, cm);
-          byte[] dstBuf = ((DataBufferByte)dstImage.getRaster().getDataBuffer()).getData();
-
-          for (int ofs = 0; ofs < srcBuf.length; ofs++) {
-            int c = srcBuf[ofs];
-            if (PseudoBamDecoder.isTransparentColor(c, threshold)) {
-              dstBuf[ofs] = (byte)transIndex;
-            } else {
-              Byte colIdx = colorCache.get(Integer.valueOf(c));
-              if (colIdx != null) {
-                int ci = colIdx.intValue() & 0xff;
-                if (ci >= transIndex) ci++;
-                dstBuf[ofs] = colIdx.byteValue();//(byte)ci;
-              } else {
-                double weight = getUseAlpha() ? 1.0 : 0.0;
-                byte color = (byte)ColorConvert.getNearestColor(srcBuf[ofs], palette, weight, null);
-                dstBuf[ofs] = color;//(byte)ci;
-                colorCache.put(Integer.valueOf(c), Byte.valueOf(color));
-              }
+        // processing frames in parallel, using a separate palette matcher per thread
+        final IndexColorModel cm = new IndexColorModel(8, 256, palette, 0, getUseAlpha(), transIndex, DataBuffer.TYPE_BYTE);
+        final int numThreads = Math.max(1, Math.min(srcListFrames.size(), Runtime.getRuntime().availableProcessors()));
+        final PaletteMatcher[] matchers = new PaletteMatcher[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+          matchers[i] = createPaletteMatcher(palette, transIndex);
+        }
+        final int transColor = transIndex;
+        final PseudoBamFrameEntry[] dstFrames = new PseudoBamFrameEntry[srcListFrames.size()];
+        IntStream.range(0, numThreads).parallel().forEach(thread -> {
+          for (int i = thread; i < dstFrames.length; i += numThreads) {
+            PseudoBamFrameEntry srcEntry = srcListFrames.get(i);
+            BufferedImage dstImage = createPalettedFrame(srcEntry.getFrame(), matchers[thread], cm,
+                                                         threshold, transColor);
+            PseudoBamFrameEntry dstEntry = new PseudoBamFrameEntry(dstImage, srcEntry.getCenterX(),
+                                                                   srcEntry.getCenterY());
+            // adding frame-specific options
+            String[] frameOptions = srcEntry.getOptionNames();
+            for (int j = 0; j < frameOptions.length; j++) {
+              dstEntry.setOption(frameOptions[j], srcEntry.getOption(frameOptions[j]));
             }
+            dstFrames[i] = dstEntry;
           }
-          srcBuf = null;
-          srcImage.flush();
-          srcImage = null;
-          dstBuf = null;
-
-          PseudoBamFrameEntry dstEntry = new PseudoBamFrameEntry(dstImage, srcEntry.getCenterX(),
-                                                                 srcEntry.getCenterY());
-          // adding frame-specific options
-          options = srcEntry.getOptionNames();
-          for (int j = 0; j < options.length; j++) {
-            dstEntry.setOption(options[j], srcEntry.getOption(options[j]));
-          }
-          dstListFrames.add(dstEntry);
-        }
+        });
+        dstListFrames.addAll(Arrays.asList(dstFrames));
       } else {
         // BAM v2: create truecolored version of each frame
         for (int i = 0; i < srcListFrames.size(); i++) {
@@ -4223,6 +4202,40 @@ private void updateFinalBamDecoder(int bamVersion) throws Exception
     }
   }
 
+  /** Creates a palette matcher for converting truecolor frames to the specified palette. */
+  private PaletteMatcher createPaletteMatcher(int[] palette, int transIndex)
+  {
+    PaletteMatcher matcher = new PaletteMatcher(palette, getUseAlpha() ? 1.0 : 0.0, null);
+    for (int i = 0; i < palette.length; i++) {
+      if (i != transIndex) {
+        matcher.setColorIndex(palette[i], i);
+      }
+    }
+    return matcher;
+  }
+
+  /** Creates a paletted version of the specified frame. Safe to call from multiple threads with separate matchers. */
+  private static BufferedImage createPalettedFrame(BufferedImage image, PaletteMatcher matcher, IndexColorModel cm,
+                                                   int threshold, int transIndex)
+  {
+    BufferedImage srcImage = ColorConvert.toBufferedImage(image, true, true);
+    int[] srcBuf = ((DataBufferInt)srcImage.getRaster().getDataBuffer()).getData();
+    BufferedImage dstImage = new BufferedImage(srcImage.getWidth(), srcImage.getHeight(),
+                                               BufferedImage.TYPE_BYTE_INDEXED, cm);
+    byte[] dstBuf = ((DataBufferByte)dstImage.getRaster().getDataBuffer()).getData();
+
+    for (int ofs = 0; ofs < srcBuf.length; ofs++) {
+      int c = srcBuf[ofs];
+      if (PseudoBamDecoder.isTransparentColor(c, threshold)) {
+        dstBuf[ofs] = (byte)transIndex;
+      } else {
+        dstBuf[ofs] = (byte)matcher.getNearestColor(c);
+      }
+    }
+    srcImage.flush();
+    return dstImage;
+  }
+
   /** Creates a new single frame that is compatible with the specified BAM version. */
   private void updateFinalBamFrame(int bamVersion, int frameIdx)
   {
@@ -4249,44 +4262,10 @@ private void updateFinalBamFrame(int bamVersion, int frameIdx)
         if (transIndex < 0) {
           transIndex = 0;
         }
-        HashMap<Integer, Byte> colorCache = new HashMap<>(4096);
-        for (int i = 0; i < palette.length; i++) {
-          if (i != transIndex) {
-            colorCache.put(Integer.valueOf(palette[i]), Byte.valueOf((byte)i));
-          }
-        }
         IndexColorModel cm = new IndexColorModel(8, 256, palette, 0, getUseAlpha(), transIndex, DataBuffer.TYPE_BYTE);
 
         // converting frame
-        srcImage = ColorConvert.toBufferedImage(srcImage, true, true);
-        int[] srcBuf = ((DataBufferInt)srcImage.getRaster().getDataBuffer()).getData();
-        dstImage = new BufferedImage(srcImage.getWidth(), srcImage.getHeight(),
-                                     BufferedImage.TYPE_BYTE_INDEXED, cm);
-        byte[] dstBuf = ((DataBufferByte)dstImage.getRaster().getDataBuffer()).getData();
-
-        for (int ofs = 0; ofs < srcBuf.length; ofs++) {
-          int c = srcBuf[ofs];
-          if (PseudoBamDecoder.isTransparentColor(c, threshold)) {
-            dstBuf[ofs] = (byte)transIndex;
-          } else {
-            Byte colIdx = colorCache.get(Integer.valueOf(c));
-            if (colIdx != null) {
-              int ci = colIdx.intValue() & 0xff;
-              if (ci >= transIndex) ci++;
-              dstBuf[ofs] = colIdx.byteValue();
-            } else {
-              double weight = getUseAlpha() ? 1.0 : 0.0;
-              byte color = (byte)ColorConvert.getNearestColor(srcBuf[ofs], palette, weight, null);
-              dstBuf[ofs] = color;//(byte)ci;
-              colorCache.put(Integer.valueOf(c), Byte.valueOf(color));
-            }
-          }
-        }
-        srcBuf = null;
-        srcImage.flush();
-        srcImage = null;
-        dstBuf = null;
-
+        dstImage = createPalettedFrame(srcImage, createPaletteMatcher(palette, transIndex), cm, threshold, transIndex);
       } else if (bamVersion == VERSION_BAMV2) {
         // BAM v2: creating truecolored version of the source frame
         dstImage = ColorConvert.toBufferedImage(srcImage, true, true);
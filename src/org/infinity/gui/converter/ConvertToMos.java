@@ -56,9 +56,9 @@
 import org.infinity.resource.graphics.ColorConvert;
 import org.infinity.resource.graphics.Compressor;
 import org.infinity.resource.graphics.DxtEncoder;
+import org.infinity.resource.graphics.PaletteMatcher;
 import org.infinity.util.BinPack2D;
 import org.infinity.util.DynamicArray;
-import org.infinity.util.IntegerHashMap;
 import org.infinity.util.io.FileEx;
 import org.infinity.util.io.FileManager;
 import org.infinity.util.io.StreamUtils;
@@ -157,9 +157,8 @@ public static boolean convertV1(Component parent, BufferedImage img, String mosF
       byte[] tilePalette = new byte[1024];
       byte[] tileData = new byte[64*64];
       int curPalOfs = palOfs, curTableOfs = tableOfs, curDataOfs = dataOfs;
-      IntegerHashMap<Byte> colorCache = new IntegerHashMap<>(1536);   // caching RGBColor -> index
+      PaletteMatcher matcher = new PaletteMatcher(palette, 0.0, null);   // maps RGBColor -> palette index
       for (int tileIdx = 0; tileIdx < tileList.size(); tileIdx++) {
-        colorCache.clear();
         if (showProgress) {
           if (progress.isCanceled()) {
             dst = null;
@@ -176,6 +175,7 @@ public static boolean convertV1(Component parent, BufferedImage img, String mosF
 
         int[] pixels = tileList.get(tileIdx);
         if (ColorConvert.medianCut(pixels, 255, palette, true)) {
+          matcher.setPalette(palette);
           // filling palette
           // first palette entry denotes transparency
           tilePalette[0] = tilePalette[2] = tilePalette[3] = 0; tilePalette[1] = (byte)255;
@@ -184,21 +184,14 @@ public static boolean convertV1(Component parent, BufferedImage img, String mosF
             tilePalette[(i << 2) + 1] = (byte)((palette[i - 1] >>> 8) & 0xff);
             tilePalette[(i << 2) + 2] = (byte)((palette[i - 1] >>> 16) & 0xff);
             tilePalette[(i << 2) + 3] = 0;
-            colorCache.put(palette[i - 1], (byte)(i - 1));
+            matcher.setColorIndex(palette[i - 1], i - 1);
           }
           // filling pixel data
           for (int i = 0; i < pixels.length; i++) {
             if ((pixels[i] & 0xff000000) == 0) {
               tileData[i] = 0;
             } else {
-              Byte palIndex = colorCache.get(pixels[i]);
-              if (palIndex != null) {
-                tileData[i] = (byte)(palIndex + 1);
-              } else {
-                byte color = (byte)ColorConvert.getNearestColor(pixels[i], palette, 0.0, null);
-                tileData[i] = (byte)(color + 1);
-                colorCache.put(pixels[i], color);
-              }
+              tileData[i] = (byte)(matcher.getNearestColor(pixels[i]) + 1);
             }
           }
         } else {
@@ -482,7 +475,7 @@ private static boolean createPvrzPages(Path path, BufferedImage img, DxtEncoder.
       int[] textureData = ((DataBufferInt)texture.getRaster().getDataBuffer()).getData();
       try {
         int outSize = DxtEncoder.calcImageSize(texture.getWidth(), texture.getHeight(), dxtType);
-        DxtEncoder.encodeImage(textureData, texture.getWidth(), texture.getHeight(), output, dxtType);
+        DxtEncoder.encodeImage(textureData, texture.getWidth(), texture.getHeight(), output, dxtType, 0);
         byte[] header = ConvertToPvrz.createPVRHeader(texture.getWidth(), texture.getHeight(), dxtCode);
         byte[] pvrz = new byte[header.length + outSize];
         System.arraycopy(header, 0, pvrz, 0, header.length);
@@ -30,6 +30,7 @@
 import java.util.Comparator;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import javax.imageio.ImageIO;
@@ -57,9 +58,10 @@
 import org.infinity.resource.graphics.ColorConvert;
 import org.infinity.resource.graphics.Compressor;
 import org.infinity.resource.graphics.DxtEncoder;
+import org.infinity.resource.graphics.PaletteMatcher;
 import org.infinity.util.BinPack2D;
 import org.infinity.util.DynamicArray;
-import org.infinity.util.IntegerHashMap;
+import org.infinity.util.WorkPipeline;
 import org.infinity.util.io.FileEx;
 import org.infinity.util.io.FileManager;
 import org.infinity.util.io.StreamUtils;
@@ -124,7 +126,6 @@ public static boolean convertV1(Component parent, BufferedImage img, String tisF
     ProgressMonitor progress = null;
     int[] src = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
     byte[] dst = new byte[24 + tileCount*5120];   // header + tiles
-    int dstOfs = 0;   // current start offset for write operations
 
     // writing header data
     System.arraycopy("TIS V1  ".getBytes(), 0, dst, 0, 8);
@@ -132,17 +133,18 @@ public static boolean convertV1(Component parent, BufferedImage img, String tisF
     DynamicArray.putInt(dst, 12, 0x1400);
     DynamicArray.putInt(dst, 16, 0x18);
     DynamicArray.putInt(dst, 20, 0x40);
-    dstOfs += 24;
 
-    int[] srcBlock = new int[64*64];      // temp. storage for a single tile
-    int[] palette = new int[255];         // temp. storage for generated palette
-    byte[] tilePalette = new byte[1024];  // final palette for output
-    byte[] tileData = new byte[64*64];    // final tile data for output
-    int tw = img.getWidth() / 64;         // tiles per row
+    final int[] srcData = src;
+    final byte[] dstData = dst;
+    final int imgWidth = img.getWidth();
+    final int tw = imgWidth / 64;         // tiles per row
+    final AtomicInteger tilesDone = new AtomicInteger();
+    final AtomicInteger failedTile = new AtomicInteger(Integer.MAX_VALUE);
+    final ThreadLocal<TileEncoder> encoders = ThreadLocal.withInitial(TileEncoder::new);
 
     try {
-      String note = "Converting tile %d / %d";
-      int progressIndex = 0, progressMax = tileCount;
+      final String note = "Converting tile %d / %d";
+      final int progressMax = tileCount;
       if (showProgress) {
         progress = new ProgressMonitor(parent, "Converting TIS...", String.format(note, 0, tileCount),
                                        0, progressMax);
@@ -150,73 +152,40 @@ public static boolean convertV1(Component parent, BufferedImage img, String tisF
         progress.setMillisToPopup(0);
       }
 
-      IntegerHashMap<Byte> colorCache = new IntegerHashMap<>(2048);   // caching RGBColor -> index
-      for (int tileIdx = 0; tileIdx < tileCount; tileIdx++) {
-        if (showProgress) {
-          if (progress.isCanceled()) {
-            result.add(null);
-            result.add("Conversion has been cancelled.");
-            return false;
-          }
-          progressIndex++;
-          if ((progressIndex % 100) == 0) {
-            progress.setProgress(progressIndex);
-            progress.setNote(String.format(note, progressIndex, progressMax));
-          }
-        }
-
-        int tx = tileIdx % tw;
-        int ty = tileIdx / tw;
-
-        // resetting color cache
-        colorCache.clear();
-
-        // initializing source tile
-        int inOfs = ty*64*img.getWidth() + tx*64;
-        for (int i = 0, outOfs = 0; i < 64; i++, inOfs += img.getWidth(), outOfs += 64) {
-          System.arraycopy(src, inOfs, srcBlock, outOfs, 64);
-        }
-
-        // reducing colors
-        if (ColorConvert.medianCut(srcBlock, 255, palette, true)) {
-
-          // filling palette and color cache, index 0 denotes transparency
-          tilePalette[0] = tilePalette[2] = tilePalette[3] = 0; tilePalette[1] = (byte)255;
-          for (int i = 1; i < 256; i++) {
-            tilePalette[(i << 2) + 0] = (byte)(palette[i - 1] & 0xff);
-            tilePalette[(i << 2) + 1] = (byte)((palette[i - 1] >>> 8) & 0xff);
-            tilePalette[(i << 2) + 2] = (byte)((palette[i - 1] >>> 16) & 0xff);
-            tilePalette[(i << 2) + 3] = 0;
-            colorCache.put(palette[i - 1], (byte)(i - 1));
-          }
-
-          // processing pixel data
-          for (int i = 0; i < tileData.length; i++) {
-            if ((srcBlock[i] & 0xff000000) == 0) {
-              tileData[i] = 0;
-            } else {
-              Byte palIndex = colorCache.get(srcBlock[i]);
-              if (palIndex != null) {
-                tileData[i] = (byte)(palIndex + 1);
-              } else {
-                byte color = (byte)ColorConvert.getNearestColor(srcBlock[i], palette, 0.0, null);
-                tileData[i] = (byte)(color + 1);
-                colorCache.put(srcBlock[i], color);
+      // tiles are quantized independently and written to separate regions of the output buffer
+      final ProgressMonitor monitor = progress;
+      boolean cancelled = false;
+      try (WorkPipeline pipeline = new WorkPipeline("ConvertToTis")) {
+        for (int tileIdx = 0; tileIdx < tileCount && !cancelled; tileIdx++) {
+          final int idx = tileIdx;
+          if (!pipeline.submit(() -> {
+            if (failedTile.get() == Integer.MAX_VALUE) {
+              if (!encoders.get().encode(srcData, imgWidth, (idx % tw) * 64, (idx / tw) * 64,
+                                         dstData, 24 + idx*5120)) {
+                failedTile.accumulateAndGet(idx, Math::min);
               }
             }
+            tilesDone.incrementAndGet();
+          })) {
+            cancelled = true;
+          }
+          if (showProgress && (idx % 100) == 0) {
+            cancelled |= updateProgress(monitor, note, tilesDone.get(), progressMax);
           }
-        } else {
-          // error handling
-          result.add(null);
-          result.add(String.format("Error processing tile #%d. Conversion cancelled.", tileIdx));
-          return false;
         }
+        cancelled |= pipeline.join(() -> showProgress && updateProgress(monitor, note, tilesDone.get(), progressMax));
+      }
 
-        // writing final palette and pixel data to output
-        System.arraycopy(tilePalette, 0, dst, dstOfs, 1024);
-        dstOfs += 1024;
-        System.arraycopy(tileData, 0, dst, dstOfs, 4096);
-        dstOfs += 4096;
+      if (cancelled) {
+        result.add(null);
+        result.add("Conversion has been cancelled.");
+        return false;
+      }
+      if (failedTile.get() != Integer.MAX_VALUE) {
+        // error handling
+        result.add(null);
+        result.add(String.format("Error processing tile #%d. Conversion cancelled.", failedTile.get()));
+        return false;
       }
 
       // writing TIS file to disk
@@ -245,6 +214,17 @@ public static boolean convertV1(Component parent, BufferedImage img, String tisF
     return true;
   }
 
+  // Updates the progress monitor and returns whether the conversion has been cancelled
+  private static boolean updateProgress(ProgressMonitor progress, String note, int value, int max)
+  {
+    if (progress.isCanceled()) {
+      return true;
+    }
+    progress.setProgress(value);
+    progress.setNote(String.format(note, value, max));
+    return false;
+  }
+
   /**
    * Converts an image into a TIS V2 resource.
    * @param parent This parameter is needed for the progress monitor only.
@@ -529,7 +509,7 @@ public static boolean createPvrzPages(String tisFileName, BufferedImage srcImg,
       try {
         // compressing PVRZ
         int outSize = DxtEncoder.calcImageSize(texture.getWidth(), texture.getHeight(), dxtType);
-        DxtEncoder.encodeImage(textureData, texture.getWidth(), texture.getHeight(), output, dxtType);
+        DxtEncoder.encodeImage(textureData, texture.getWidth(), texture.getHeight(), output, dxtType, 0);
         byte[] header = ConvertToPvrz.createPVRHeader(texture.getWidth(), texture.getHeight(), dxtCode);
         byte[] pvrz = new byte[header.length + outSize];
         System.arraycopy(header, 0, pvrz, 0, header.length);
@@ -1132,4 +1112,52 @@ public TileEntry(int index, int page, int x, int y)
       this.y = y;
     }
   }
+
+  // Quantizes single tiles. Each worker thread uses its own instance.
+  private static final class TileEncoder
+  {
+    private final int[] srcBlock = new int[64*64];      // temp. storage for a single tile
+    private final int[] palette = new int[255];         // temp. storage for generated palette
+    private final PaletteMatcher matcher = new PaletteMatcher(palette, 0.0, null);   // maps RGBColor -> palette index
+
+    /**
+     * Converts the 64x64 tile at the specified position of the source image into palette and pixel data.
+     * Returns {@code false} if the tile could not be processed.
+     */
+    public boolean encode(int[] src, int srcWidth, int x, int y, byte[] dst, int dstOfs)
+    {
+      // initializing source tile
+      int inOfs = y*srcWidth + x;
+      for (int i = 0, outOfs = 0; i < 64; i++, inOfs += srcWidth, outOfs += 64) {
+        System.arraycopy(src, inOfs, srcBlock, outOfs, 64);
+      }
+
+      // reducing colors
+      if (!ColorConvert.medianCut(srcBlock, 255, palette, true)) {
+        return false;
+      }
+
+      // filling palette and predefined color indices, index 0 denotes transparency
+      matcher.setPalette(palette);
+      dst[dstOfs + 0] = dst[dstOfs + 2] = dst[dstOfs + 3] = 0; dst[dstOfs + 1] = (byte)255;
+      for (int i = 1; i < 256; i++) {
+        dst[dstOfs + (i << 2) + 0] = (byte)(palette[i - 1] & 0xff);
+        dst[dstOfs + (i << 2) + 1] = (byte)((palette[i - 1] >>> 8) & 0xff);
+        dst[dstOfs + (i << 2) + 2] = (byte)((palette[i - 1] >>> 16) & 0xff);
+        dst[dstOfs + (i << 2) + 3] = 0;
+        matcher.setColorIndex(palette[i - 1], i - 1);
+      }
+
+      // processing pixel data
+      final int dataOfs = dstOfs + 1024;
+      for (int i = 0; i < srcBlock.length; i++) {
+        if ((srcBlock[i] & 0xff000000) == 0) {
+          dst[dataOfs + i] = 0;
+        } else {
+          dst[dataOfs + i] = (byte)(matcher.getNearestColor(srcBlock[i]) + 1);
+        }
+      }
+      return true;
+    }
+  }
 }
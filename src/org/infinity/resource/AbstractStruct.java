@@ -12,12 +12,17 @@
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 import javax.swing.JComponent;
@@ -75,6 +80,11 @@ public abstract class AbstractStruct extends AbstractTableModel implements Struc
   /** Identifies the intention to removal of rows or columns. */
   public static final int WILL_BE_DELETE = -2;
 
+  /** Min. number of fields in a structure tree before attribute lookups make use of an index. */
+  private static final int FIELD_INDEX_THRESHOLD = 64;
+  /** Number of lookups performed by linear scan after a modification discarded the attribute index. */
+  private static final int FIELD_INDEX_REBUILD_DELAY = 16;
+
   private List<StructEntry> fields;
   private AbstractStruct superStruct;
   private Map<Class<? extends StructEntry>, SectionCount> countmap;
@@ -96,14 +106,25 @@ public abstract class AbstractStruct extends AbstractTableModel implements Struc
   /** Offset of the last byte in serialized format of this struct. */
   private int endoffset;
   private int extraoffset;
+  /**
+   * Lookup index for {@link #getAttribute} calls over the whole structure tree.
+   * Created on demand and discarded whenever this structure or any of its children changes.
+   */
+  private volatile FieldIndex fieldIndex;
+  /**
+   * Number of remaining lookups by linear scan before the discarded {@link #fieldIndex} is rebuilt.
+   * Avoids rebuilding the index on every iteration of loops which alternate lookups and modifications.
+   */
+  private int fieldIndexDelay;
   /**
    * If any {@link PropertyChangeListener}s have been registered,
-   * the {@code changeSupport} field describes them.
+   * the {@code changeSupport} field describes them. Created on demand, since most
+   * structures are never displayed.
    *
    * @see #addPropertyChangeListener
    * @see #removePropertyChangeListener
    */
-  private final PropertyChangeSupport changeSupport = new PropertyChangeSupport(this);
+  private PropertyChangeSupport changeSupport;
 
   private static void adjustEntryOffsets(AbstractStruct superStruct, AbstractStruct modifiedStruct,
                                          AddRemovable datatype, int amount)
@@ -154,7 +175,7 @@ else if (!so.getSection().equals(datatype.getClass())) {
   protected AbstractStruct(ResourceEntry entry) throws Exception
   {
     this.entry = entry;
-    fields = new ArrayList<>();
+    fields = new FieldList(10);
     name = entry.getResourceName();
     ByteBuffer bb = entry.getResourceBuffer();
     endoffset = read(bb, 0);
@@ -171,7 +192,7 @@ protected AbstractStruct(AbstractStruct superStruct, String name, int startoffse
     this.superStruct = superStruct;
     this.name = name;
     this.startoffset = startoffset;
-    fields = new ArrayList<>(listSize);
+    fields = new FieldList(listSize);
   }
 
   protected AbstractStruct(AbstractStruct superStruct, String name, ByteBuffer buffer, int startoffset)
@@ -227,7 +248,9 @@ public AbstractStruct clone() throws CloneNotSupportedException
   {
     final AbstractStruct newstruct = (AbstractStruct)super.clone();
     newstruct.superStruct = null;
-    newstruct.fields = new ArrayList<>(fields.size());
+    newstruct.fields = newstruct.new FieldList(fields.size());
+    newstruct.fieldIndex = null;
+    newstruct.fieldIndexDelay = 0;
     newstruct.viewer = null;
     for (final StructEntry e : fields) {
       newstruct.fields.add(e.clone());
@@ -247,6 +270,7 @@ public void copyNameAndOffset(StructEntry structEntry)
   {
     name = structEntry.getName();
     setOffset(structEntry.getOffset());
+    invalidateFieldIndex();
   }
 
   @Override
@@ -260,6 +284,7 @@ public void setName(String newName)
   {
     if (newName != null) {
       name = newName;
+      invalidateFieldIndex();
     } else {
       throw new NullPointerException();
     }
@@ -320,6 +345,7 @@ public void setOffset(int newoffset)
     int delta = getSize();
     startoffset = newoffset;
     endoffset = newoffset + delta;
+    invalidateFieldIndex();
   }
 
   @Override
@@ -745,6 +771,12 @@ public StructEntry getAttribute(String ename, boolean recursive)
   private static <T extends StructEntry> T getAttribute(AbstractStruct parent, int offset,
                                                         Class<T> type, boolean recursive)
   {
+    if (recursive) {
+      final FieldIndex index = parent.getFieldIndex();
+      if (index != null) {
+        return index.find(offset, type);
+      }
+    }
     for (final StructEntry field : parent.fields) {
       final int off = field.getOffset();
       T result = null;
@@ -769,6 +801,12 @@ private static <T extends StructEntry> T getAttribute(AbstractStruct parent, int
   private static StructEntry getAttribute(AbstractStruct parent, String name, boolean recursive)
   {
     if (name != null && !name.isEmpty()) {
+      if (recursive) {
+        final FieldIndex index = parent.getFieldIndex();
+        if (index != null) {
+          return index.names.get(name);
+        }
+      }
       for (StructEntry field : parent.fields) {
         StructEntry result = null;
         if (field.getName().equals(name)) {
@@ -789,6 +827,38 @@ private static StructEntry getAttribute(AbstractStruct parent, String name, bool
     return null;
   }
 
+  /**
+   * Discards the attribute lookup index of this structure and all of its parent structures.
+   * Called automatically whenever fields are added, removed, renamed or moved.
+   * Subsequent lookups use linear scans until the structure tree has not been modified
+   * for a number of lookups.
+   */
+  public void invalidateFieldIndex()
+  {
+    for (AbstractStruct struct = this; struct != null; struct = struct.superStruct) {
+      if (struct.fieldIndex != null || struct.fieldIndexDelay > 0) {
+        struct.fieldIndex = null;
+        struct.fieldIndexDelay = FIELD_INDEX_REBUILD_DELAY;
+      }
+    }
+  }
+
+  // Returns the attribute lookup index of this structure tree, or null if the tree is too small
+  // or has been modified recently
+  private FieldIndex getFieldIndex()
+  {
+    FieldIndex index = fieldIndex;
+    if (index == null) {
+      if (fieldIndexDelay > 0) {
+        fieldIndexDelay--;
+        return null;
+      }
+      index = FieldIndex.create(this);
+      fieldIndex = index;
+    }
+    return (index != FieldIndex.NONE) ? index : null;
+  }
+
   public int getEndOffset()
   {
     return endoffset;
@@ -905,6 +975,7 @@ public StructViewer getViewer()
 
   public void realignStructOffsets()
   {
+    invalidateFieldIndex();
     int offset = startoffset;
     for (final StructEntry e : fields) {
       e.setOffset(offset);
@@ -1260,6 +1331,7 @@ protected void setExtraOffset(int offset)
   protected void setStartOffset(int offset)
   {
     startoffset = offset;
+    invalidateFieldIndex();
   }
 
   protected void writeFlatFields(OutputStream os) throws IOException
@@ -1295,9 +1367,14 @@ public void fireTableRowsWillBeDeleted(int firstRow, int lastRow) {
    *
    * @param listener  The PropertyChangeListener to be added
    */
-  public void addPropertyChangeListener(PropertyChangeListener listener)
+  public synchronized void addPropertyChangeListener(PropertyChangeListener listener)
   {
-    changeSupport.addPropertyChangeListener(listener);
+    if (listener != null) {
+      if (changeSupport == null) {
+        changeSupport = new PropertyChangeSupport(this);
+      }
+      changeSupport.addPropertyChangeListener(listener);
+    }
   }
 
   /**
@@ -1311,14 +1388,229 @@ public void addPropertyChangeListener(PropertyChangeListener listener)
    *
    * @param listener  The PropertyChangeListener to be removed
    */
-  public void removePropertyChangeListener(PropertyChangeListener listener)
+  public synchronized void removePropertyChangeListener(PropertyChangeListener listener)
   {
-    changeSupport.removePropertyChangeListener(listener);
+    if (changeSupport != null) {
+      changeSupport.removePropertyChangeListener(listener);
+    }
   }
 
   @Override
   public void propertyChange(PropertyChangeEvent evt)
   {
-    changeSupport.firePropertyChange(evt);
+    final PropertyChangeSupport support;
+    synchronized (this) {
+      support = changeSupport;
+    }
+    if (support != null) {
+      support.firePropertyChange(evt);
+    }
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  /** Field list which discards the attribute lookup index of the structure whenever it is modified. */
+  private final class FieldList extends ArrayList<StructEntry>
+  {
+    private static final long serialVersionUID = 1L;
+
+    public FieldList(int initialCapacity)
+    {
+      super(initialCapacity);
+    }
+
+    @Override
+    public boolean add(StructEntry e)
+    {
+      invalidateFieldIndex();
+      return super.add(e);
+    }
+
+    @Override
+    public void add(int index, StructEntry element)
+    {
+      invalidateFieldIndex();
+      super.add(index, element);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends StructEntry> c)
+    {
+      invalidateFieldIndex();
+      return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends StructEntry> c)
+    {
+      invalidateFieldIndex();
+      return super.addAll(index, c);
+    }
+
+    @Override
+    public StructEntry set(int index, StructEntry element)
+    {
+      invalidateFieldIndex();
+      return super.set(index, element);
+    }
+
+    @Override
+    public StructEntry remove(int index)
+    {
+      invalidateFieldIndex();
+      return super.remove(index);
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+      invalidateFieldIndex();
+      return super.remove(o);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c)
+    {
+      invalidateFieldIndex();
+      return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c)
+    {
+      invalidateFieldIndex();
+      return super.retainAll(c);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super StructEntry> filter)
+    {
+      invalidateFieldIndex();
+      return super.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<StructEntry> operator)
+    {
+      invalidateFieldIndex();
+      super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super StructEntry> c)
+    {
+      invalidateFieldIndex();
+      super.sort(c);
+    }
+
+    @Override
+    public void clear()
+    {
+      invalidateFieldIndex();
+      super.clear();
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex)
+    {
+      invalidateFieldIndex();
+      super.removeRange(fromIndex, toIndex);
+    }
+  }
+
+  /**
+   * Lookup tables for fields of a whole structure tree by name and offset. Results are identical
+   * to a recursive scan, which returns the first match in post-order (children before parent).
+   */
+  private static final class FieldIndex
+  {
+    /** Placeholder for structure trees that are too small to be indexed. */
+    public static final FieldIndex NONE = new FieldIndex(Collections.emptyList());
+
+    /** Maps field names to the first matching field in post-order. */
+    public final HashMap<String, StructEntry> names;
+
+    /** Fields sorted by start offset. */
+    private final StructEntry[] entries;
+    /** Post-order position of the fields. */
+    private final int[] order;
+    /** Start offsets of the fields. */
+    private final int[] starts;
+    /** End offsets (exclusive) of the fields. */
+    private final int[] ends;
+    /** Max. end offset of all fields up to the respective position. */
+    private final int[] maxEnds;
+
+    public static FieldIndex create(AbstractStruct struct)
+    {
+      final List<StructEntry> list = new ArrayList<>();
+      collect(struct, list);
+      return (list.size() >= FIELD_INDEX_THRESHOLD) ? new FieldIndex(list) : NONE;
+    }
+
+    // Adds all fields of the structure tree in post-order
+    private static void collect(AbstractStruct struct, List<StructEntry> list)
+    {
+      for (final StructEntry field : struct.fields) {
+        if (field instanceof AbstractStruct) {
+          collect((AbstractStruct)field, list);
+        }
+        list.add(field);
+      }
+    }
+
+    private FieldIndex(List<StructEntry> list)
+    {
+      final int size = list.size();
+      names = new HashMap<>(size * 2);
+      final Integer[] sorted = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        final String name = list.get(i).getName();
+        if (name != null) {
+          names.putIfAbsent(name, list.get(i));
+        }
+        sorted[i] = Integer.valueOf(i);
+      }
+      Arrays.sort(sorted, (a, b) -> Integer.compare(list.get(a).getOffset(), list.get(b).getOffset()));
+
+      entries = new StructEntry[size];
+      order = new int[size];
+      starts = new int[size];
+      ends = new int[size];
+      maxEnds = new int[size];
+      int maxEnd = Integer.MIN_VALUE;
+      for (int i = 0; i < size; i++) {
+        final StructEntry e = list.get(sorted[i]);
+        entries[i] = e;
+        order[i] = sorted[i];
+        starts[i] = e.getOffset();
+        ends[i] = e.getOffset() + e.getSize();
+        maxEnd = Math.max(maxEnd, ends[i]);
+        maxEnds[i] = maxEnd;
+      }
+    }
+
+    /** Returns the first field in post-order of the given type which covers the specified offset. */
+    public <T extends StructEntry> T find(int offset, Class<T> type)
+    {
+      // find last field starting at or before offset
+      int lo = 0, hi = starts.length - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (starts[mid] <= offset) {
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+
+      int bestIdx = -1;
+      for (int i = hi; i >= 0 && maxEnds[i] > offset; i--) {
+        if (offset < ends[i] && (bestIdx < 0 || order[i] < order[bestIdx]) && type.isInstance(entries[i])) {
+          bestIdx = i;
+        }
+      }
+      return (bestIdx >= 0) ? type.cast(entries[bestIdx]) : null;
+    }
   }
 }
@@ -4,6 +4,7 @@
 
 package org.infinity.resource;
 
+import java.awt.GraphicsEnvironment;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
@@ -29,6 +30,7 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
@@ -657,6 +659,8 @@ public static boolean openGame(Path keyFile, String desc, Game forcedGame)
       instance = new Profile(keyFile, desc, forcedGame);
       FileWatcher.getInstance().addFileWatchListener(instance);
       return true;
+    } catch (CancellationException e) {
+      System.err.println(e.getMessage());
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -830,6 +834,25 @@ public static Path getGameRoot()
     return getProperty(Key.GET_GAME_ROOT_FOLDER);
   }
 
+  /**
+   * Returns a folder for persistent cache data associated with the current game.
+   * The folder is not guaranteed to exist.
+   * @return The game-specific cache folder as {@link Path} object. Returns {@code null} if no game
+   *         is open.
+   */
+  public static Path getCacheFolder()
+  {
+    Path root = getGameRoot();
+    if (root == null) {
+      return null;
+    }
+    String key = root.toAbsolutePath().normalize().toString();
+    if (Platform.IS_WINDOWS) {
+      key = key.toLowerCase(Locale.ENGLISH);
+    }
+    return Platform.getCacheFolder().resolve(String.format("%08x", key.hashCode()));
+  }
+
   /**
    * Returns the game's home folder. A Non-enhanced Edition game will always return the game's
    * root folder instead.
@@ -1784,7 +1807,7 @@ private void initGame() throws Exception
       }
     } else {
       // game == Game.Unknown
-      if (game == null) {
+      if (game == null && !GraphicsEnvironment.isHeadless()) {
         // present list of available game types to choose from
         Game oldGame = getProperty(Key.GET_GAME_TYPE_PREVIOUS);
         if (oldGame == null) {
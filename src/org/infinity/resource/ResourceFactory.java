@@ -25,6 +25,9 @@
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Pattern;
 
 import javax.swing.JComponent;
@@ -89,6 +92,7 @@
 import org.infinity.util.DynamicArray;
 import org.infinity.util.IdsMapCache;
 import org.infinity.util.Misc;
+import org.infinity.util.NegativeCache;
 import org.infinity.util.StaticSimpleXorDecryptor;
 import org.infinity.util.io.FileEx;
 import org.infinity.util.io.FileManager;
@@ -107,6 +111,8 @@ public final class ResourceFactory implements FileWatchListener
    * the BIF archives or override folders.
    */
   private static final String SPECIAL_CATEGORY = "Special";
+  /** Max. number of resource names remembered as missing. */
+  private static final int MAX_MISSING_ENTRIES = 100000;
   private static ResourceFactory instance;
 
   private JFileChooser fc;
@@ -114,6 +120,11 @@ public final class ResourceFactory implements FileWatchListener
   private ResourceTreeModel treeModel;
   private Path pendingSelection;
 
+  /** Names of resources which are neither in the resource tree nor in the override folders. */
+  private final NegativeCache<String> missingEntries = new NegativeCache<>(MAX_MISSING_ENTRIES);
+  /** Names of resources which are neither in the resource tree nor in the override and extra folders. */
+  private final NegativeCache<String> missingExtraEntries = new NegativeCache<>(MAX_MISSING_ENTRIES);
+
   public static Keyfile getKeyfile()
   {
     if (getInstance() != null) {
@@ -270,7 +281,7 @@ public static Resource getResource(ResourceEntry entry, String forcedExtension)
         JOptionPane.showMessageDialog(NearInfinity.getInstance(),
                                       "Error reading " + entry + '\n' + e.getMessage(),
                                       "Error", JOptionPane.ERROR_MESSAGE);
-      } else {
+      } else if (NearInfinity.getInstance() != null) {
         final String msg = String.format("Error reading %s @ %s - %s",
                                          entry, entry.getActualPath(), e);
         NearInfinity.getInstance().getStatusBar().setMessage(msg);
@@ -496,12 +507,21 @@ public static ResourceEntry getResourceEntry(String resourceName, boolean search
       ResourceEntry entry = getInstance().treeModel.getResourceEntry(resourceName);
 
       // checking default override folder list
-      if (entry == null) {
-        List<Path> extraFolders = Profile.getOverrideFolders(searchExtraDirs);
-        if (extraFolders != null) {
-          Path file = FileManager.query(extraFolders, resourceName);
-          if (file != null && FileEx.create(file).isFile()) {
-            entry = new FileResourceEntry(file);
+      if (entry == null && resourceName != null) {
+        final NegativeCache<String> missingEntries = searchExtraDirs ? getInstance().missingExtraEntries
+                                                                     : getInstance().missingEntries;
+        final String key = resourceName.toUpperCase(Locale.ENGLISH);
+        if (!missingEntries.contains(key)) {
+          final int generation = missingEntries.getGeneration();
+          List<Path> extraFolders = Profile.getOverrideFolders(searchExtraDirs);
+          if (extraFolders != null) {
+            Path file = FileManager.query(extraFolders, resourceName);
+            if (file != null && FileEx.create(file).isFile()) {
+              entry = new FileResourceEntry(file);
+            }
+          }
+          if (entry == null) {
+            missingEntries.add(key, generation);
           }
         }
       }
@@ -894,7 +914,7 @@ static String fetchGameLanguage(Path iniFile)
     final String langDefault = "en_US";   // using default language, if no language entry found
 
     if (Profile.isEnhancedEdition() && iniFile != null && FileEx.create(iniFile).isFile()) {
-      String lang = BrowserMenuBar.getInstance().getSelectedGameLanguage();
+      String lang = (BrowserMenuBar.getInstance() != null) ? BrowserMenuBar.getInstance().getSelectedGameLanguage() : null;
 
       if (lang == null || lang.isEmpty()) {
         return autodetectGameLanguage(iniFile);
@@ -959,6 +979,10 @@ private ResourceFactory(Path keyFile)
 
       loadResourcesInternal();
       FileWatcher.getInstance().addFileWatchListener(this);
+    } catch (CancellationException e) {
+      keyfile.closeBIFFFiles();
+      treeModel = null;
+      throw e;
     } catch (Exception e) {
       JOptionPane.showMessageDialog(null, "No Infinity Engine game found", "Error",
                                     JOptionPane.ERROR_MESSAGE);
@@ -1069,6 +1093,7 @@ private void exportResourceInternal(ResourceEntry entry, ByteBuffer buffer, Stri
 
   private void unregisterResourceInternal(Path resource)
   {
+    invalidateMissingEntries();
     if (!BrowserMenuBar.getInstance().showUnknownResourceTypes() &&
         !Profile.isResourceTypeSupported(FileManager.getFileExtension(resource))) {
       return;
@@ -1167,6 +1192,7 @@ private void unregisterResourceInternal(Path resource)
 
   private void registerResourceInternal(Path resource, boolean autoselect)
   {
+    invalidateMissingEntries();
     final BrowserMenuBar options = BrowserMenuBar.getInstance();
     if (!options.showUnknownResourceTypes() &&
         !Profile.isResourceTypeSupported(FileManager.getFileExtension(resource))) {
@@ -1270,6 +1296,13 @@ private void registerResourceInternal(Path resource, boolean autoselect)
     }
   }
 
+  /** Discards all cached results of failed resource lookups. */
+  private void invalidateMissingEntries()
+  {
+    missingEntries.invalidate();
+    missingExtraEntries.invalidate();
+  }
+
   private boolean isPendingSelection(Path path, boolean autoRemove)
   {
     boolean retVal = (pendingSelection == path);
@@ -1295,10 +1328,29 @@ private void setPendingSelection(Path path)
   private void loadResourcesInternal() throws Exception
   {
     treeModel = new ResourceTreeModel();
+    invalidateMissingEntries();
+
+    // Scanning override folders in the background while resources from key and extra folders are added
+    final List<Path> overridePaths = Profile.getOverrideFolders(false);
+    final FutureTask<List<Path>> overrideScan = new FutureTask<>(() -> scanOverrideFolders(overridePaths));
+    final Thread scanThread = new Thread(overrideScan, "Override scan");
+    scanThread.setDaemon(true);
+    scanThread.start();
 
+    try {
+      loadResourceTree(overrideScan);
+    } finally {
+      // stopping override scan if loading has been canceled
+      overrideScan.cancel(true);
+    }
+  }
+
+  private void loadResourceTree(FutureTask<List<Path>> overrideScan) throws Exception
+  {
     // Get resources from keyfile
     NearInfinity.advanceProgress("Loading BIFF resources...");
     keyfile.populateResourceTree(treeModel);
+    checkCanceled();
 
     // Add resources from extra folders
     NearInfinity.advanceProgress("Loading extra resources...");
@@ -1313,29 +1365,65 @@ private void loadResourcesInternal() throws Exception
     final boolean overrideInOverride = (BrowserMenuBar.getInstance() != null &&
                                         BrowserMenuBar.getInstance().getOverrideMode() == OverrideMode.InOverride);
     String overrideFolder = Profile.getOverrideFolderName();
-    List<Path> overridePaths = Profile.getOverrideFolders(false);
+    checkCanceled();
+    final List<Path> overrideFiles;
+    try {
+      overrideFiles = overrideScan.get();
+    } catch (ExecutionException e) {
+      throw (e.getCause() instanceof Exception) ? (Exception)e.getCause() : e;
+    }
+    checkCanceled();
+    for (final Path path: overrideFiles) {
+      // files are listed in override folder order: an entry of the same name from a
+      // preceding override folder has been added already
+      ResourceEntry entry = treeModel.getResourceEntry(path.getFileName().toString());
+      if (entry == null) {
+        entry = new FileResourceEntry(path);
+      }
+      if (entry instanceof FileResourceEntry) {
+        treeModel.addResourceEntry(entry, entry.getTreeFolderName(), true);
+      } else if (entry instanceof BIFFResourceEntry) {
+        ((BIFFResourceEntry)entry).setOverride(true);
+        if (overrideInOverride) {
+          treeModel.removeResourceEntry(entry, entry.getExtension());
+          treeModel.addResourceEntry(new FileResourceEntry(path, true), overrideFolder, true);
+        }
+      }
+    }
+    loadSpecialResources();
+    treeModel.sort();
+  }
+
+  /**
+   * Throws a {@link CancellationException} if game loading has been canceled by the user
+   * or the current thread has been interrupted.
+   */
+  private static void checkCanceled()
+  {
+    if (Thread.currentThread().isInterrupted() || NearInfinity.isProgressCanceled()) {
+      throw new CancellationException("Loading game resources canceled");
+    }
+  }
+
+  /** Returns all regular files of the specified override folders, in order of the folder list. */
+  private static List<Path> scanOverrideFolders(List<Path> overridePaths) throws IOException
+  {
+    final List<Path> retVal = new ArrayList<>();
     for (final Path overridePath: overridePaths) {
+      if (Thread.currentThread().isInterrupted()) {
+        break;
+      }
       if (FileEx.create(overridePath).isDirectory()) {
         try (DirectoryStream<Path> dstream = Files.newDirectoryStream(overridePath)) {
           dstream.forEach((path) -> {
             if (FileEx.create(path).isFile()) {
-              ResourceEntry entry = getResourceEntry(path.getFileName().toString());
-              if (entry instanceof FileResourceEntry) {
-                treeModel.addResourceEntry(entry, entry.getTreeFolderName(), true);
-              } else if (entry instanceof BIFFResourceEntry) {
-                ((BIFFResourceEntry)entry).setOverride(true);
-                if (overrideInOverride) {
-                  treeModel.removeResourceEntry(entry, entry.getExtension());
-                  treeModel.addResourceEntry(new FileResourceEntry(path, true), overrideFolder, true);
-                }
-              }
+              retVal.add(path);
             }
           });
         }
       }
     }
-    loadSpecialResources();
-    treeModel.sort();
+    return retVal;
   }
 
   /**
@@ -1424,7 +1512,7 @@ private List<ResourceEntry> getResourcesInternal(String type, List<Path> extraDi
     }
 
     // include override folders
-    if (BrowserMenuBar.getInstance() != null && !BrowserMenuBar.getInstance().ignoreOverrides()) {
+    if (BrowserMenuBar.getInstance() == null || !BrowserMenuBar.getInstance().ignoreOverrides()) {
       ResourceTreeFolder overrideNode = treeModel.getFolder(Profile.getOverrideFolderName());
       if (overrideNode != null) {
         list.addAll(overrideNode.getResourceEntries(type));
@@ -1455,7 +1543,7 @@ private List<ResourceEntry> getResourcesInternal(Pattern pattern, List<Path> ext
     });
 
     // include override folders
-    if (BrowserMenuBar.getInstance() != null && !BrowserMenuBar.getInstance().ignoreOverrides()) {
+    if (BrowserMenuBar.getInstance() == null || !BrowserMenuBar.getInstance().ignoreOverrides()) {
       fillResources(retList, Profile.getOverrideFolderName(), pattern);
     }
 
@@ -1541,6 +1629,7 @@ private void saveCopyOfResourceInternal(ResourceEntry entry)
 
     try {
       setPendingSelection(outFile);
+      invalidateMissingEntries();
       ByteBuffer bb = entry.getResourceBuffer();
       try (OutputStream os = StreamUtils.getOutputStream(outFile, true)) {
         WritableByteChannel wbc = Channels.newChannel(os);
@@ -1628,6 +1717,7 @@ private boolean saveResourceInternal(Resource resource, Component parent)
         return false;
       }
     }
+    invalidateMissingEntries();
     try (OutputStream os = StreamUtils.getOutputStream(outPath, true)) {
       ((Writeable)resource).write(os);
     } catch (IOException e) {
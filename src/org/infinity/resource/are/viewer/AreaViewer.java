@@ -2073,6 +2073,7 @@ public void run()
               setZoomFactor(zoom, Settings.ZoomFactor);
             }
           } else {
+            rcCanvas.drawPendingTiles();
             VolatileImage srcImage = (VolatileImage)rcCanvas.getImage();
             dstImage = ColorConvert.createCompatibleImage(srcImage.getWidth(), srcImage.getHeight(),
                                                           srcImage.getTransparency());
@@ -2437,7 +2438,11 @@ public void mouseWheelMoved(MouseWheelEvent event)
     @Override
     public void stateChanged(ChangeEvent event)
     {
-      if (event.getSource() == pDayTime) {
+      if (spCanvas != null && event.getSource() == spCanvas.getViewport()) {
+        if (rcCanvas != null) {
+          rcCanvas.prefetchVisibleTiles();
+        }
+      } else if (event.getSource() == pDayTime) {
         if (workerLoadMap == null) {
           // loading map in a separate thread
           if (workerLoadMap == null) {
@@ -9,12 +9,19 @@
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.awt.image.VolatileImage;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import org.infinity.datatype.IsNumeric;
 import org.infinity.datatype.IsTextual;
@@ -30,6 +37,7 @@
 import org.infinity.resource.wed.Overlay;
 import org.infinity.resource.wed.Tilemap;
 import org.infinity.resource.wed.WedResource;
+import org.infinity.util.SizeBoundedCache;
 
 /**
  * Specialized renderer for drawing tileset-based graphics data.
@@ -65,14 +73,31 @@ public enum RenderMode {
       { {0x400, 0x400, 0x400}, {0x400, 0x366, 0x333}, {0x1cd, 0x1cd, 0x366} };
   public static final int LightingAdjustmentShift = 10;   // use in place of division
 
+  // Lookup tables for applying LightingAdjustment, as [lighting][channel][value]. Results are shifted to the
+  // bit position of the respective color channel.
+  private static final int[][][] LightingTables = createLightingTables();
+
+  // Shared cache for decoded tile graphics of all tilesets (as int arrays of 64*64 pixels)
+  private static final SizeBoundedCache<Long, int[]> tileCache =
+      new SizeBoundedCache<>(getDefaultTileCacheSize(), data -> data.length * 4L);
+  // Decodes tiles in the background
+  private static final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "TilesetPrefetch");
+    thread.setDaemon(true);
+    return thread;
+  });
+  // Number of additional tiles around the visible map area to prefetch
+  private static final int PrefetchMargin = 2;
+
   // keeps track of registered listener objects
   private final List<TilesetChangeListener> listChangeListener = new ArrayList<>();
   // graphics data for all tiles of each overlay
   private final List<Tileset> listTilesets = new ArrayList<>(MaxOverlays);
   // array of tile indices used for closed door states for each door structure
   private final List<DoorInfo> listDoorTileIndices = new ArrayList<>();
+  // indices of all tiles that have to be redrawn before they become visible
+  private final BitSet pendingTiles = new BitSet();
 
-  private final BufferedImage workingTile = ColorConvert.createCompatibleImage(64, 64, true); // internally used for drawing tile graphics
   private WedResource wed;                // current wed resource
   private int overlayTransparency;        // overlay transparency strength from 0 (opaque) to 255 (transparent)
   private RenderMode renderingMode = RenderMode.Auto; // the rendering mode to use for processing overlayed tiles
@@ -87,6 +112,7 @@ public enum RenderMode {
   private int miniMapType = ViewerConstants.MAP_NONE;     // the currently overlayed mini map (one of the MAP_XXX constants)
   private int miniMapAlpha = 128;                         // alpha transparency for overlayed mini maps
   private GraphicsResource miniMap = null;                     // the current mini map resource
+  private final AtomicBoolean prefetchPending = new AtomicBoolean();    // whether a prefetch task is queued
 
   /**
    * Returns the number of supported lighting modes.
@@ -499,6 +525,39 @@ public void reload(boolean force)
     updateDisplay(b || force);
   }
 
+  /**
+   * Decodes the tile graphics of the visible map area and its surroundings in the background,
+   * so that they are available when the map has to be redrawn.
+   */
+  public void prefetchVisibleTiles()
+  {
+    final Rectangle area = isInitialized() ? getVisibleMapArea() : null;
+    if (area != null && prefetchPending.compareAndSet(false, true)) {
+      final List<Tileset> tilesets = new ArrayList<>(listTilesets);
+      prefetchExecutor.execute(() -> {
+        prefetchPending.set(false);
+        int x1 = Math.max(0, Math.floorDiv(area.x, 64) - PrefetchMargin);
+        int y1 = Math.max(0, Math.floorDiv(area.y, 64) - PrefetchMargin);
+        int x2 = Math.floorDiv(area.x + area.width, 64) + PrefetchMargin;
+        int y2 = Math.floorDiv(area.y + area.height, 64) + PrefetchMargin;
+        Tileset ts = tilesets.get(0);
+        for (int y = y1; y <= y2 && y < ts.tilesY; y++) {
+          for (int x = x1; x <= x2 && x < ts.tilesX; x++) {
+            Tile tile = ts.listTiles.get(y*ts.tilesX + x);
+            ts.getTileData(tile.getPrimaryIndex());
+            ts.getTileData(tile.getSecondaryIndex());
+          }
+        }
+        for (int i = 1; i < tilesets.size(); i++) {
+          ts = tilesets.get(i);
+          if (!ts.listTiles.isEmpty()) {
+            ts.getTileData(ts.listTiles.get(0).getPrimaryIndex());
+          }
+        }
+      });
+    }
+  }
+
   @Override
   public void paint(Graphics g)
   {
@@ -520,9 +579,21 @@ public void paint(Graphics g)
         }
       } while (image.contentsLost());
     }
+    // tiles outside of the visible area are drawn when they are painted for the first time
+    Rectangle clip = g.getClipBounds();
+    drawPendingTiles((clip != null) ? toMapArea(clip) : null);
     super.paint(g);
   }
 
+  /**
+   * Draws all tiles that have not been updated yet because they were outside of the visible area.
+   * Call this method before accessing the whole map image directly.
+   */
+  public void drawPendingTiles()
+  {
+    drawPendingTiles(null);
+  }
+
   protected void updateSize()
   {
     if (isInitialized()) {
@@ -562,6 +633,28 @@ protected void paintCanvas(Graphics g)
     }
   }
 
+  // Returns the default tile cache size depending on the available memory
+  private static long getDefaultTileCacheSize()
+  {
+    final long minSize = 16L << 20, maxSize = 256L << 20;
+    return Math.max(minSize, Math.min(maxSize, Runtime.getRuntime().maxMemory() / 16L));
+  }
+
+  private static int[][][] createLightingTables()
+  {
+    int[][][] tables = new int[LightingAdjustment.length][3][256];
+    for (int i = 0; i < tables.length; i++) {
+      for (int c = 0; c < 3; c++) {
+        int shift = 16 - c*8;
+        for (int v = 0; v < 256; v++) {
+          int value = Math.min(255, (v * LightingAdjustment[i][c]) >>> LightingAdjustmentShift);
+          tables[i][c][v] = value << shift;
+        }
+      }
+    }
+    return tables;
+  }
+
   private static int[] createDefaultTile()
   {
     int[] buffer = new int[64*64];
@@ -625,8 +718,12 @@ private void release(boolean forceUpdate)
   {
     if (isInitialized()) {
       wed = null;
+      for (final Tileset ts : listTilesets) {
+        ts.close();
+      }
       listTilesets.clear();
       listDoorTileIndices.clear();
+      pendingTiles.clear();
 
       Image img = getImage();
       if (img != null) {
@@ -737,17 +834,19 @@ private void updateDisplay(boolean forced)
 
       if (hasChangedMap || hasChangedAppearance || forced) {
         // redraw each tile
-        drawAllTiles();
+        invalidateAllTiles();
       } else {
         if (hasChangedOverlays) {
           // redraw overlayed tiles only
-          drawOverlayTiles();
+          invalidateOverlayTiles();
         }
         if (hasChangedDoorState) {
           // redraw door tiles only
-          drawDoorTiles();
+          invalidateDoorTiles();
         }
       }
+      // remaining tiles are drawn when they become visible
+      drawPendingTiles(getVisibleMapArea());
       repaint();
       notifyChangeListeners();
       hasChangedMap = false;
@@ -766,35 +865,128 @@ private boolean hasOverlay(int ovlIdx)
     return false;
   }
 
-  // draws all tiles of the map
-  private void drawAllTiles()
+  // marks all tiles of the map for redraw
+  private void invalidateAllTiles()
   {
-    Tileset ts = listTilesets.get(0);
-    for (int i = 0, size = ts.listTiles.size(); i < size; i++) {
-      Tile tile = ts.listTiles.get(i);
-      drawTile(tile, isDoorTile(tile));
-    }
+    pendingTiles.set(0, listTilesets.get(0).listTiles.size());
   }
 
-  // draws overlayed tiles only
-  private void drawOverlayTiles()
+  // marks overlayed tiles for redraw
+  private void invalidateOverlayTiles()
   {
     Tileset ts = listTilesets.get(0);
     for (int i = 0, size = ts.listOverlayTiles.size(); i < size; i++) {
       Tile tile = ts.listOverlayTiles.get(i);
-      drawTile(tile, isDoorTile(tile));
+      pendingTiles.set((tile.getY() / 64) * ts.tilesX + (tile.getX() / 64));
     }
   }
 
-  // draws door tiles only
-  private void drawDoorTiles()
+  // marks door tiles for redraw
+  private void invalidateDoorTiles()
   {
+    int numTiles = listTilesets.get(0).listTiles.size();
     for (int i = 0, size = listDoorTileIndices.size(); i < size; i++) {
       DoorInfo di = listDoorTileIndices.get(i);
       for (int j = 0, iCount = di.getIndicesCount(); j < iCount; j++) {
-        Tile tile = listTilesets.get(0).listTiles.get(di.getIndex(j));
-        drawTile(tile, isDoorTile(tile));
+        int index = di.getIndex(j);
+        if (index >= 0 && index < numTiles) {
+          pendingTiles.set(index);
+        }
+      }
+    }
+  }
+
+  // Returns the visible map area in unscaled map coordinates, or null if the renderer is not visible
+  private Rectangle getVisibleMapArea()
+  {
+    Rectangle rect = getVisibleRect();
+    return rect.isEmpty() ? null : toMapArea(rect);
+  }
+
+  // Converts the specified area of the component into unscaled map coordinates
+  private Rectangle toMapArea(Rectangle rect)
+  {
+    Rectangle canvas = getCanvasSize();
+    // one additional pixel on each side to account for interpolated scaling
+    int x1 = (int)Math.floor((rect.x - canvas.x) / zoomFactor) - 1;
+    int y1 = (int)Math.floor((rect.y - canvas.y) / zoomFactor) - 1;
+    int x2 = (int)Math.ceil((rect.x + rect.width - canvas.x) / zoomFactor) + 1;
+    int y2 = (int)Math.ceil((rect.y + rect.height - canvas.y) / zoomFactor) + 1;
+    return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+  }
+
+  // Draws all pending tiles within the specified area (in unscaled map coordinates) to the map image.
+  // Draws all pending tiles of the map if area is null.
+  private void drawPendingTiles(Rectangle area)
+  {
+    final Image image = getImage();
+    if (!isInitialized() || image == null || pendingTiles.isEmpty()) {
+      return;
+    }
+
+    final Tileset ts = listTilesets.get(0);
+    int left = 0, top = 0, right = ts.tilesX - 1, bottom = ts.tilesY - 1;
+    if (area != null) {
+      left = Math.max(left, Math.floorDiv(area.x, 64));
+      top = Math.max(top, Math.floorDiv(area.y, 64));
+      right = Math.min(right, Math.floorDiv(area.x + area.width - 1, 64));
+      bottom = Math.min(bottom, Math.floorDiv(area.y + area.height - 1, 64));
+    }
+    if (left > right || top > bottom) {
+      return;
+    }
+
+    // determining tile rows which contain pending tiles
+    final int x1 = left, x2 = right;
+    final int[] rows = IntStream.rangeClosed(top, bottom).filter(y -> {
+      int idx = pendingTiles.nextSetBit(y*ts.tilesX + x1);
+      return idx >= 0 && idx <= y*ts.tilesX + x2;
+    }).toArray();
+    if (rows.length == 0) {
+      return;
+    }
+
+    // composing tile rows in parallel, each thread uses its own strip buffer
+    final int numStrips = Math.min(rows.length, Runtime.getRuntime().availableProcessors());
+    final Object imageLock = new Object();
+    IntStream.range(0, numStrips).parallel().forEach(strip -> {
+      final BufferedImage stripImage = ColorConvert.createCompatibleImage((x2 - x1 + 1) * 64, 64, true);
+      final int[] stripData = ((DataBufferInt)stripImage.getRaster().getDataBuffer()).getData();
+      final int stripWidth = stripImage.getWidth();
+      final int[] tileData = new int[64*64];
+      for (int r = strip; r < rows.length; r += numStrips) {
+        int rowOfs = rows[r] * ts.tilesX;
+        int runStart = -1;
+        for (int x = x1; x <= x2 + 1; x++) {
+          if (x <= x2 && pendingTiles.get(rowOfs + x)) {
+            Tile tile = ts.listTiles.get(rowOfs + x);
+            drawTile(tile, isDoorTile(tile), tileData);
+            for (int y = 0, dstOfs = (x - x1) * 64; y < 64; y++, dstOfs += stripWidth) {
+              System.arraycopy(tileData, y*64, stripData, dstOfs, 64);
+            }
+            if (runStart < 0) {
+              runStart = x;
+            }
+          } else if (runStart >= 0) {
+            // drawing contiguous run of updated tiles on canvas
+            int sx = (runStart - x1) * 64, dx = runStart * 64, dy = rows[r] * 64, w = (x - runStart) * 64;
+            synchronized (imageLock) {
+              Graphics2D g = (Graphics2D)image.getGraphics();
+              try {
+                g.drawImage(stripImage, dx, dy, dx + w, dy + 64, sx, 0, sx + w, 64, null);
+              } finally {
+                g.dispose();
+              }
+            }
+            runStart = -1;
+          }
+        }
       }
+      stripImage.flush();
+    });
+
+    for (final int y : rows) {
+      pendingTiles.clear(y*ts.tilesX + x1, y*ts.tilesX + x2 + 1);
     }
   }
 
@@ -802,18 +994,12 @@ private void drawDoorTiles()
   private void drawTileSimple(int[] sourceTile, int[] renderTarget)
   {
     if (sourceTile != null) {
-      int pixel, fr, fg, fb;
+      final int[] lr = LightingTables[lighting][0], lg = LightingTables[lighting][1], lb = LightingTables[lighting][2];
+      int pixel;
       for (int ofs = 0; ofs < 4096; ofs++) {
         pixel = sourceTile[ofs];
-        fr = (pixel >>> 16) & 0xff;
-        fg = (pixel >>> 8) & 0xff;
-        fb = pixel & 0xff;
-
         // applying lighting conditions
-        fr = (fr * LightingAdjustment[lighting][0]) >>> LightingAdjustmentShift;
-        fg = (fg * LightingAdjustment[lighting][1]) >>> LightingAdjustmentShift;
-        fb = (fb * LightingAdjustment[lighting][2]) >>> LightingAdjustmentShift;
-        renderTarget[ofs] = 0xff000000 | (fr << 16) | (fg << 8) | fb;
+        renderTarget[ofs] = 0xff000000 | lr[(pixel >>> 16) & 0xff] | lg[(pixel >>> 8) & 0xff] | lb[pixel & 0xff];
       }
     } else {
       // no tile = transparent pixel data (work-around for faulty tiles in BG1's WEDs)
@@ -827,7 +1013,8 @@ private void drawTileMasked(int[] primaryTile, int[] secondaryTile, int[] overla
   {
     if (renderTarget != null) {
       int[] src = (isDoorTile && isDoorClosed) ? secondaryTile : primaryTile;
-      int fr, fg, fb, pixel;
+      final int[] lr = LightingTables[lighting][0], lg = LightingTables[lighting][1], lb = LightingTables[lighting][2];
+      int pixel;
       for (int ofs = 0; ofs < 4096; ofs++) {
         // composing pixel data
         if (src != null && (src[ofs] & 0xff000000) != 0)
@@ -836,15 +1023,9 @@ else if (overlayTile != null)
           pixel = overlayTile[ofs];
         else
           pixel = 0;
-        fr = (pixel >>> 16) & 0xff;
-        fg = (pixel >>> 8) & 0xff;
-        fb = pixel & 0xff;
 
         // applying lighting conditions
-        fr = (fr * LightingAdjustment[lighting][0]) >>> LightingAdjustmentShift;
-        fg = (fg * LightingAdjustment[lighting][1]) >>> LightingAdjustmentShift;
-        fb = (fb * LightingAdjustment[lighting][2]) >>> LightingAdjustmentShift;
-        renderTarget[ofs] = 0xff000000 | (fr << 16) | (fg << 8) | fb;
+        renderTarget[ofs] = 0xff000000 | lr[(pixel >>> 16) & 0xff] | lg[(pixel >>> 8) & 0xff] | lb[pixel & 0xff];
       }
     }
   }
@@ -857,6 +1038,7 @@ private void drawTileBlended(int[] primaryTile, int[] secondaryTile, int[] overl
       boolean pa = false, sa = false;
       int pr = 0, pg = 0, pb = 0, sr = 0, sg = 0, sb = 0, or = 0, og = 0, ob = 0;
       int alphaSrc = overlayTransparency, alphaDst = 255 - overlayTransparency;
+      final int[] lr = LightingTables[lighting][0], lg = LightingTables[lighting][1], lb = LightingTables[lighting][2];
       for (int ofs = 0; ofs < 4096; ofs++) {
         // getting source pixels
         if (primaryTile != null) {
@@ -915,20 +1097,16 @@ private void drawTileBlended(int[] primaryTile, int[] secondaryTile, int[] overl
         }
 
         // applying lighting conditions
-        fr = (fr * LightingAdjustment[lighting][0]) >>> LightingAdjustmentShift;
-        fg = (fg * LightingAdjustment[lighting][1]) >>> LightingAdjustmentShift;
-        fb = (fb * LightingAdjustment[lighting][2]) >>> LightingAdjustmentShift;
-        renderTarget[ofs] = 0xff000000 | (fr << 16) | (fg << 8) | fb;
+        renderTarget[ofs] = 0xff000000 | lr[fr] | lg[fg] | lb[fb];
       }
     }
   }
 
-  // draws the specified tile into the target graphics buffer
-  private synchronized void drawTile(Tile tile, boolean isDoorTile)
+  // composes the graphics of the specified tile into the target buffer of 64x64 pixels
+  private void drawTile(Tile tile, boolean isDoorTile, int[] target)
   {
     if (tile != null) {
       boolean isDoorClosed = (Profile.getEngine() == Profile.Engine.PST) ? !isClosed : isClosed;
-      int[] target = ((DataBufferInt)workingTile.getRaster().getDataBuffer()).getData();
 
       if (overlaysEnabled && tile.hasOverlay() && hasOverlay(tile.getOverlayIndex())) {   // overlayed tile
         // preparing graphics data
@@ -937,20 +1115,20 @@ private synchronized void drawTile(Tile tile, boolean isDoorTile)
           int tileIdx = listTilesets.get(overlay).listTiles.get(0).getPrimaryIndex();
           int[] srcOvl = null;
           if (tileIdx >= 0) {
-            srcOvl = listTilesets.get(overlay).listTileData.get(tileIdx);
+            srcOvl = listTilesets.get(overlay).getTileData(tileIdx);
           }
           int[] srcPri = null;
           tileIdx = tile.getPrimaryIndex();
           if (tileIdx >= 0) {
-            srcPri = listTilesets.get(0).listTileData.get(tileIdx);
+            srcPri = listTilesets.get(0).getTileData(tileIdx);
           }
           int[] srcSec = null;
           tileIdx = tile.getSecondaryIndex();
           if (tileIdx >= 0) {
-            if (tileIdx < listTilesets.get(0).listTileData.size()) {
-              srcSec = listTilesets.get(0).listTileData.get(tileIdx);
+            if (tileIdx < listTilesets.get(0).getTileCount()) {
+              srcSec = listTilesets.get(0).getTileData(tileIdx);
             } else {
-              System.err.println("Invalid tile index: " + tileIdx + " of " + listTilesets.get(0).listTileData.size());
+              System.err.println("Invalid tile index: " + tileIdx + " of " + listTilesets.get(0).getTileCount());
             }
           }
 
@@ -972,8 +1150,8 @@ private synchronized void drawTile(Tile tile, boolean isDoorTile)
         int[] srcTile = null;
         int tileIdx = (!isDoorClosed || !isDoorTile) ? tile.getPrimaryIndex() : tile.getSecondaryIndex();
         if (tileIdx < 0) { tileIdx = tile.getPrimaryIndex(); }    // XXX: hackish work-around for faulty tile definitions
-        if (tileIdx >= 0 && tileIdx < listTilesets.get(0).listTileData.size()) {
-          srcTile = listTilesets.get(0).listTileData.get(tileIdx);
+        if (tileIdx >= 0 && tileIdx < listTilesets.get(0).getTileCount()) {
+          srcTile = listTilesets.get(0).getTileData(tileIdx);
         } else {
           // loading default tile
           srcTile = DEFAULT_TILE_DATA;
@@ -1033,14 +1211,6 @@ private synchronized void drawTile(Tile tile, boolean isDoorTile)
           }
         }
       }
-
-      // drawing tile on canvas
-      if (getImage() != null) {
-        Graphics2D g = (Graphics2D)getImage().getGraphics();
-        g.drawImage(workingTile, tile.getX(), tile.getY(), null);
-        g.dispose();
-      }
-      target = null;
     }
   }
 
@@ -1083,8 +1253,14 @@ private void notifyChangeListeners()
   // Stores data of a specific overlay structure
   private static class Tileset
   {
-    // graphics data for all tiles of this overlay (as int arrays of 64*64 pixels)
-    public final List<int[]> listTileData = new ArrayList<>();
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    // unique identifier of the tileset, used for associating tiles with cache entries
+    private final long id = nextId.incrementAndGet();
+    // provides graphics data of all tiles of this overlay in their compact source form
+    private TisDecoder decoder;
+    private int tileCount;
+    private BufferedImage tileImage;
     // info structures for all tiles of this overlay
     public final List<Tile> listTiles = new ArrayList<>();
     // lists references to all tiles containing overlays from listTiles
@@ -1098,6 +1274,51 @@ public Tileset(WedResource wed, Overlay ovl)
       init(wed, ovl);
     }
 
+    /** Returns the number of tile graphics available for this overlay. */
+    public int getTileCount()
+    {
+      return tileCount;
+    }
+
+    /**
+     * Returns the graphics data of the specified tile as int array of 64*64 pixels.
+     * Tiles are decoded on demand and kept in a size-limited cache.
+     * Returns {@code null} if the tile is not available.
+     */
+    public int[] getTileData(int tileIdx)
+    {
+      if (tileIdx < 0 || tileIdx >= tileCount) {
+        return null;
+      }
+      final Long key = Long.valueOf((id << 32) | tileIdx);
+      int[] data = tileCache.get(key);
+      if (data == null) {
+        synchronized (this) {
+          if (decoder != null) {
+            decoder.getTile(tileIdx, tileImage);
+            int[] srcData = ((DataBufferInt)tileImage.getRaster().getDataBuffer()).getData();
+            data = new int[64*64];
+            System.arraycopy(srcData, 0, data, 0, 64*64);
+            tileCache.put(key, data);
+          }
+        }
+      }
+      return data;
+    }
+
+    /** Releases the tile graphics source. */
+    public synchronized void close()
+    {
+      if (decoder != null) {
+        decoder.close();
+        decoder = null;
+      }
+      if (tileImage != null) {
+        tileImage.flush();
+        tileImage = null;
+      }
+    }
+
     public void advanceTileFrame()
     {
       for (int i = 0, size = listTiles.size(); i < size; i++) {
@@ -1120,20 +1341,10 @@ private void init(WedResource wed, Overlay ovl)
         ResourceEntry tisEntry = getTisResource(wed, ovl);
         if (tisEntry != null) {
           try {
-            TisDecoder decoder = TisDecoder.loadTis(tisEntry);
+            decoder = TisDecoder.loadTis(tisEntry);
             isTisPalette = decoder.getType() == TisDecoder.Type.PALETTE;
-            BufferedImage tileImage = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
-            for (int i = 0, tCount = decoder.getTileCount(); i < tCount; i++) {
-              decoder.getTile(i, tileImage);
-              int[] srcData = ((DataBufferInt)tileImage.getRaster().getDataBuffer()).getData();
-              int[] dstData = new int[64*64];
-              System.arraycopy(srcData, 0, dstData, 0, 64*64);
-              listTileData.add(dstData);
-            }
-            tileImage.flush();
-            tileImage = null;
-            decoder.close();
-            decoder = null;
+            tileCount = decoder.getTileCount();
+            tileImage = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
           } catch (Exception e) {
             e.printStackTrace();
             return;
@@ -69,7 +69,9 @@ public Compiler(String source)
   public Compiler(String source, ScriptType type)
   {
     this.scriptType = type;
-    setVerbose(BrowserMenuBar.getInstance().showMoreCompileWarnings());
+    if (BrowserMenuBar.getInstance() != null) {
+      setVerbose(BrowserMenuBar.getInstance().showMoreCompileWarnings());
+    }
     setSource(source);
   }
 
@@ -78,7 +78,6 @@
 import org.infinity.resource.spl.SplResource;
 import org.infinity.search.ReferenceSearcher;
 import org.infinity.util.DynamicArray;
-import org.infinity.util.IntegerHashMap;
 import org.infinity.util.io.FileManager;
 import org.infinity.util.io.StreamUtils;
 
@@ -1078,12 +1077,8 @@ private byte[] convertToBamV1(boolean compressed) throws Exception
       g.dispose();
       int[] chainedImageData = ((DataBufferInt)composedImage.getRaster().getDataBuffer()).getData();
       int[] palette = ColorConvert.medianCut(chainedImageData, hasTransparency ? 255 : 256, ignoreAlpha);
-      // initializing color cache
-      IntegerHashMap<Byte> colorCache = new IntegerHashMap<>(1536);
-      for (int i = 0; i < palette.length; i++) {
-        colorCache.put(palette[i], (byte)i);
-      }
       // adding transparent color index to the palette if available
+      int colorShift = hasTransparency ? 1 : 0;   // considers transparent color index
       if (hasTransparency) {
         int[] tmp = palette;
         palette = new int[tmp.length + 1];
@@ -1091,10 +1086,14 @@ private byte[] convertToBamV1(boolean compressed) throws Exception
         System.arraycopy(tmp, 0, palette, 1, tmp.length);
         tmp = null;
       }
+      // initializing color matcher, colors of the generated palette map to their own indices
+      PaletteMatcher matcher = new PaletteMatcher(palette, ignoreAlpha ? 0.0 : 1.0, null);
+      for (int i = colorShift; i < palette.length; i++) {
+        matcher.setColorIndex(palette[i], i);
+      }
 
       // 2. encoding frames
       List<byte[]> frameList = new ArrayList<>(frameCount);
-      int colorShift = hasTransparency ? 1 : 0;   // considers transparent color index
       for (int i = 0; i < frameCount; i++) {
         if (decoder.frameGet(control, i) != null) {
           BufferedImage img = ColorConvert.toBufferedImage(decoder.frameGet(control, i), true);
@@ -1116,17 +1115,7 @@ private byte[] convertToBamV1(boolean compressed) throws Exception
                 dstData[dstIdx++] = (byte)cnt;
               } else {
                 // visible pixel
-                Byte colIdx = colorCache.get(srcData[srcIdx]);
-                if (colIdx != null) {
-                  dstData[dstIdx++] = (byte)(colIdx + colorShift);
-                } else {
-                  double weight = ignoreAlpha ? 0.0 : 1.0;
-                  int color = ColorConvert.getNearestColor(srcData[srcIdx], palette, weight, null);
-                  dstData[dstIdx++] = (byte)(color);
-                  if (color > 0) {
-                    colorCache.put(srcData[srcIdx], (byte)(color - colorShift));
-                  }
-                }
+                dstData[dstIdx++] = (byte)matcher.getNearestColor(srcData[srcIdx]);
                 srcIdx++;
               }
             }
@@ -1141,17 +1130,7 @@ private byte[] convertToBamV1(boolean compressed) throws Exception
             byte[] dstData = new byte[img.getWidth()*img.getHeight()];
             int idx = 0, max = dstData.length;
             while (idx < max) {
-              Byte colIdx = colorCache.get(srcData[idx]);
-              if (colIdx != null) {
-                dstData[idx] = (byte)(colIdx + colorShift);
-              } else {
-                double weight = ignoreAlpha ? 0.0 : 1.0;
-                int color = ColorConvert.getNearestColor(srcData[idx], palette, weight, null);
-                dstData[idx] = (byte)(color);
-                if (color > 0) {
-                  colorCache.put(srcData[idx], (byte)(color - colorShift));
-                }
-              }
+              dstData[idx] = (byte)matcher.getNearestColor(srcData[idx]);
               idx++;
             }
             frameList.add(dstData);
@@ -1234,7 +1213,7 @@ private byte[] convertToBamV1(boolean compressed) throws Exception
         }
       }
       frameList.clear(); frameList = null;
-      colorCache.clear(); colorCache = null;
+      matcher = null;
       palette = null;
 
       // optionally compressing to MOSC V1
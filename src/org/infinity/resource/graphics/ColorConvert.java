@@ -24,7 +24,6 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
@@ -84,17 +83,11 @@
    * This algorithm is slower than the default ARGB distance calculation but more accurate.
    */
   public static final ColorDistanceFunc COLOR_DISTANCE_CIE94 = (argb1, argb2, weight) -> {
-    Triple<Double, Double, Double> lab1 = convertRGBtoLab(argb1);
-    Triple<Double, Double, Double> lab2 = convertRGBtoLab(argb2);
-    weight = Math.max(0.0, Math.min(2.0, weight));
-    double alpha1 = (double)((argb1 >> 24) & 0xff) * weight;
-    double alpha2 = (double)((argb2 >> 24) & 0xff) * weight;
-    return getColorDistanceLabCIE94(lab1.getValue0().doubleValue(), lab1.getValue1().doubleValue(), lab1.getValue2().doubleValue(), alpha1,
-                                    lab2.getValue0().doubleValue(), lab2.getValue1().doubleValue(), lab2.getValue2().doubleValue(), alpha2);
+    return getRGBColorDistanceLabCIE94(argb1, argb2, weight);
   };
 
-  // Cache for ARGB key -> CIELAB color space values
-  private static final HashMap<Integer, Triple<Double, Double, Double>> ARGB_LAB_CACHE = new HashMap<>();
+  // Cache for ARGB key -> CIELAB color space values (64K entries)
+  private static final LabCache ARGB_LAB_CACHE = new LabCache(16);
 
   // max. number of colors for color reduction algorithms
   private static final int MAX_COLORS = 256;
@@ -436,8 +429,28 @@ public static void sortPalette(int[] palette, int startIndex, SortType type, boo
    */
   public static Triple<Double, Double, Double> convertRGBtoLab(int argb)
   {
-    Integer key = Integer.valueOf(argb & 0xffffff);
-    Triple<Double, Double, Double> retVal = ARGB_LAB_CACHE.get(key);
+    return getLabColor(argb).toTriple();
+  }
+
+  /**
+   * Converts a single RGB value into the CIELAB colorspace without creating intermediate objects.
+   * This method is thread-safe.
+   * @param argb The ARGB value to convert.
+   * @param lab Array for storing the L, a and b components of the converted color.
+   * @param offset Start offset in the array.
+   */
+  public static void convertRGBtoLab(int argb, double[] lab, int offset)
+  {
+    LabColor color = getLabColor(argb);
+    lab[offset] = color.L;
+    lab[offset + 1] = color.a;
+    lab[offset + 2] = color.b;
+  }
+
+  // Returns the cached CIELAB representation of the specified ARGB value
+  private static LabColor getLabColor(int argb)
+  {
+    LabColor retVal = ARGB_LAB_CACHE.get(argb);
 
     if (retVal == null) {
       int alpha = (argb >> 24) & 0xff;
@@ -473,12 +486,9 @@ public static Triple<Double, Double, Double> convertRGBtoLab(int argb)
       x = (x > 0.008856) ? Math.pow(x, 1.0 / 3.0) : (7.787 * x) + (16.0 / 116.0);
       y = (y > 0.008856) ? Math.pow(y, 1.0 / 3.0) : (7.787 * y) + (16.0 / 116.0);
       z = (z > 0.008856) ? Math.pow(z, 1.0 / 3.0) : (7.787 * z) + (16.0 / 116.0);
-      Double dstL = Double.valueOf((116.0 * y) - 16.0);
-      Double dstA = Double.valueOf(500.0 * (x - y));
-      Double dstB = Double.valueOf(200.0 * (y - z));
-      retVal = Triple.with(dstL, dstA, dstB);
+      retVal = new LabColor(argb, (116.0 * y) - 16.0, 500.0 * (x - y), 200.0 * (y - z));
 
-      ARGB_LAB_CACHE.put(key, retVal);
+      ARGB_LAB_CACHE.put(retVal);
     }
 
     return retVal;
@@ -549,10 +559,7 @@ public static double[] convertRGBtoLabPalette(int[] palette)
     retVal = new double[palette.length * 4];
     for (int i = 0; i < palette.length; i++) {
       int a = (palette[i] >> 24) & 0xff;
-      Triple<Double, Double, Double> entry = convertRGBtoLab(palette[i]);
-      retVal[i * 4] = entry.getValue0().doubleValue();
-      retVal[i * 4 + 1] = entry.getValue1().doubleValue();
-      retVal[i * 4 + 2] = entry.getValue2().doubleValue();
+      convertRGBtoLab(palette[i], retVal, i * 4);
       retVal[i * 4 + 3] = (double)a;
     }
 
@@ -627,13 +634,12 @@ public static double getColorDistanceLabCIE94(double L1, double a1, double b1, d
    */
   public static double getRGBColorDistanceLabCIE94(int argb1, int argb2, double alphaWeight)
   {
-    Triple<Double, Double, Double> lab1 = convertRGBtoLab(argb1);
-    Triple<Double, Double, Double> lab2 = convertRGBtoLab(argb2);
+    LabColor lab1 = getLabColor(argb1);
+    LabColor lab2 = getLabColor(argb2);
     alphaWeight = Math.max(0.0, Math.min(2.0, alphaWeight));
     double alpha1 = (double)((argb1 >> 24) & 0xff) * alphaWeight;
     double alpha2 = (double)((argb2 >> 24) & 0xff) * alphaWeight;
-    return getColorDistanceLabCIE94(lab1.getValue0().doubleValue(), lab1.getValue1().doubleValue(), lab1.getValue2().doubleValue(), alpha1,
-                                    lab2.getValue0().doubleValue(), lab2.getValue1().doubleValue(), lab2.getValue2().doubleValue(), alpha2);
+    return getColorDistanceLabCIE94(lab1.L, lab1.a, lab1.b, alpha1, lab2.L, lab2.a, lab2.b, alpha2);
   }
 
   // Returns each color component as float array {b, g, r, a} in range [0.0, 1.0].
@@ -1061,6 +1067,62 @@ private static BufferedImage convertToIndexedImage(BufferedImage image)
     double calculate(int argb1, int argb2, double alphaWeight);
   }
 
+  // Thread-safe direct-mapped cache for CIELAB colors. Entries are immutable, so that lookups can be
+  // performed without locking. A new entry replaces the entry of another color mapped to the same slot.
+  private static final class LabCache
+  {
+    private final LabColor[] slots;
+    private final int mask;
+
+    public LabCache(int bits)
+    {
+      slots = new LabColor[1 << bits];
+      mask = slots.length - 1;
+    }
+
+    public LabColor get(int argb)
+    {
+      LabColor color = slots[slot(argb)];
+      return (color != null && color.argb == argb) ? color : null;
+    }
+
+    public void put(LabColor color)
+    {
+      slots[slot(color.argb)] = color;
+    }
+
+    public void clear()
+    {
+      Arrays.fill(slots, null);
+    }
+
+    private int slot(int argb)
+    {
+      int h = argb * 0x9e3779b9;
+      return (h ^ (h >>> 16)) & mask;
+    }
+  }
+
+  // CIELAB representation of an ARGB color value
+  private static final class LabColor
+  {
+    public final int argb;
+    public final double L, a, b;
+
+    public LabColor(int argb, double L, double a, double b)
+    {
+      this.argb = argb;
+      this.L = L;
+      this.a = a;
+      this.b = b;
+    }
+
+    public Triple<Double, Double, Double> toTriple()
+    {
+      return Triple.with(Double.valueOf(L), Double.valueOf(a), Double.valueOf(b));
+    }
+  }
+
   private static class PixelBlock
   {
     private final Pixel minCorner, maxCorner;
@@ -1300,11 +1362,11 @@ public int getElement(int index)
 
   // Compare colors by CIELAB L component.
   private static final Comparator<Integer> CompareByLabL = (c1, c2) -> {
-    Triple<Double, Double, Double> dist1 = convertRGBtoLab(c1);
-    Triple<Double, Double, Double> dist2 = convertRGBtoLab(c2);
-    if (dist1.getValue0() < dist2.getValue0()) {
+    double dist1 = getLabColor(c1).L;
+    double dist2 = getLabColor(c2).L;
+    if (dist1 < dist2) {
       return -1;
-    } else if (dist1.getValue0() > dist2.getValue0()) {
+    } else if (dist1 > dist2) {
       return 1;
     } else {
       return 0;
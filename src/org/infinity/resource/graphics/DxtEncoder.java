@@ -29,6 +29,8 @@
 
 package org.infinity.resource.graphics;
 
+import org.infinity.util.WorkPipeline;
+
 /**
  * Encodes pixel data into the DXT1/DXT3/DXT5 format.
  */
@@ -39,6 +41,9 @@
    */
   public static enum DxtType { DXT1, DXT3, DXT5 }
 
+  // Min. number of block rows encoded by a single task of the multi-threaded encoder
+  private static final int MIN_ROWS_PER_TASK = 4;
+
   /**
    * Encodes an image into a series of DXTn code blocks.
    * @param pixels The pixel data as array of integers in ARGB format.
@@ -85,36 +90,51 @@ static public byte[] encodeImage(final int[] pixels, final int width, final int
   static public void encodeImage(final int[] pixels, final int width, final int height, final byte[] output,
                                  final DxtType dxtType) throws Exception
   {
-    // consistency check
-    if (dxtType == null)
-      throw new Exception("No DXT type specified");
-    if (width <= 0 || height <= 0)
-      throw new Exception("Invalid width or height specified");
-    if ((width & 3) != 0 || (height & 3) != 0)
-      throw new Exception("Width and height must be a multiple of 4");
-    if (pixels == null || pixels.length < width*height)
-      throw new Exception("Insufficient source data.");
-    if (output == null || output.length < calcImageSize(width, height, dxtType))
-      throw new Exception(String.format("Insufficient space in output array. Needed: %d bytes, available: %d bytes",
-                          calcImageSize(width, height, dxtType), (output == null) ? 0 : output.length));
+    checkImageParams(pixels, width, height, output, dxtType);
 
-    int outputOfs = 0;    // points to the end of encoded data
-    final int bw = width / 4;
+    new BlockEncoder(dxtType).encodeRows(pixels, width, output, 0, height / 4);
+  }
+
+  /**
+   * Encodes an image into a series of DXTn code blocks, using multiple threads.
+   * Block rows are distributed over the available threads. The result is identical
+   * to {@link #encodeImage(int[], int, int, byte[], DxtType)}.
+   * @param pixels The pixel data as array of integers in ARGB format.
+   * @param width The width of the image (must be a multiple of 4).
+   * @param height The height of the image (must be a multiple of 4).
+   * @param output The storage space for the compressed data.
+   * @param dxtType The compression type to use.
+   * @param numThreads Max. number of threads to use. Specify 0 to use one thread per available CPU core.
+   * @throws Exception
+   */
+  static public void encodeImage(final int[] pixels, final int width, final int height, final byte[] output,
+                                 final DxtType dxtType, int numThreads) throws Exception
+  {
+    if (numThreads <= 0) {
+      numThreads = Runtime.getRuntime().availableProcessors();
+    }
     final int bh = height / 4;
-    final int[] inBlock = new int[16];
-    final byte[] outBlock = new byte[calcBlockSize(dxtType)];
-    for (int y = 0; y < bh; y++) {
-      for (int x = 0; x < bw; x++) {
-        // create 4x4 block of pixels for DXTn compression
-        int ofs = (y*4)*width + (x*4);
-        for (int i = 0; i < 4; i++, ofs+=width) {
-          System.arraycopy(pixels, ofs, inBlock, i*4, 4);
-        }
+    if (numThreads == 1 || bh < MIN_ROWS_PER_TASK * 2) {
+      encodeImage(pixels, width, height, output, dxtType);
+      return;
+    }
+
+    checkImageParams(pixels, width, height, output, dxtType);
 
-        // compress pixel block
-        encodeBlock(inBlock, outBlock, dxtType);
-        System.arraycopy(outBlock, 0, output, outputOfs, outBlock.length);
-        outputOfs += outBlock.length;
+    // each block row is written to its own region of the output array
+    final int rowsPerTask = Math.max(MIN_ROWS_PER_TASK, bh / (numThreads * 4));
+    final ThreadLocal<BlockEncoder> encoders = ThreadLocal.withInitial(() -> new BlockEncoder(dxtType));
+    try (WorkPipeline pipeline = new WorkPipeline("DxtEncoder", numThreads, numThreads * 2)) {
+      for (int row = 0; row < bh; row += rowsPerTask) {
+        final int startRow = row;
+        final int endRow = Math.min(bh, row + rowsPerTask);
+        if (!pipeline.submit(() -> encoders.get().encodeRows(pixels, width, output, startRow, endRow))) {
+          break;
+        }
+      }
+      if (pipeline.join(null) || pipeline.getFailedCount() > 0 ||
+          pipeline.getCompletedCount() != pipeline.getSubmittedCount()) {
+        throw new Exception("Error encoding DXT image data.");
       }
     }
   }
@@ -133,47 +153,26 @@ public static void encodeBlock(final int[] pixels, final byte[] block, final Dxt
       throw new Exception(String.format("Insufficient output space. Needed: %d bytes, available: %d bytes",
                           calcBlockSize(dxtType), (block == null) ? 0 : block.length));
 
-    final byte[] colorBlock = new byte[8];
-    byte[] alphaBlock = null;
-    if (dxtType == DxtType.DXT3 || dxtType == DxtType.DXT5) {
-      alphaBlock = new byte[8];
-    }
-
-    // create the minimal point set
-    final ColorSet colors = new ColorSet(pixels, dxtType);
-
-    // check the compression type and compress color
-    ColorFit fit = null;
-    if (colors.getCount() == 1) {
-      // always do a single color fit
-      fit = new SingleColorFit(colors, dxtType);
-    } else if (colors.getCount() == 0) {
-      // do a range fit
-      fit = new RangeFit(colors, dxtType);
-    } else {
-      // default to a cluster fit
-      fit = new ClusterFit(colors, dxtType);
-    }
-    fit.compress(colorBlock);
-
-    // compress alpha separately if necessary
-    if (dxtType == DxtType.DXT3) {
-      Alpha.compressAlphaDxt3(pixels, alphaBlock);
-    } else if (dxtType == DxtType.DXT5) {
-      Alpha.compressAlphaDxt5(pixels, alphaBlock);
-    }
-
-    int ofs = 0;
-    if (alphaBlock != null) {
-      for (int i = 0; i < alphaBlock.length; i++, ofs++) {
-        block[ofs] = alphaBlock[i];
-      }
-    }
-    for (int i = 0; i < colorBlock.length; i++, ofs++) {
-      block[ofs] = colorBlock[i];
-    }
+    new BlockEncoder(dxtType).encodeBlock(pixels, block, 0);
   }
 
+  // Throws an exception if the specified image parameters are not valid
+  private static void checkImageParams(final int[] pixels, final int width, final int height, final byte[] output,
+                                       final DxtType dxtType) throws Exception
+  {
+    // consistency check
+    if (dxtType == null)
+      throw new Exception("No DXT type specified");
+    if (width <= 0 || height <= 0)
+      throw new Exception("Invalid width or height specified");
+    if ((width & 3) != 0 || (height & 3) != 0)
+      throw new Exception("Width and height must be a multiple of 4");
+    if (pixels == null || pixels.length < width*height)
+      throw new Exception("Insufficient source data.");
+    if (output == null || output.length < calcImageSize(width, height, dxtType))
+      throw new Exception(String.format("Insufficient space in output array. Needed: %d bytes, available: %d bytes",
+                          calcImageSize(width, height, dxtType), (output == null) ? 0 : output.length));
+  }
 
   /**
    * Calculates the size of a single DXT encoded 4x4 block of pixels.
@@ -215,6 +214,80 @@ public static int calcImageSize(int width, int height, final DxtType dxtType)
 
 // --------------------------- INNER CLASSES ---------------------------
 
+  // Encodes blocks of pixel data. Scratch buffers are reused for all blocks encoded by the same instance.
+  private static final class BlockEncoder
+  {
+    private final DxtType dxtType;
+    private final int[] inBlock = new int[16];
+    private final byte[] colorBlock = new byte[8];
+    private final byte[] alphaBlock = new byte[8];
+    private final int[] order = new int[16*ClusterFit.IterationCount];
+    private final Vec4[] pointsWeights = new Vec4[16];
+    private final ColorSet colors = new ColorSet();
+
+    public BlockEncoder(final DxtType dxtType)
+    {
+      this.dxtType = dxtType;
+    }
+
+    // Encodes the block rows [startRow, endRow) of the specified image
+    public void encodeRows(final int[] pixels, final int width, final byte[] output,
+                           final int startRow, final int endRow)
+    {
+      final int bw = width / 4;
+      final int blockSize = calcBlockSize(dxtType);
+      int outputOfs = startRow*bw*blockSize;
+      for (int y = startRow; y < endRow; y++) {
+        for (int x = 0; x < bw; x++) {
+          // create 4x4 block of pixels for DXTn compression
+          int ofs = (y*4)*width + (x*4);
+          for (int i = 0; i < 4; i++, ofs+=width) {
+            System.arraycopy(pixels, ofs, inBlock, i*4, 4);
+          }
+
+          // compress pixel block
+          encodeBlock(inBlock, output, outputOfs);
+          outputOfs += blockSize;
+        }
+      }
+    }
+
+    // Encodes a single 4x4 block of pixels and stores the result at the specified output offset
+    public void encodeBlock(final int[] pixels, final byte[] output, int ofs)
+    {
+      // create the minimal point set
+      colors.init(pixels, dxtType);
+
+      // check the compression type and compress color
+      ColorFit fit = null;
+      if (colors.getCount() == 1) {
+        // always do a single color fit
+        fit = new SingleColorFit(colors, dxtType);
+      } else if (colors.getCount() == 0) {
+        // do a range fit
+        fit = new RangeFit(colors, dxtType);
+      } else {
+        // default to a cluster fit
+        fit = new ClusterFit(colors, dxtType, order, pointsWeights);
+      }
+      fit.compress(colorBlock);
+
+      // compress alpha separately if necessary
+      if (dxtType == DxtType.DXT3) {
+        Alpha.compressAlphaDxt3(pixels, alphaBlock);
+      } else if (dxtType == DxtType.DXT5) {
+        Alpha.compressAlphaDxt5(pixels, alphaBlock);
+      }
+
+      if (dxtType == DxtType.DXT3 || dxtType == DxtType.DXT5) {
+        System.arraycopy(alphaBlock, 0, output, ofs, alphaBlock.length);
+        ofs += alphaBlock.length;
+      }
+      System.arraycopy(colorBlock, 0, output, ofs, colorBlock.length);
+    }
+  }
+
+
   private static class ColorSet
   {
     private final Vec3[] points;
@@ -229,11 +302,16 @@ public static int argb(final int color, final int pos)
       return (color >>> ((pos & 3) << 3)) & 0xff;
     }
 
-    public ColorSet(final int[] pixels, final DxtType dxtType)
+    public ColorSet()
     {
       points = new Vec3[16];
       weights = new float[16];
       remap = new int[16];
+    }
+
+    // Initializes the color set with the specified block of pixels
+    public void init(final int[] pixels, final DxtType dxtType)
+    {
       count = 0;
       transparent = false;
 
@@ -625,11 +703,12 @@ private static class ClusterFit extends ColorFit
     private Vec4 xsum_wsum;
     private Vec4 bestError;
 
-    public ClusterFit(final ColorSet colors, final DxtType dxtType)
+    // Uses the specified arrays as scratch space for point orderings and weighted points
+    public ClusterFit(final ColorSet colors, final DxtType dxtType, final int[] order, final Vec4[] pointsWeights)
     {
       super(colors, dxtType);
-      order = new int[16*IterationCount];
-      pointsWeights = new Vec4[16];
+      this.order = order;
+      this.pointsWeights = pointsWeights;
 
       // initialize the best error
       bestError = new Vec4(Float.MAX_VALUE);
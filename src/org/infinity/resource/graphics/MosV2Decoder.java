@@ -53,7 +53,6 @@ public void preloadPvrz()
   @Override
   public void close()
   {
-    PvrDecoder.flushCache();
     pvrIndices.clear();
     mosBuffer = null;
     width = height = blockCount = 0;
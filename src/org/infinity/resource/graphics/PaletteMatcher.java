@@ -0,0 +1,174 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.graphics;
+
+import org.infinity.resource.graphics.ColorConvert.ColorDistanceFunc;
+import org.infinity.util.IntegerIntMap;
+
+/**
+ * Maps ARGB colors to the nearest entries of a fixed palette.
+ * <p>
+ * Produces the same results as {@link ColorConvert#getNearestColor(int, int[], double, ColorDistanceFunc)}.
+ * Color components of the palette are prepared once for the predefined distance functions and each
+ * color is searched only once, which makes it much faster for matching the pixels of whole images.
+ * <p>
+ * Instances are not thread-safe. Use a separate instance per thread.
+ */
+public final class PaletteMatcher
+{
+  // Max. number of colors to remember before the memo table is reset
+  private static final int MAX_CACHED_COLORS = 1 << 18;
+
+  private final double alphaWeight;
+  private final ColorDistanceFunc calculator;
+  // colors with predefined palette indices
+  private final IntegerIntMap fixedColors = new IntegerIntMap();
+  // memo table for colors that have been searched already
+  private final IntegerIntMap colorCache = new IntegerIntMap(4096);
+  private final double[] work = new double[4];
+
+  private int[] palette;
+  // prepared color components of the palette, four entries per palette color
+  private double[] components;
+
+  /**
+   * Creates a new matcher for the specified palette.
+   * @param palette palette with ARGB colors to search. The array is not copied.
+   * @param alphaWeight Weight factor of the alpha component. Supported range: [0.0, 2.0].
+   * @param calculator the function for distance calculation. Specify {@code null} to use
+   *                   {@link ColorConvert#COLOR_DISTANCE_ARGB}.
+   */
+  public PaletteMatcher(int[] palette, double alphaWeight, ColorDistanceFunc calculator)
+  {
+    this.alphaWeight = Math.max(0.0, Math.min(2.0, alphaWeight));
+    this.calculator = (calculator != null) ? calculator : ColorConvert.COLOR_DISTANCE_ARGB;
+    setPalette(palette);
+  }
+
+  /** Returns the palette used by this matcher. */
+  public int[] getPalette()
+  {
+    return palette;
+  }
+
+  /**
+   * Replaces the palette used by this matcher. Remembered colors and predefined palette indices are discarded.
+   * @param palette palette with ARGB colors to search. The array is not copied.
+   */
+  public void setPalette(int[] palette)
+  {
+    this.palette = (palette != null) ? palette : new int[0];
+    fixedColors.clear();
+    colorCache.clear();
+
+    if (calculator == ColorConvert.COLOR_DISTANCE_ARGB || calculator == ColorConvert.COLOR_DISTANCE_CIE94) {
+      if (components == null || components.length != this.palette.length * 4) {
+        components = new double[this.palette.length * 4];
+      }
+      for (int i = 0; i < this.palette.length; i++) {
+        if (calculator == ColorConvert.COLOR_DISTANCE_ARGB) {
+          getArgbComponents(this.palette[i], components, i * 4);
+        } else {
+          ColorConvert.convertRGBtoLab(this.palette[i], components, i * 4);
+          components[i * 4 + 3] = (double)((this.palette[i] >> 24) & 0xff) * alphaWeight;
+        }
+      }
+    }
+  }
+
+  /**
+   * Associates the specified color with a fixed palette index. Subsequent calls of
+   * {@link #getNearestColor(int)} return this index for the color.
+   */
+  public void setColorIndex(int argb, int index)
+  {
+    fixedColors.put(argb, index);
+    colorCache.clear();
+  }
+
+  /**
+   * Returns the palette index of the color nearest to the specified ARGB color.
+   * Returns -1 if the palette is empty.
+   */
+  public int getNearestColor(int argb)
+  {
+    int retVal = colorCache.get(argb, -2);
+    if (retVal == -2) {
+      retVal = fixedColors.get(argb, -2);
+      if (retVal == -2) {
+        retVal = findNearestColor(argb);
+        if (colorCache.size() >= MAX_CACHED_COLORS) {
+          colorCache.clear();
+        }
+        colorCache.put(argb, retVal);
+      }
+    }
+    return retVal;
+  }
+
+  // Searches the whole palette for the nearest color
+  private int findNearestColor(int argb)
+  {
+    int retVal = -1;
+    if (calculator == ColorConvert.COLOR_DISTANCE_ARGB) {
+      // same calculation as COLOR_DISTANCE_ARGB, but comparing squared distances
+      getArgbComponents(argb, work, 0);
+      double a = work[0], r = work[1], g = work[2], b = work[3];
+      double minDist = Double.MAX_VALUE;
+      for (int i = 0, ofs = 0; i < palette.length; i++, ofs += 4) {
+        double da = (a - components[ofs]) * 48.0 * alphaWeight;
+        double dr = (r - components[ofs + 1]) * 14.0;
+        double dg = (g - components[ofs + 2]) * 28.0;
+        double db = (b - components[ofs + 3]) * 6.0;
+        double dist = da*da + dr*dr + dg*dg + db*db;
+        if (dist < minDist) {
+          minDist = dist;
+          retVal = i;
+        }
+      }
+    } else if (calculator == ColorConvert.COLOR_DISTANCE_CIE94) {
+      ColorConvert.convertRGBtoLab(argb, work, 0);
+      double alpha = (double)((argb >> 24) & 0xff) * alphaWeight;
+      double minDist = Double.MAX_VALUE;
+      for (int i = 0, ofs = 0; i < palette.length; i++, ofs += 4) {
+        double dist = ColorConvert.getColorDistanceLabCIE94(work[0], work[1], work[2], alpha,
+                                                            components[ofs], components[ofs + 1],
+                                                            components[ofs + 2], components[ofs + 3]);
+        if (dist < minDist) {
+          minDist = dist;
+          retVal = i;
+        }
+      }
+    } else {
+      double minDist = Double.MAX_VALUE;
+      for (int i = 0; i < palette.length; i++) {
+        double dist = calculator.calculate(argb, palette[i], alphaWeight);
+        if (dist < minDist) {
+          minDist = dist;
+          retVal = i;
+        }
+      }
+    }
+    return retVal;
+  }
+
+  // Stores the alpha-premultiplied components of the specified color as used by COLOR_DISTANCE_ARGB
+  private static void getArgbComponents(int argb, double[] dst, int ofs)
+  {
+    int a = (argb >> 24) & 0xff;
+    int r = (argb >> 16) & 0xff;
+    int g = (argb >> 8) & 0xff;
+    int b = argb & 0xff;
+    if (a != 0xff) {
+      r = r * a / 255;
+      g = g * a / 255;
+      b = b * a / 255;
+    }
+    dst[ofs] = a;
+    dst[ofs + 1] = r;
+    dst[ofs + 2] = g;
+    dst[ofs + 3] = b;
+  }
+}
@@ -1336,7 +1336,7 @@ private boolean createPvrzPages(Path path, DxtEncoder.DxtType dxtType, List<BinP
       int[] textureData = ((DataBufferInt)texture.getRaster().getDataBuffer()).getData();
       try {
         int outSize = DxtEncoder.calcImageSize(texture.getWidth(), texture.getHeight(), dxtType);
-        DxtEncoder.encodeImage(textureData, texture.getWidth(), texture.getHeight(), output, dxtType);
+        DxtEncoder.encodeImage(textureData, texture.getWidth(), texture.getHeight(), output, dxtType, 0);
         byte[] header = ConvertToPvrz.createPVRHeader(texture.getWidth(), texture.getHeight(), dxtCode);
         byte[] pvrz = new byte[header.length + outSize];
         System.arraycopy(header, 0, pvrz, 0, header.length);
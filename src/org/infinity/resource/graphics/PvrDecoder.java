@@ -12,19 +12,21 @@
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.EnumSet;
-import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.stream.IntStream;
 import java.util.zip.InflaterInputStream;
 
 import org.infinity.resource.key.FileResourceEntry;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.util.DynamicArray;
+import org.infinity.util.SizeBoundedCache;
 import org.infinity.util.io.FileManager;
 import org.infinity.util.io.StreamUtils;
 
@@ -62,10 +64,11 @@ public enum ChannelType {
     FLOAT
   }
 
-  // The global cache list for PVR objects. The "key" has to be a unique String (e.g. filename or integer as string)
-  private static final Map<String, PvrDecoder> pvrCache = new LinkedHashMap<>();
-  // The max. number of cache entries to hold
-  private static int MaxCacheEntries = 32;
+  // The global cache for PvrDecoder objects and decoded PVRTC textures, limited by the amount of pixel data.
+  // PvrDecoder objects are associated with a unique String (e.g. filename or integer as string),
+  // decoded textures with the PvrInfo structure of their PvrDecoder.
+  private static final SizeBoundedCache<Object, Object> pvrCache =
+      new SizeBoundedCache<>(getDefaultCacheSize(), PvrDecoder::getCacheWeight);
 
   // Supported pixel formats
   private static final EnumSet<PixelFormat> SupportedFormat =
@@ -86,14 +89,24 @@ public static PvrDecoder loadPvr(ResourceEntry entry)
     if (entry == null) {
       throw new NullPointerException();
     }
-    try (InputStream is = entry.getResourceDataAsStream()) {
-      String key = null;
-      if (entry instanceof FileResourceEntry) {
-        key = ((FileResourceEntry)entry).getActualPath().toString();
-      } else {
-        key = entry.getResourceName();
+    String key = null;
+    if (entry instanceof FileResourceEntry) {
+      // modified files are treated as new resources
+      Path path = ((FileResourceEntry)entry).getActualPath();
+      key = path.toString();
+      try {
+        key += '|' + Files.getLastModifiedTime(path).toMillis();
+      } catch (IOException e) {
       }
-      PvrDecoder decoder = createPvrDecoder(key, is);
+    } else {
+      key = entry.getResourceName();
+    }
+    PvrDecoder decoder = getCachedPvrDecoder(key);
+    if (decoder != null) {
+      return decoder;
+    }
+    try (InputStream is = entry.getResourceDataAsStream()) {
+      decoder = createPvrDecoder(key, is);
       if (decoder != null) {
         return decoder;
       }
@@ -113,9 +126,13 @@ public static PvrDecoder loadPvr(String fileName)
     if (fileName == null) {
       throw new NullPointerException();
     }
+    PvrDecoder decoder = getCachedPvrDecoder(fileName);
+    if (decoder != null) {
+      return decoder;
+    }
     try (InputStream is = StreamUtils.getInputStream(FileManager.resolve(fileName))) {
       String key = fileName;
-      PvrDecoder decoder = createPvrDecoder(key, is);
+      decoder = createPvrDecoder(key, is);
       if (decoder != null) {
         return decoder;
       }
@@ -132,9 +149,13 @@ public static PvrDecoder loadPvr(String fileName)
    */
   public static PvrDecoder loadPvr(Path file)
   {
+    PvrDecoder decoder = getCachedPvrDecoder(file.getFileName().toString());
+    if (decoder != null) {
+      return decoder;
+    }
     try (InputStream is = StreamUtils.getInputStream(file)) {
       String key = file.getFileName().toString();
-      PvrDecoder decoder = createPvrDecoder(key, is);
+      decoder = createPvrDecoder(key, is);
       if (decoder != null) {
         return decoder;
       }
@@ -156,7 +177,10 @@ public static PvrDecoder loadPvr(InputStream input)
     }
     try {
       String key = Integer.valueOf(input.hashCode()).toString();
-      PvrDecoder decoder = createPvrDecoder(key, input);
+      PvrDecoder decoder = getCachedPvrDecoder(key);
+      if (decoder == null) {
+        decoder = createPvrDecoder(key, input);
+      }
       if (decoder != null) {
         return decoder;
       }
@@ -166,100 +190,87 @@ public static PvrDecoder loadPvr(InputStream input)
     return null;
   }
 
-  /** Returns the max. number of PvrDecoder objects to cache. */
-  public static int getMaxCacheEntries()
+  /** Returns the max. amount of memory used by cached PVR data, in bytes. */
+  public static long getMaxCacheSize()
   {
-    return MaxCacheEntries;
+    return pvrCache.getMaxSize();
   }
 
-  /** Specify the new max. number of PvrDecoder objects to cache. Specifying 0 disables the cache. */
-  public static synchronized void setMaxCacheEntries(int maxValue)
+  /** Specify the max. amount of memory used by cached PVR data, in bytes. Specifying 0 disables the cache. */
+  public static void setMaxCacheSize(long maxSize)
   {
-    if (maxValue < 0) maxValue = 0; else if (maxValue > 65535) maxValue = 65535;
-    if (maxValue != MaxCacheEntries) {
-      MaxCacheEntries = maxValue;
-      while (pvrCache.size() > MaxCacheEntries) {
-        pvrCache.remove(pvrCache.keySet().iterator().next());
-      }
-    }
+    pvrCache.setMaxSize(maxSize);
   }
 
   /** Clears all available caches. */
-  public static synchronized void flushCache()
+  public static void flushCache()
   {
     pvrCache.clear();
-    DecodePVRT.flushCache();
   }
 
   /** Returns the current cache load as percentage value. */
   public static int getCacheLoad()
   {
-    if (MaxCacheEntries > 0) {
-      return (pvrCache.size()*100) / MaxCacheEntries;
+    long maxSize = pvrCache.getMaxSize();
+    if (maxSize > 0L) {
+      return (int)((pvrCache.getSize()*100L) / maxSize);
     } else {
       return 0;
     }
   }
 
-//  // Returns a PvrDecoder object only if it already exists in the cache.
-//  private static synchronized PvrDecoder getCachedPvrDecoder(String key)
-//  {
-//    PvrDecoder retVal = null;
-//    if (key != null && !key.isEmpty()) {
-//      key = key.toUpperCase(Locale.ENGLISH);
-//      if (pvrCache.containsKey(key)) {
-//        retVal = pvrCache.get(key);
-//        // re-inserting entry to prevent premature removal from cache
-//        pvrCache.remove(key);
-//        pvrCache.put(key, retVal);
-//      }
-//    }
-//    return retVal;
-//  }
-
-  // Returns a PvrDecoder object of the specified key if available, or creates and returns a new one otherwise.
-  private static synchronized PvrDecoder createPvrDecoder(String key, InputStream input)
+  /** Returns a short summary of the cache usage, including hit, miss and eviction counts. */
+  public static String getCacheStatistics()
+  {
+    return pvrCache.toString();
+  }
+
+  // Returns the default cache size depending on the available memory
+  private static long getDefaultCacheSize()
+  {
+    final long minSize = 32L << 20, maxSize = 512L << 20;
+    return Math.max(minSize, Math.min(maxSize, Runtime.getRuntime().maxMemory() / 8L));
+  }
+
+  // Returns the approximate memory usage of a cached object
+  private static long getCacheWeight(Object value)
+  {
+    if (value instanceof PvrDecoder) {
+      PvrInfo info = ((PvrDecoder)value).info;
+      return (info.data != null) ? info.data.length : 0;
+    } else if (value instanceof BufferedImage) {
+      BufferedImage image = (BufferedImage)value;
+      return (long)image.getWidth() * image.getHeight() * 4L;
+    }
+    return 0L;
+  }
+
+  // Returns the PvrDecoder object of the specified key if available in the cache, null otherwise.
+  private static PvrDecoder getCachedPvrDecoder(String key)
+  {
+    if (key != null && !key.isEmpty()) {
+      return (PvrDecoder)pvrCache.get(key.toUpperCase(Locale.ENGLISH));
+    }
+    return null;
+  }
+
+  // Creates a new PvrDecoder object from the specified input stream and adds it to the cache.
+  // Returns the cached instance instead if the same key has been added concurrently.
+  private static PvrDecoder createPvrDecoder(String key, InputStream input)
   {
     PvrDecoder retVal = null;
     if (key != null && !key.isEmpty()) {
-      key = key.toUpperCase(Locale.ENGLISH);
-      if (pvrCache.containsKey(key)) {
-        retVal = pvrCache.get(key);
-        // re-inserting entry to prevent premature removal from cache
-        pvrCache.remove(key);
-        pvrCache.put(key, retVal);
-      } else {
-        try {
-          retVal = new PvrDecoder(input);
-          if (retVal != null) {
-            pvrCache.put(key, retVal);
-            // removing excess cache entries
-            while (pvrCache.size() > MaxCacheEntries) {
-              pvrCache.remove(pvrCache.keySet().iterator().next());
-            }
-          }
-        } catch (Exception e) {
-          e.printStackTrace();
+      try {
+        retVal = new PvrDecoder(input);
+        PvrDecoder prev = (PvrDecoder)pvrCache.putIfAbsent(key.toUpperCase(Locale.ENGLISH), retVal);
+        if (prev != null) {
+          retVal = prev;
         }
+      } catch (Exception e) {
+        e.printStackTrace();
       }
     }
     return retVal;
-//    PvrDecoder retVal = getCachedPvrDecoder(key);
-//    if (retVal == null && input != null) {
-//      try {
-//        retVal = new PvrDecoder(input);
-//        if (retVal != null) {
-//          pvrCache.put(key, retVal);
-//          // removing excess cache entries
-//          while (pvrCache.size() > MaxCacheEntries) {
-//            pvrCache.remove(pvrCache.keySet().iterator().next());
-//          }
-//        }
-//      } catch (Exception e) {
-//        e.printStackTrace();
-//      }
-//    }
-//    return retVal;
   }
 
   // Returns a rectangle that is aligned to the values specified as arguments 2 and 3
@@ -694,6 +705,9 @@ public static boolean decode(PvrInfo pvr, BufferedImage image, Rectangle region)
   // Decodes DXTn pixel data.
   private static class DecodeDXT
   {
+    // Min. number of 4x4 blocks in a region to distribute decoding over multiple threads
+    private static final int PARALLEL_MIN_BLOCKS = 16384;
+
     /**
      * Decodes PVR data in DXT1 format and draws the specified "region" into "image".
      * @param pvr The PVR data
@@ -704,119 +718,7 @@ public static boolean decode(PvrInfo pvr, BufferedImage image, Rectangle region)
      */
     public static boolean decodeDXT1(PvrInfo pvr, BufferedImage image, Rectangle region) throws Exception
     {
-      if (pvr == null || image == null || region == null) {
-        return false;
-      }
-
-      int imgWidth = image.getWidth();
-      int imgHeight = image.getHeight();
-      int[] imgData = null;
-
-      // checking region bounds and alignment
-      if (region.x < 0) {region.width += -region.x; region.x = 0; }
-      if (region.y < 0) {region.height += -region.y; region.y = 0; }
-      if (region.x + region.width > pvr.width) region.width = pvr.width - region.x;
-      if (region.y + region.height > pvr.height) region.height = pvr.height - region.y;
-      Rectangle rect = alignRectangle(region, 4, 4);
-
-      // preparing aligned image buffer for faster rendering
-      BufferedImage alignedImage = null;
-      int imgWidthAligned;
-      if (!region.equals(rect)) {
-        alignedImage = new BufferedImage(rect.width, rect.height, BufferedImage.TYPE_INT_ARGB);
-        imgWidthAligned = alignedImage.getWidth();
-        imgData = ((DataBufferInt)alignedImage.getRaster().getDataBuffer()).getData();
-        // translating "region" to be relative to "rect"
-        region.x -= rect.x;
-        region.y -= rect.y;
-        if (imgWidth < region.width) {
-          region.width= imgWidth;
-        }
-        if (imgHeight < region.height) {
-          region.height = imgHeight;
-        }
-      } else {
-        imgWidthAligned = imgWidth;
-        imgData = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
-      }
-
-      final int wordSize = 8;                   // data size of an encoded 4x4 pixel block
-      int wordImageWidth = pvr.width >>> 2;     // the image width in data blocks
-      int wordRectWidth = rect.width >>> 2;     // the aligned region's width in data blocks
-      int wordRectHeight = rect.height >>> 2;   // the aligned region's height in data blocks
-      int wordPosX = rect.x >>> 2;
-      int wordPosY = rect.y >>> 2;
-
-      int[] colors = new int[8];
-      int pvrOfs = (wordPosY*wordImageWidth + wordPosX)*wordSize;
-      int imgOfs = 0;
-      for (int y = 0; y < wordRectHeight; y++) {
-        for (int x = 0; x < wordRectWidth; x++) {
-          // decoding single DXT1 block
-          int c = DynamicArray.getInt(pvr.data, pvrOfs);
-          unpackColors565(c, colors);
-          int code = DynamicArray.getInt(pvr.data, pvrOfs+4);
-          for (int idx = 0; idx < 16; idx++, code >>>= 2) {
-            int ofs = imgOfs + (idx >>> 2)*imgWidthAligned + (idx & 3);
-            if ((code & 3) == 0) {
-              // 100% c0, 0% c1
-              imgData[ofs] = 0xff000000 | (colors[2] << 16) | (colors[1] << 8) | colors[0];
-            } else if ((code & 3) == 1) {
-              // 0% c0, 100% c1
-              imgData[ofs] = 0xff000000 | (colors[6] << 16) | (colors[5] << 8) | colors[4];
-            } else if ((code & 3) == 2) {
-              if ((c & 0xffff) > ((c >>> 16) & 0xffff)) {
-                // 66% c0, 33% c1
-                int v = 0xff000000;
-                v |= (((colors[2] << 1) + colors[6]) / 3) << 16;
-                v |= (((colors[1] << 1) + colors[5]) / 3) << 8;
-                v |=  ((colors[0] << 1) + colors[4]) / 3;
-                imgData[ofs] = v;
-              } else {
-                // 50% c0, 50% c1
-                int v = 0xff000000;
-                v |= ((colors[2] + colors[6]) >>> 1) << 16;
-                v |= ((colors[1] + colors[5]) >>> 1) << 8;
-                v |=  (colors[0] + colors[4]) >>> 1;
-                imgData[ofs] = v;
-              }
-            } else {
-              if ((c & 0xffff) > ((c >>> 16) & 0xffff)) {
-                // 33% c0, 66% c1
-                int v = 0xff000000;
-                v |= ((colors[2] + (colors[6] << 1)) / 3) << 16;
-                v |= ((colors[1] + (colors[5] << 1)) / 3) << 8;
-                v |=  (colors[0] + (colors[4] << 1)) / 3;
-                imgData[ofs] = v;
-              } else {
-                // transparent
-                imgData[ofs] = 0;
-              }
-            }
-          }
-
-          pvrOfs += wordSize;
-          imgOfs += 4;
-        }
-        pvrOfs += (wordImageWidth - wordRectWidth)*wordSize;
-        imgOfs += imgWidthAligned*4 - rect.width;
-      }
-      imgData = null;
-
-      // rendering aligned image to target image
-      if (alignedImage != null) {
-        Graphics2D g = image.createGraphics();
-        try {
-          g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC));
-          g.drawImage(alignedImage, 0, 0, region.width, region.height,
-                      region.x, region.y, region.x+region.width, region.y+region.height, null);
-        } finally {
-          g.dispose();
-          g = null;
-        }
-        alignedImage = null;
-      }
-      return true;
+      return decode(pvr, image, region, PixelFormat.DXT1);
     }
 
     /**
@@ -829,114 +731,7 @@ public static boolean decodeDXT1(PvrInfo pvr, BufferedImage image, Rectangle reg
      */
     public static boolean decodeDXT3(PvrInfo pvr, BufferedImage image, Rectangle region) throws Exception
     {
-      if (pvr == null || image == null || region == null) {
-        return false;
-      }
-
-      int imgWidth = image.getWidth();
-      int imgHeight = image.getHeight();
-      int[] imgData = null;
-
-      // checking region bounds and alignment
-      if (region.x < 0) {region.width += -region.x; region.x = 0; }
-      if (region.y < 0) {region.height += -region.y; region.y = 0; }
-      if (region.x + region.width > pvr.width) region.width = pvr.width - region.x;
-      if (region.y + region.height > pvr.height) region.height = pvr.height - region.y;
-      Rectangle rect = alignRectangle(region, 4, 4);
-
-      // preparing aligned image buffer for faster rendering
-      BufferedImage alignedImage = null;
-      int imgWidthAligned;
-      if (!region.equals(rect)) {
-        alignedImage = new BufferedImage(rect.width, rect.height, BufferedImage.TYPE_INT_ARGB);
-        imgWidthAligned = alignedImage.getWidth();
-        imgData = ((DataBufferInt)alignedImage.getRaster().getDataBuffer()).getData();
-        // translating "region" to be relative to "rect"
-        region.x -= rect.x;
-        region.y -= rect.y;
-        if (imgWidth < region.width) {
-          region.width= imgWidth;
-        }
-        if (imgHeight < region.height) {
-          region.height = imgHeight;
-        }
-      } else {
-        imgWidthAligned = imgWidth;
-        imgData = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
-      }
-
-      final int wordSize = 16;                  // data size of an encoded 4x4 pixel block
-      int wordImageWidth = pvr.width >>> 2;     // the image width in data blocks
-      int wordRectWidth = rect.width >>> 2;     // the aligned region's width in data blocks
-      int wordRectHeight = rect.height >>> 2;   // the aligned region's height in data blocks
-      int wordPosX = rect.x >>> 2;
-      int wordPosY = rect.y >>> 2;
-
-      int[] colors = new int[8];
-      int pvrOfs = (wordPosY*wordImageWidth + wordPosX)*wordSize;
-      int imgOfs = 0;
-      for (int y = 0; y < wordRectHeight; y++) {
-        for (int x = 0; x < wordRectWidth; x++) {
-          // decoding single DXT3 block
-          long alpha = DynamicArray.getByte(pvr.data, pvrOfs);
-          int c = DynamicArray.getInt(pvr.data, pvrOfs+8);
-          unpackColors565(c, colors);
-          int code = DynamicArray.getInt(pvr.data, pvrOfs+12);
-          for (int idx = 0; idx < 16; idx++, code >>>= 2, alpha >>>= 4) {
-            // calculating alpha (4 bit -> 8 bit)
-            int ofs = imgOfs + (idx >>> 2)*imgWidthAligned + (idx & 3);
-            int color = (int)(alpha & 0xf) << 24;
-            color |= color << 4;
-            // decoding pixels
-            if ((code & 3) == 0) {
-              // 100% c0, 0% c1
-              color |= (colors[2] << 16) | (colors[1] << 8) | colors[0];
-            } else if ((code & 3) == 1) {
-              // 0% c0, 100% c1
-              color |= (colors[6] << 16) | (colors[5] << 8) | colors[4];
-            } else if ((code & 3) == 2) {
-              // 66% c0, 33% c1
-              int v = (((colors[2] << 1) + colors[6]) / 3) << 16;
-              color |= v;
-              v = (((colors[1] << 1) + colors[5]) / 3) << 8;
-              color |= v;
-              v = ((colors[0] << 1) + colors[4]) / 3;
-              color |= v;
-            } else {
-              // 33% c0, 66% c1
-              int v = ((colors[2] + (colors[6] << 1)) / 3) << 16;
-              color |= v;
-              v = ((colors[1] + (colors[5] << 1)) / 3) << 8;
-              color |= v;
-              v = (colors[0] + (colors[4] << 1)) / 3;
-              if (v > 255) v = 255;
-              color |= v;
-            }
-            imgData[ofs] = color;
-          }
-
-          pvrOfs += wordSize;
-          imgOfs += 4;
-        }
-        pvrOfs += (wordImageWidth - wordRectWidth)*wordSize;
-        imgOfs += (imgWidthAligned << 2) - rect.width;
-      }
-      imgData = null;
-
-      // rendering aligned image to target image
-      if (alignedImage != null) {
-        Graphics2D g = image.createGraphics();
-        try {
-          g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC));
-          g.drawImage(alignedImage, 0, 0, region.width, region.height,
-                      region.x, region.y, region.x+region.width, region.y+region.height, null);
-        } finally {
-          g.dispose();
-          g = null;
-        }
-        alignedImage = null;
-      }
-      return true;
+      return decode(pvr, image, region, PixelFormat.DXT3);
     }
 
     /**
@@ -948,6 +743,13 @@ public static boolean decodeDXT3(PvrInfo pvr, BufferedImage image, Rectangle reg
      * @throws Exception on error.
      */
     public static boolean decodeDXT5(PvrInfo pvr, BufferedImage image, Rectangle region) throws Exception
+    {
+      return decode(pvr, image, region, PixelFormat.DXT5);
+    }
+
+    // Decodes the specified region of DXT1, DXT3 or DXT5 data into "image".
+    private static boolean decode(PvrInfo pvr, BufferedImage image, Rectangle region, PixelFormat format)
+        throws Exception
     {
       if (pvr == null || image == null || region == null) {
         return false;
@@ -985,79 +787,34 @@ public static boolean decodeDXT5(PvrInfo pvr, BufferedImage image, Rectangle reg
         imgData = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
       }
 
-      final int wordSize = 16;                  // data size of an encoded 4x4 pixel block
-      int wordImageWidth = pvr.width >>> 2;     // the image width in data blocks
-      int wordRectWidth = rect.width >>> 2;     // the aligned region's width in data blocks
-      int wordRectHeight = rect.height >>> 2;   // the aligned region's height in data blocks
-      int wordPosX = rect.x >>> 2;
-      int wordPosY = rect.y >>> 2;
-
-      int[] alpha = new int[8];
-      int[] colors = new int[8];
-      int pvrOfs = (wordPosY*wordImageWidth + wordPosX)*wordSize;
-      int imgOfs = 0;
-      for (int y = 0; y < wordRectHeight; y++) {
-        for (int x = 0; x < wordRectWidth; x++) {
-          // creating alpha table
-          alpha[0] = DynamicArray.getByte(pvr.data, pvrOfs) & 0xff;
-          alpha[1] = DynamicArray.getByte(pvr.data, pvrOfs+1) & 0xff;
-          if (alpha[0] > alpha[1]) {
-            alpha[2] = (6*alpha[0] +   alpha[1]) / 7;
-            alpha[3] = (5*alpha[0] + 2*alpha[1]) / 7;
-            alpha[4] = (4*alpha[0] + 3*alpha[1]) / 7;
-            alpha[5] = (3*alpha[0] + 4*alpha[1]) / 7;
-            alpha[6] = (2*alpha[0] + 5*alpha[1]) / 7;
-            alpha[7] = (  alpha[0] + 6*alpha[1]) / 7;
-          } else {
-            alpha[2] = (4*alpha[0] +   alpha[1]) / 5;
-            alpha[3] = (3*alpha[0] + 2*alpha[1]) / 5;
-            alpha[4] = (2*alpha[0] + 3*alpha[1]) / 5;
-            alpha[5] = (  alpha[0] + 4*alpha[1]) / 5;
-            alpha[6] = 0;
-            alpha[7] = 255;
-          }
-
-          // decoding single DXT5 block
-          long ctrl = DynamicArray.getLong(pvr.data, pvrOfs+2) & 0xffffffffffffL;
-          int c = DynamicArray.getInt(pvr.data, pvrOfs+8);
-          unpackColors565(c, colors);
-          int code = DynamicArray.getInt(pvr.data, pvrOfs+12);
-          for (int idx = 0; idx < 16; idx++, code >>>= 2, ctrl >>>= 3) {
-            int ofs = imgOfs + (idx >>> 2)*imgWidthAligned + (idx & 3);
-            int color = alpha[(int)(ctrl & 7L)] << 24;
-            if ((code & 3) == 0) {
-              // 100% c0, 0% c1
-              color |= (colors[2] << 16) | (colors[1] << 8) | colors[0];
-            } else if ((code & 3) == 1) {
-              // 0% c0, 100% c1
-              color |= (colors[6] << 16) | (colors[5] << 8) | colors[4];
-            } else if ((code & 3) == 2) {
-              // 66% c0, 33% c1
-              int v = (((colors[2] << 1) + colors[6]) / 3) << 16;
-              color |= v;
-              v = (((colors[1] << 1) + colors[5]) / 3) << 8;
-              color |= v;
-              v = ((colors[0] << 1) + colors[4]) / 3;
-              color |= v;
-            } else {
-              // 33% c0, 66% c1
-              int v = ((colors[2] + (colors[6] << 1)) / 3) << 16;
-              color |= v;
-              v = ((colors[1] + (colors[5] << 1)) / 3) << 8;
-              color |= v;
-              v = (colors[0] + (colors[4] << 1)) / 3;
-              if (v > 255) v = 255;
-              color |= v;
-            }
-            imgData[ofs] = color;
-          }
-
-          pvrOfs += wordSize;
-          imgOfs += 4;
-        }
-        pvrOfs += (wordImageWidth - wordRectWidth)*wordSize;
-        imgOfs += (imgWidthAligned << 2) - rect.width;
+      final int wordSize = (format == PixelFormat.DXT1) ? 8 : 16;   // data size of an encoded 4x4 pixel block
+      final int wordImageWidth = pvr.width >>> 2;     // the image width in data blocks
+      final int wordRectWidth = rect.width >>> 2;     // the aligned region's width in data blocks
+      final int wordRectHeight = rect.height >>> 2;   // the aligned region's height in data blocks
+      final int wordPosX = rect.x >>> 2;
+      final int wordPosY = rect.y >>> 2;
+      final int stride = imgWidthAligned;
+      final int[] pixels = imgData;
+
+      // each row of blocks is decoded independently
+      IntStream rows = IntStream.range(0, wordRectHeight);
+      if (wordRectWidth*wordRectHeight >= PARALLEL_MIN_BLOCKS) {
+        rows = rows.parallel();
       }
+      rows.forEach(y -> {
+        int pvrOfs = ((wordPosY + y)*wordImageWidth + wordPosX)*wordSize;
+        int imgOfs = (y << 2)*stride;
+        switch (format) {
+          case DXT1:
+            decodeRowDXT1(pvr.data, pvrOfs, wordRectWidth, pixels, imgOfs, stride);
+            break;
+          case DXT3:
+            decodeRowDXT3(pvr.data, pvrOfs, wordRectWidth, pixels, imgOfs, stride);
+            break;
+          default:
+            decodeRowDXT5(pvr.data, pvrOfs, wordRectWidth, pixels, imgOfs, stride);
+        }
+      });
       imgData = null;
 
       // rendering aligned image to target image
@@ -1076,18 +833,117 @@ public static boolean decodeDXT5(PvrInfo pvr, BufferedImage image, Rectangle reg
       return true;
     }
 
+    // Decodes a row of "count" DXT1 blocks
+    private static void decodeRowDXT1(byte[] data, int pvrOfs, int count, int[] imgData, int imgOfs, int stride)
+    {
+      final int[] colors = new int[4];
+      for (int x = 0; x < count; x++, pvrOfs += 8, imgOfs += 4) {
+        int c = getInt(data, pvrOfs);
+        createColorTable(c, (c & 0xffff) > (c >>> 16), 0xff000000, colors);
+        int code = getInt(data, pvrOfs+4);
+        for (int ofs = imgOfs, i = 0; i < 4; i++, ofs += stride, code >>>= 8) {
+          imgData[ofs]   = colors[code & 3];
+          imgData[ofs+1] = colors[(code >>> 2) & 3];
+          imgData[ofs+2] = colors[(code >>> 4) & 3];
+          imgData[ofs+3] = colors[(code >>> 6) & 3];
+        }
+      }
+    }
 
-    // Converts two RGB565 words into separate components, ordered { B, G, R, A, B, G, R, A }
-    private static void unpackColors565(int inData, int[] outData)
+    // Decodes a row of "count" DXT3 blocks
+    private static void decodeRowDXT3(byte[] data, int pvrOfs, int count, int[] imgData, int imgOfs, int stride)
     {
-      outData[0] = ((inData << 3)  & 0xf8) | (inData >>> 2)  & 0x07;      // b1
-      outData[1] = ((inData >>> 3) & 0xfc) | (inData >>> 9)  & 0x03;      // g1
-      outData[2] = ((inData >>> 8) & 0xf8) | (inData >>> 13) & 0x07;      // r1
-      outData[3] = 255;                                                   // a1
-      outData[4] = ((inData >>> 13) & 0xf8) | (inData >>> 18) & 0x07;     // b2
-      outData[5] = ((inData >>> 19) & 0xfc) | (inData >>> 25) & 0x03;     // g2
-      outData[6] = ((inData >>> 24) & 0xf8) | (inData >>> 29) & 0x07;     // r2
-      outData[7] = 255;                                                   // a2
+      final int[] colors = new int[4];
+      for (int x = 0; x < count; x++, pvrOfs += 16, imgOfs += 4) {
+        // explicit alpha: 4 bits per pixel, expanded to 8 bits
+        long alpha = (getInt(data, pvrOfs) & 0xffffffffL) | ((long)getInt(data, pvrOfs+4) << 32);
+        createColorTable(getInt(data, pvrOfs+8), true, 0, colors);
+        int code = getInt(data, pvrOfs+12);
+        for (int ofs = imgOfs, i = 0; i < 4; i++, ofs += stride, code >>>= 8, alpha >>>= 16) {
+          imgData[ofs]   = (int)((alpha & 0xfL) * 0x11L) << 24 | colors[code & 3];
+          imgData[ofs+1] = (int)(((alpha >>> 4) & 0xfL) * 0x11L) << 24 | colors[(code >>> 2) & 3];
+          imgData[ofs+2] = (int)(((alpha >>> 8) & 0xfL) * 0x11L) << 24 | colors[(code >>> 4) & 3];
+          imgData[ofs+3] = (int)(((alpha >>> 12) & 0xfL) * 0x11L) << 24 | colors[(code >>> 6) & 3];
+        }
+      }
+    }
+
+    // Decodes a row of "count" DXT5 blocks
+    private static void decodeRowDXT5(byte[] data, int pvrOfs, int count, int[] imgData, int imgOfs, int stride)
+    {
+      final int[] colors = new int[4];
+      final int[] alpha = new int[8];
+      for (int x = 0; x < count; x++, pvrOfs += 16, imgOfs += 4) {
+        int a = getInt(data, pvrOfs);
+        createAlphaTable(a & 0xff, (a >>> 8) & 0xff, alpha);
+        // interpolated alpha: 3 bits per pixel
+        long ctrl = (a >>> 16) | ((getInt(data, pvrOfs+4) & 0xffffffffL) << 16);
+        createColorTable(getInt(data, pvrOfs+8), true, 0, colors);
+        int code = getInt(data, pvrOfs+12);
+        for (int ofs = imgOfs, i = 0; i < 4; i++, ofs += stride, code >>>= 8, ctrl >>>= 12) {
+          imgData[ofs]   = alpha[(int)ctrl & 7] | colors[code & 3];
+          imgData[ofs+1] = alpha[(int)(ctrl >>> 3) & 7] | colors[(code >>> 2) & 3];
+          imgData[ofs+2] = alpha[(int)(ctrl >>> 6) & 7] | colors[(code >>> 4) & 3];
+          imgData[ofs+3] = alpha[(int)(ctrl >>> 9) & 7] | colors[(code >>> 6) & 3];
+        }
+      }
+    }
+
+    // Creates the 4-entry color table of a block from two RGB565 words.
+    // "fourColors" selects between four interpolated colors and three colors plus transparency.
+    private static void createColorTable(int c, boolean fourColors, int alpha, int[] colors)
+    {
+      final int b0 = ((c << 3)  & 0xf8) | (c >>> 2)  & 0x07;
+      final int g0 = ((c >>> 3) & 0xfc) | (c >>> 9)  & 0x03;
+      final int r0 = ((c >>> 8) & 0xf8) | (c >>> 13) & 0x07;
+      final int b1 = ((c >>> 13) & 0xf8) | (c >>> 18) & 0x07;
+      final int g1 = ((c >>> 19) & 0xfc) | (c >>> 25) & 0x03;
+      final int r1 = ((c >>> 24) & 0xf8) | (c >>> 29) & 0x07;
+      colors[0] = alpha | (r0 << 16) | (g0 << 8) | b0;
+      colors[1] = alpha | (r1 << 16) | (g1 << 8) | b1;
+      if (fourColors) {
+        // 66% c0, 33% c1 and 33% c0, 66% c1
+        colors[2] = alpha | ((((r0 << 1) + r1) / 3) << 16) | ((((g0 << 1) + g1) / 3) << 8) | (((b0 << 1) + b1) / 3);
+        colors[3] = alpha | (((r0 + (r1 << 1)) / 3) << 16) | (((g0 + (g1 << 1)) / 3) << 8) | ((b0 + (b1 << 1)) / 3);
+      } else {
+        // 50% c0, 50% c1 and transparent
+        colors[2] = alpha | (((r0 + r1) >>> 1) << 16) | (((g0 + g1) >>> 1) << 8) | ((b0 + b1) >>> 1);
+        colors[3] = 0;
+      }
+    }
+
+    // Creates the 8-entry alpha table of a DXT5 block. Values are shifted to the alpha channel position.
+    private static void createAlphaTable(int a0, int a1, int[] alpha)
+    {
+      alpha[0] = a0;
+      alpha[1] = a1;
+      if (a0 > a1) {
+        alpha[2] = (6*a0 +   a1) / 7;
+        alpha[3] = (5*a0 + 2*a1) / 7;
+        alpha[4] = (4*a0 + 3*a1) / 7;
+        alpha[5] = (3*a0 + 4*a1) / 7;
+        alpha[6] = (2*a0 + 5*a1) / 7;
+        alpha[7] = (  a0 + 6*a1) / 7;
+      } else {
+        alpha[2] = (4*a0 +   a1) / 5;
+        alpha[3] = (3*a0 + 2*a1) / 5;
+        alpha[4] = (2*a0 + 3*a1) / 5;
+        alpha[5] = (  a0 + 4*a1) / 5;
+        alpha[6] = 0;
+        alpha[7] = 255;
+      }
+      for (int i = 0; i < 8; i++) {
+        alpha[i] <<= 24;
+      }
+    }
+
+    // Reads a little-endian int value. Returns 0 for data beyond the buffer bounds.
+    private static int getInt(byte[] data, int ofs)
+    {
+      if (ofs + 3 < data.length) {
+        return (data[ofs] & 0xff) | ((data[ofs+1] & 0xff) << 8) | ((data[ofs+2] & 0xff) << 16) | (data[ofs+3] << 24);
+      }
+      return DynamicArray.getInt(data, ofs);
     }
   }
 
@@ -1095,12 +951,6 @@ private static void unpackColors565(int inData, int[] outData)
   // Decodes PVRTC pixel data.
   private static class DecodePVRT
   {
-    // The local cache list for decoded PVR textures. The "key" has to be a unique PvrInfo structure.
-    private static final Map<PvrInfo, BufferedImage> textureCache =
-        Collections.synchronizedMap(new LinkedHashMap<PvrInfo, BufferedImage>());
-    // The max. number of cache entries to hold
-    private static int MaxCacheEntries = 8;
-
     // Datatypes as used in the reference implementation:
     // Pixel32/128S:      int[]{red, green, blue, alpha}
     // PVRTCWord:         int[]{modulation, color}
@@ -1121,36 +971,17 @@ private static void unpackColors565(int inData, int[] outData)
     private static final int BLK_COL  = 1;
 
 
-    /** Removes all PvrDecoder objects from the cache. */
-    public static void flushCache()
-    {
-      textureCache.clear();
-    }
-
-    // Returns a PvrDecoder object only if it already exists in the cache.
+    // Returns the decoded texture of the specified PVR structure if available in the cache.
     private static BufferedImage getCachedImage(PvrInfo pvr)
     {
-      BufferedImage retVal = null;
-      if (pvr != null) {
-        if (textureCache.containsKey(pvr)) {
-          retVal = textureCache.get(pvr);
-          // re-inserting entry to prevent premature removal from cache
-          textureCache.remove(pvr);
-          textureCache.put(pvr, retVal);
-        }
-      }
-      return retVal;
+      return (pvr != null) ? (BufferedImage)pvrCache.get(pvr) : null;
     }
 
-    // Returns a PvrDecoder object of the specified key if available, or creates and returns a new one otherwise.
+    // Adds the decoded texture of the specified PVR structure to the cache.
     private static void registerCachedImage(PvrInfo pvr, BufferedImage image)
     {
-      if (pvr != null && getCachedImage(pvr) == null && image != null) {
-        textureCache.put(pvr, image);
-        // removing excess cache entries
-        while (textureCache.size() > MaxCacheEntries) {
-          textureCache.remove(textureCache.keySet().iterator().next());
-        }
+      if (pvr != null && image != null) {
+        pvrCache.putIfAbsent(pvr, image);
       }
     }
 
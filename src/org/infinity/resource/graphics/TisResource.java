@@ -83,7 +83,6 @@
 import org.infinity.search.ReferenceSearcher;
 import org.infinity.util.BinPack2D;
 import org.infinity.util.DynamicArray;
-import org.infinity.util.IntegerHashMap;
 import org.infinity.util.io.FileEx;
 import org.infinity.util.io.StreamUtils;
 
@@ -676,9 +675,8 @@ public Status convertToPaletteTis(Path output, boolean showProgress)
           BufferedImage image =
               ColorConvert.createCompatibleImage(decoder.getTileWidth(), decoder.getTileHeight(),
                                                  Transparency.BITMASK);
-          IntegerHashMap<Byte> colorCache = new IntegerHashMap<>(1800);   // caching RGBColor -> index
+          PaletteMatcher matcher = new PaletteMatcher(palette, 0.0, null);   // maps RGBColor -> palette index
           for (int tileIdx = 0; tileIdx < decoder.getTileCount(); tileIdx++) {
-            colorCache.clear();
             if (progress != null && progress.isCanceled()) {
               retVal = Status.CANCELLED;
               break;
@@ -702,6 +700,7 @@ public Status convertToPaletteTis(Path output, boolean showProgress)
 
             int[] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
             if (ColorConvert.medianCut(pixels, 255, palette, true)) {
+              matcher.setPalette(palette);
               // filling palette
               // first palette entry denotes transparency
               tilePalette[0] = tilePalette[2] = tilePalette[3] = 0; tilePalette[1] = (byte)255;
@@ -710,21 +709,14 @@ public Status convertToPaletteTis(Path output, boolean showProgress)
                 tilePalette[(i << 2) + 1] = (byte)((palette[i - 1] >>> 8) & 0xff);
                 tilePalette[(i << 2) + 2] = (byte)((palette[i - 1] >>> 16) & 0xff);
                 tilePalette[(i << 2) + 3] = 0;
-                colorCache.put(palette[i - 1], (byte)(i - 1));
+                matcher.setColorIndex(palette[i - 1], i - 1);
               }
               // filling pixel data
               for (int i = 0; i < tileData.length; i++) {
                 if ((pixels[i] & 0xff000000) == 0) {
                   tileData[i] = 0;
                 } else {
-                  Byte palIndex = colorCache.get(pixels[i]);
-                  if (palIndex != null) {
-                    tileData[i] = (byte)(palIndex + 1);
-                  } else {
-                    byte color = (byte)ColorConvert.getNearestColor(pixels[i], palette, 0.0, null);
-                    tileData[i] = (byte)(color + 1);
-                    colorCache.put(pixels[i], color);
-                  }
+                  tileData[i] = (byte)(matcher.getNearestColor(pixels[i]) + 1);
                 }
               }
             } else {
@@ -1106,7 +1098,7 @@ private Status writePvrzPages(Path tisFile, List<BinPack2D> pageList,
         try {
           // compressing PVRZ
           int outSize = DxtEncoder.calcImageSize(texture.getWidth(), texture.getHeight(), dxtType);
-          DxtEncoder.encodeImage(textureData, texture.getWidth(), texture.getHeight(), output, dxtType);
+          DxtEncoder.encodeImage(textureData, texture.getWidth(), texture.getHeight(), output, dxtType, 0);
           byte[] header = ConvertToPvrz.createPVRHeader(texture.getWidth(), texture.getHeight(), dxtCode);
           byte[] pvrz = new byte[header.length + outSize];
           System.arraycopy(header, 0, pvrz, 0, header.length);
@@ -9,7 +9,9 @@
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.infinity.util.io.StreamUtils;
 
@@ -28,14 +30,25 @@ public enum Type {
     BIFC,
   }
 
+  /** Default max. number of {@code AbstractBIFFReader} instances kept in the cache. */
+  public static final int DEFAULT_CACHE_SIZE = 128;
+
   // A cache for AbstractBIFFReader instances
-  private static final LinkedHashMap<Path, AbstractBIFFReader> BIFF_CACHE = new LinkedHashMap<>();
+  private static final ConcurrentHashMap<Path, AbstractBIFFReader> BIFF_CACHE = new ConcurrentHashMap<>();
+  // Provides access timestamps for the LRU eviction strategy of the cache
+  private static final AtomicLong CACHE_CLOCK = new AtomicLong();
+
+  // Max. number of cached AbstractBIFFReader instances
+  private static volatile int cacheSize = DEFAULT_CACHE_SIZE;
 
   // Maps resource locators to BIFF entry structures
   private final HashMap<Integer, Entry> mapEntries = new HashMap<>();
 
   protected final Path file;
 
+  // Time of last access through the cache
+  private volatile long lastAccess;
+
   /**
    * Opens the specified BIFF file (of any supported type) and returns it fully initialized and
    * ready for read operations as a BIFFReader object.
@@ -43,7 +56,7 @@ public enum Type {
    * @return A BIFFReader object for accessing the BIFF archive.
    * @throws IOException On error.
    */
-  public static synchronized AbstractBIFFReader open(Path file) throws Exception
+  public static AbstractBIFFReader open(Path file) throws Exception
   {
     return queryBIFFReader(file);
   }
@@ -64,7 +77,28 @@ public static ByteBuffer getTisHeader(int tileCount, int tileSize)
   /** Removes all {@code AbstractBIFFReader} entries from the cache. */
   public static void resetCache()
   {
-    BIFF_CACHE.clear();
+    for (final Path key : BIFF_CACHE.keySet()) {
+      AbstractBIFFReader reader = BIFF_CACHE.remove(key);
+      if (reader != null) {
+        reader.dispose();
+      }
+    }
+  }
+
+  /** Returns the max. number of {@code AbstractBIFFReader} instances kept in the cache. */
+  public static int getCacheSize()
+  {
+    return cacheSize;
+  }
+
+  /**
+   * Sets the max. number of {@code AbstractBIFFReader} instances kept in the cache.
+   * Least recently used entries are removed from the cache when the limit is exceeded.
+   */
+  public static void setCacheSize(int size)
+  {
+    cacheSize = Math.max(1, size);
+    trimCache();
   }
 
   // Fetches a cached AbstractBIFFReader associated of the specified path or creates a new one
@@ -72,7 +106,6 @@ private static AbstractBIFFReader queryBIFFReader(Path file) throws Exception
   {
     AbstractBIFFReader retVal = null;
     if (file != null) {
-      // get and remove an available cached entry
       retVal = BIFF_CACHE.get(file);
       if (retVal == null) {
         Type type = detectBiffType(file);
@@ -89,12 +122,40 @@ private static AbstractBIFFReader queryBIFFReader(Path file) throws Exception
           default:
             throw new IOException("Unsupported BIFF type");
         }
-        BIFF_CACHE.put(file, retVal);
+
+        // another thread may have registered a reader in the meantime
+        AbstractBIFFReader reader = BIFF_CACHE.putIfAbsent(file, retVal);
+        if (reader != null) {
+          retVal.dispose();
+          retVal = reader;
+        } else if (BIFF_CACHE.size() > cacheSize) {
+          retVal.lastAccess = CACHE_CLOCK.incrementAndGet();
+          trimCache();
+        }
       }
+      retVal.lastAccess = CACHE_CLOCK.incrementAndGet();
     }
     return retVal;
   }
 
+  // Removes least recently used entries until the cache size is within bounds
+  private static void trimCache()
+  {
+    while (BIFF_CACHE.size() > cacheSize) {
+      Map.Entry<Path, AbstractBIFFReader> oldest = null;
+      for (final Map.Entry<Path, AbstractBIFFReader> entry : BIFF_CACHE.entrySet()) {
+        if (oldest == null || entry.getValue().lastAccess < oldest.getValue().lastAccess) {
+          oldest = entry;
+        }
+      }
+      if (oldest == null) {
+        break;
+      }
+      if (BIFF_CACHE.remove(oldest.getKey(), oldest.getValue())) {
+        oldest.getValue().dispose();
+      }
+    }
+  }
 
   /** Returns whether the BIFF file uses any kind of compression. */
   public boolean isCompressed()
@@ -159,6 +220,15 @@ public int[] getResourceInfo(int locator) throws IOException
    */
   public abstract InputStream getResourceAsStream(int locator) throws IOException;
 
+  /**
+   * Releases temporary resources associated with the BIFF archive. Does nothing by default.
+   * Implementations must remain usable after this call, since evicted readers may still
+   * be referenced by other threads.
+   */
+  protected void dispose()
+  {
+  }
+
   protected AbstractBIFFReader(Path file) throws Exception
   {
     if (file == null) {
@@ -9,10 +9,12 @@
 import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.zip.Inflater;
 
 import org.infinity.NearInfinity;
@@ -29,6 +31,10 @@ public class BIFCReader extends AbstractBIFFReader
 
   private int uncSize;
   private int numFiles, numTilesets;
+  // Start offsets of compressed blocks in decompressed data, sorted in ascending order
+  private int[] blockOffsets;
+  // File positions of compressed block headers, matching the entries in blockOffsets
+  private long[] blockPositions;
 
   protected BIFCReader(Path file) throws Exception
   {
@@ -50,6 +56,8 @@ public synchronized void open() throws Exception
       if (this.uncSize < 0) {
         throw new Exception("Invalid BIFF archive");
       }
+
+      initBlocks(channel);
     }
     init();
   }
@@ -102,10 +110,7 @@ public ByteBuffer getResourceBuffer(int locator) throws IOException
       blocker.setBlocked(true);
     }
 
-    try (InputStream is = new BifcInputStream(
-        new BufferedInputStream(
-            Files.newInputStream(getFile(), StandardOpenOption.READ)),
-        entry.offset, size)) {
+    try (InputStream is = openBlockStream(entry.offset, size)) {
       StreamUtils.readBytes(is, buffer);
     } finally {
       blocker.setBlocked(false);
@@ -127,20 +132,72 @@ public InputStream getResourceAsStream(int locator) throws IOException
       ByteBuffer header = getTisHeader(entry.count, entry.size);
       InputStream is1 = new ByteBufferInputStream(header);
       @SuppressWarnings("resource")
-      InputStream is2 = new BifcInputStream(
-          new BufferedInputStream(
-              Files.newInputStream(getFile(), StandardOpenOption.READ)),
-          entry.offset, entry.count*entry.size);
+      InputStream is2 = openBlockStream(entry.offset, entry.count*entry.size);
       InputStream is = new SequenceInputStream(is1, is2);
       return is;
     } else {
-      return new BifcInputStream(
-          new BufferedInputStream(
-              Files.newInputStream(getFile(), StandardOpenOption.READ)),
-          entry.offset, entry.size);
+      return openBlockStream(entry.offset, entry.size);
     }
   }
 
+  // Returns an input stream over the specified range of decompressed data, starting directly
+  // at the compressed block containing the start offset.
+  private InputStream openBlockStream(int offset, int size) throws IOException
+  {
+    int index = Arrays.binarySearch(blockOffsets, offset);
+    if (index < 0) {
+      index = Math.max(0, -index - 2);
+    }
+
+    FileChannel channel = FileChannel.open(getFile(), StandardOpenOption.READ);
+    try {
+      channel.position(blockPositions[index]);
+      return new BifcInputStream(new BufferedInputStream(Channels.newInputStream(channel)),
+                                 uncSize, blockOffsets[index], offset, size);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  // Builds a table of decompressed block offsets and their associated file positions
+  private void initBlocks(FileChannel channel) throws Exception
+  {
+    int capacity = 64;
+    int[] offsets = new int[capacity];
+    long[] positions = new long[capacity];
+    int count = 0;
+
+    int curOfs = 0;
+    long pos = channel.position();
+    long fileSize = channel.size();
+    while (curOfs < uncSize && pos + 8 <= fileSize) {
+      int blockUncSize = StreamUtils.readInt(channel);
+      int blockCompSize = StreamUtils.readInt(channel);
+      if (blockUncSize < 0 || blockCompSize < 0) {
+        throw new Exception("Invalid BIFF block header");
+      }
+      if (count == capacity) {
+        capacity *= 2;
+        offsets = Arrays.copyOf(offsets, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+      }
+      offsets[count] = curOfs;
+      positions[count] = pos;
+      count++;
+
+      curOfs += blockUncSize;
+      pos += 8 + blockCompSize;
+      channel.position(pos);
+    }
+
+    if (count == 0) {
+      throw new Exception("Invalid BIFF archive");
+    }
+    this.blockOffsets = Arrays.copyOf(offsets, count);
+    this.blockPositions = Arrays.copyOf(positions, count);
+  }
+
 
   private void init() throws Exception
   {
@@ -238,6 +295,40 @@ public BifcInputStream(InputStream is, int offset, int size) throws IOException
       skip(offset);
     }
 
+    /**
+     * Constructs an InputStream over a specific section of a BIFC archive, starting at an
+     * arbitrary compressed block.
+     * @param is The BIFC archive as input stream, positioned at the header of a compressed block.
+     * @param uncSize Total size of decompressed BIFF data.
+     * @param blockOffset Start offset of the compressed block in decompressed BIFF data.
+     * @param offset Start offset in decompressed BIFF data. Must not be less than {@code blockOffset}.
+     * @param size Size of decompressed BIFF data to map.
+     *             Specify -1 to map until the end of decompressed data.
+     */
+    public BifcInputStream(InputStream is, int uncSize, int blockOffset, int offset, int size)
+        throws IOException
+    {
+      if (is == null) {
+        throw new NullPointerException();
+      }
+      this.input = is;
+      if (blockOffset < 0 || blockOffset > offset || offset > uncSize) {
+        throw new IOException("Start offset is out of bounds");
+      }
+      if (size < 0) {
+        size = uncSize - offset;
+      }
+      if (size < 0 || offset+size > uncSize) {
+        throw new IOException("Size is out of bounds");
+      }
+      this.endOffset = offset + size;
+      this.position = blockOffset;
+      this.inflater = new Inflater();
+      this.bufOfs = 0;
+      this.bufLen = 0;
+      skip(offset - blockOffset);
+    }
+
     @Override
     public int read() throws IOException
     {
@@ -367,7 +458,7 @@ private boolean updateBuffer(boolean skipOnly, int condition) throws Exception
           if (outBuffer == null || outBuffer.length < uncSize) {
             outBuffer = new byte[uncSize];
           }
-          input.read(inBuffer, 0, compSize);
+          StreamUtils.readBytes(input, inBuffer, 0, compSize);
           inflater.reset();
           inflater.setInput(inBuffer, 0, compSize);
           if (inflater.inflate(outBuffer, 0, uncSize) != uncSize) {
@@ -0,0 +1,58 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.key;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders resource entries by their physical location, so that processing them in sequence
+ * reads each BIFF archive once from start to end instead of hopping between archives.
+ */
+public final class BIFFLocality
+{
+  // Orders by KEY file, BIFF index and resource index within the BIFF archive
+  private static final Comparator<BIFFResourceEntry> LOCATOR_COMPARATOR = (a, b) -> {
+    int retVal = a.getKeyfile().compareTo(b.getKeyfile());
+    return (retVal != 0) ? retVal : Integer.compareUnsigned(a.getLocator(), b.getLocator());
+  };
+
+  /**
+   * Returns a new list containing the specified resource entries ordered by location.
+   * <p>
+   * Resources available as separate files are placed first in their original order, followed
+   * by the BIFF resources of each archive in the order of their locators. The order is determined
+   * from the KEY file data only. Neither override folders nor BIFF archives are accessed.
+   * {@code null} entries are preserved.
+   * @param entries List of resource entries.
+   * @return List with the same resource entries in the order of their location.
+   */
+  public static List<ResourceEntry> sort(List<ResourceEntry> entries)
+  {
+    if (entries == null) {
+      return null;
+    }
+
+    final List<ResourceEntry> retVal = new ArrayList<>(entries.size());
+    final List<BIFFResourceEntry> biffEntries = new ArrayList<>();
+    for (final ResourceEntry entry : entries) {
+      if (entry instanceof BIFFResourceEntry) {
+        biffEntries.add((BIFFResourceEntry)entry);
+      } else {
+        retVal.add(entry);
+      }
+    }
+
+    Collections.sort(biffEntries, LOCATOR_COMPARATOR);
+    retVal.addAll(biffEntries);
+    return retVal;
+  }
+
+  private BIFFLocality()
+  {
+  }
+}
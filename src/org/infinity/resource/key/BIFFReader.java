@@ -8,6 +8,7 @@
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.Files;
@@ -27,6 +28,7 @@ public class BIFFReader extends AbstractBIFFReader
   private final WindowBlocker blocker;
 
   private int numFiles, numTilesets;
+  private FileChannel channel;  // shared channel for positional read operations
 
   protected BIFFReader(Path file) throws Exception
   {
@@ -38,6 +40,7 @@ protected BIFFReader(Path file) throws Exception
   @Override
   public synchronized void open() throws Exception
   {
+    dispose();
     try (FileChannel channel = FileChannel.open(getFile(), StandardOpenOption.READ)) {
       String sigver = StreamUtils.readString(channel, 8);
       if (!"BIFFV1  ".equals(sigver)) {
@@ -91,30 +94,26 @@ public ByteBuffer getResourceBuffer(int locator) throws IOException
     }
 
     ByteBuffer buffer;
-    try (FileChannel channel = FileChannel.open(getFile(), StandardOpenOption.READ)) {
-      channel.position(entry.offset);
-      if (entry.isTile) {
-        ByteBuffer header = getTisHeader(entry.count, entry.size);
-        int remaining = entry.count*entry.size + header.limit();
-        if (remaining > 1000000) {
-          blocker.setBlocked(true);
-        }
-        try {
-          buffer = StreamUtils.getByteBuffer(remaining);
-          StreamUtils.copyBytes(header, buffer, header.limit());
-          remaining -= header.limit();
-          while (channel.read(buffer) > 0) {}
-        } finally {
-          blocker.setBlocked(false);
-        }
-      } else {
-        buffer = StreamUtils.getByteBuffer(entry.size);
-        while (channel.read(buffer) > 0) {}
+    if (entry.isTile) {
+      ByteBuffer header = getTisHeader(entry.count, entry.size);
+      int remaining = entry.count*entry.size + header.limit();
+      if (remaining > 1000000) {
+        blocker.setBlocked(true);
       }
-
-      buffer.position(0);
-      return buffer;
+      try {
+        buffer = StreamUtils.getByteBuffer(remaining);
+        StreamUtils.copyBytes(header, buffer, header.limit());
+        readData(entry.offset, buffer);
+      } finally {
+        blocker.setBlocked(false);
+      }
+    } else {
+      buffer = StreamUtils.getByteBuffer(entry.size);
+      readData(entry.offset, buffer);
     }
+
+    buffer.position(0);
+    return buffer;
   }
 
   @Override
@@ -125,18 +124,73 @@ public InputStream getResourceAsStream(int locator) throws IOException
       throw new IOException("Resource not found");
     }
 
-    try (FileChannel channel = FileChannel.open(getFile(), StandardOpenOption.READ)) {
-      int size = entry.isTile ? entry.count*entry.size : entry.size;
-      ByteBuffer buffer = channel.map(MapMode.READ_ONLY, entry.offset, size).order(ByteOrder.LITTLE_ENDIAN);
-      InputStream is;
-      if (entry.isTile) {
-        ByteBuffer header = getTisHeader(entry.count, entry.size);
-        is = new ByteBufferInputStream(header, buffer);
-      } else {
-        is = new ByteBufferInputStream(buffer);
+    int size = entry.isTile ? entry.count*entry.size : entry.size;
+    ByteBuffer buffer = null;
+    for (int retry = 0; buffer == null; retry++) {
+      try {
+        buffer = getChannel().map(MapMode.READ_ONLY, entry.offset, size).order(ByteOrder.LITTLE_ENDIAN);
+      } catch (ClosedChannelException e) {
+        // channel has been closed by another thread
+        if (retry > 0) {
+          throw e;
+        }
       }
-      return is;
     }
+
+    InputStream is;
+    if (entry.isTile) {
+      ByteBuffer header = getTisHeader(entry.count, entry.size);
+      is = new ByteBufferInputStream(header, buffer);
+    } else {
+      is = new ByteBufferInputStream(buffer);
+    }
+    return is;
+  }
+
+  @Override
+  protected synchronized void dispose()
+  {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+      }
+      channel = null;
+    }
+  }
+
+  // Fills the remaining space of "buffer" with data starting at the specified file offset
+  private void readData(long offset, ByteBuffer buffer) throws IOException
+  {
+    int startPos = buffer.position();
+    for (int retry = 0; ; retry++) {
+      try {
+        FileChannel ch = getChannel();
+        long pos = offset + buffer.position() - startPos;
+        while (buffer.hasRemaining()) {
+          int n = ch.read(buffer, pos);
+          if (n < 0) {
+            break;
+          }
+          pos += n;
+        }
+        return;
+      } catch (ClosedChannelException e) {
+        // channel has been closed by another thread
+        if (retry > 0) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  // Returns the shared file channel. Opens the channel if needed.
+  private synchronized FileChannel getChannel() throws IOException
+  {
+    if (channel == null || !channel.isOpen()) {
+      channel = FileChannel.open(getFile(), StandardOpenOption.READ);
+    }
+    return channel;
   }
 
   private void init(ByteBuffer buffer, int numFiles, int numTilesets)
@@ -55,14 +55,14 @@ public BIFFResourceEntry(BIFFEntry bifEntry, String resourceName, int offset)
     }
   }
 
-  BIFFResourceEntry(Path keyFile, ByteBuffer buffer, int offset)
+  BIFFResourceEntry(Path keyFile, String resourceName, int type, int locator)
   {
-    if (keyFile == null || buffer == null) {
-      throw new NullPointerException("Path to KEY file and byte buffer with BIFF content must not be null");
+    if (keyFile == null || resourceName == null) {
+      throw new NullPointerException("Path to KEY file and resource name must not be null");
     }
     this.keyFile = keyFile;
-    this.resourceName = StreamUtils.readString(buffer, offset, 8);
-    this.type = buffer.getShort() & 0xffff;
+    this.resourceName = resourceName;
+    this.type = type;
 
     String ext = ResourceFactory.getKeyfile().getExtension(type);
     if (ext == null) {
@@ -70,9 +70,41 @@ public BIFFResourceEntry(BIFFEntry bifEntry, String resourceName, int offset)
     }
     this.extension = ext;
 
-    this.locator = buffer.getInt();
+    this.locator = locator;
   }
 
+// --------------------- Begin Interface Comparable ---------------------
+
+  @Override
+  public int compareTo(ResourceEntry entry)
+  {
+    if (entry instanceof BIFFResourceEntry && entry != this) {
+      // same result as comparing resource names, without creating the name strings
+      final BIFFResourceEntry other = (BIFFResourceEntry)entry;
+      final int len1 = resourceName.length() + 1 + extension.length();
+      final int len2 = other.resourceName.length() + 1 + other.extension.length();
+      for (int i = 0, len = Math.min(len1, len2); i < len; i++) {
+        char c1 = charAt(resourceName, extension, i);
+        char c2 = charAt(other.resourceName, other.extension, i);
+        if (c1 != c2) {
+          c1 = Character.toUpperCase(c1);
+          c2 = Character.toUpperCase(c2);
+          if (c1 != c2) {
+            c1 = Character.toLowerCase(c1);
+            c2 = Character.toLowerCase(c2);
+            if (c1 != c2) {
+              return c1 - c2;
+            }
+          }
+        }
+      }
+      return len1 - len2;
+    }
+    return super.compareTo(entry);
+  }
+
+// --------------------- End Interface Comparable ---------------------
+
 // --------------------- Begin Interface Writeable ---------------------
 
   @Override
@@ -294,7 +326,7 @@ public int getType()
   public boolean hasOverride()
   {
     // TODO: update dynamically via WatchService class?
-    if (!BrowserMenuBar.getInstance().cacheOverride()) {
+    if (BrowserMenuBar.getInstance() == null || !BrowserMenuBar.getInstance().cacheOverride()) {
       List<Path> overrides = Profile.getOverrideFolders(false);
       Path file = FileManager.query(overrides, getResourceName());
       synchronized (this) {
@@ -317,4 +349,17 @@ synchronized void adjustSourceIndex(int index)
       locator = (sourceindex << 20) | (locator & 0xfffff);
     }
   }
+
+  // Returns the character at the specified position of the resource name including extension
+  private static char charAt(String name, String ext, int index)
+  {
+    final int len = name.length();
+    if (index < len) {
+      return name.charAt(index);
+    } else if (index == len) {
+      return '.';
+    } else {
+      return ext.charAt(index - len - 1);
+    }
+  }
 }
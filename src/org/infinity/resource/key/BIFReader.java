@@ -9,10 +9,14 @@
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.InflaterInputStream;
 
 import org.infinity.NearInfinity;
@@ -25,12 +29,42 @@
  */
 public class BIFReader extends AbstractBIFFReader
 {
+  /** Default size limit for decompressed data of all BIF archives spilled to disk. */
+  public static final long DEFAULT_SPILL_LIMIT = 1024L * 1024L * 1024L;
+
+  // Max. total size of decompressed data spilled to disk
+  private static long spillLimit = DEFAULT_SPILL_LIMIT;
+  // Current total size of decompressed data spilled to disk
+  private static final AtomicLong SPILL_SIZE = new AtomicLong();
+
   private final WindowBlocker blocker;
 
   private MappedByteBuffer mappedBuffer;
+  private Path spillFile;               // temporary file containing the decompressed BIFF data
+  private FileChannel spillChannel;     // open channel of spillFile
+  private boolean spillFailed;          // indicates whether decompressed data can not be spilled to disk
+  private boolean disposed;             // indicates whether the reader has been released
+  private InflaterInputStream cursor;   // sequential fallback decoder if spill file is not available
+  private int cursorOffset;             // current position of the fallback decoder
   private int uncSize, compSize, compOffset;
   private int numFiles, numTilesets;
 
+  /** Returns the max. total size of decompressed BIF data which can be spilled to disk. */
+  public static long getSpillLimit()
+  {
+    return spillLimit;
+  }
+
+  /**
+   * Sets the max. total size of decompressed BIF data which can be spilled to disk.
+   * Archives exceeding the available budget are decompressed sequentially on demand.
+   * Specify 0 to disable spilling.
+   */
+  public static void setSpillLimit(long limit)
+  {
+    spillLimit = Math.max(0L, limit);
+  }
+
   protected BIFReader(Path file) throws Exception
   {
     super(file);
@@ -41,6 +75,7 @@ protected BIFReader(Path file) throws Exception
   @Override
   public synchronized void open() throws Exception
   {
+    dispose();
     try (FileChannel channel = FileChannel.open(getFile(), StandardOpenOption.READ)) {
       String sigver = StreamUtils.readString(channel, 8);
       if (!"BIF V1.0".equals(sigver)) {
@@ -61,6 +96,7 @@ public synchronized void open() throws Exception
       mappedBuffer.order(ByteOrder.LITTLE_ENDIAN);
     }
     init();
+    disposed = false;
   }
 
   @Override
@@ -108,13 +144,8 @@ public ByteBuffer getResourceBuffer(int locator) throws IOException
       blocker.setBlocked(true);
     }
 
-    try (InflaterInputStream iis = getInflaterInputStream()) {
-      int remaining = entry.offset;
-      while (remaining > 0) {
-        long n = iis.skip(entry.offset);
-        remaining -= n;
-      }
-      StreamUtils.readBytes(iis, buffer);
+    try {
+      readData(entry.offset, buffer);
     } finally {
       blocker.setBlocked(false);
     }
@@ -174,6 +205,187 @@ private void init() throws Exception
     }
   }
 
+  @Override
+  protected synchronized void dispose()
+  {
+    closeCursor();
+    if (spillFile != null) {
+      if (spillChannel != null) {
+        try {
+          spillChannel.close();
+        } catch (IOException e) {
+        }
+        spillChannel = null;
+      }
+      SPILL_SIZE.addAndGet(-uncSize);
+      try {
+        Files.deleteIfExists(spillFile);
+      } catch (IOException e) {
+        // file will be removed on exit
+      }
+      spillFile = null;
+    }
+    spillFailed = false;
+    disposed = true;
+  }
+
+  // Fills the remaining space of "buffer" with decompressed data starting at the specified offset
+  private void readData(int offset, ByteBuffer buffer) throws IOException
+  {
+    // positional reads of the spill file are performed without holding the lock
+    final int startPos = buffer.position();
+    for (int retry = 0; ; retry++) {
+      final FileChannel channel = getSpillChannel();
+      if (channel == null) {
+        break;
+      }
+      try {
+        long position = offset + buffer.position() - startPos;
+        while (buffer.hasRemaining()) {
+          int n = channel.read(buffer, position);
+          if (n < 0) {
+            throw new IOException("Unexpected end of decompressed data");
+          }
+          position += n;
+        }
+        return;
+      } catch (ClosedChannelException e) {
+        // channel has been closed by an interrupted thread or by dispose()
+        if (retry > 0) {
+          throw e;
+        }
+      }
+    }
+
+    readSequential(offset + buffer.position() - startPos, buffer);
+  }
+
+  // Fills the remaining space of "buffer" by decompressing the BIFF archive sequentially
+  private synchronized void readSequential(int offset, ByteBuffer buffer) throws IOException
+  {
+    if (disposed) {
+      // reader has been removed from the cache: decode without allocating resources
+      try (InflaterInputStream iis = getInflaterInputStream()) {
+        skipBytes(iis, offset);
+        StreamUtils.readBytes(iis, buffer);
+      }
+      return;
+    }
+
+    // sequential access is only possible in forward direction
+    if (cursor == null || offset < cursorOffset) {
+      closeCursor();
+      cursor = getInflaterInputStream();
+      cursorOffset = 0;
+    }
+    skipBytes(cursor, offset - cursorOffset);
+    int remaining = buffer.remaining();
+    StreamUtils.readBytes(cursor, buffer);
+    cursorOffset = offset + remaining;
+  }
+
+  // Returns the channel of the spill file, or null if decompressed data is not available on disk.
+  // Creates the spill file on first access and reopens channels closed by interrupted threads.
+  private synchronized FileChannel getSpillChannel() throws IOException
+  {
+    if (disposed) {
+      return null;
+    }
+    if (spillFile == null && !spillFailed) {
+      initSpillFile();
+    }
+    if (spillFile == null) {
+      return null;
+    }
+    if (spillChannel == null || !spillChannel.isOpen()) {
+      spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ);
+    }
+    return spillChannel;
+  }
+
+  // Decompresses the whole BIFF archive into a temporary file if enough spill budget is available.
+  // An interrupted thread does not disable spilling, it is attempted again by the next read operation.
+  private void initSpillFile() throws ClosedByInterruptException
+  {
+    long limit = spillLimit;
+    if (SPILL_SIZE.addAndGet(uncSize) > limit) {
+      SPILL_SIZE.addAndGet(-uncSize);
+      spillFailed = true;
+      return;
+    }
+
+    Path tmpFile = null;
+    FileChannel channel = null;
+    boolean success = false;
+    try {
+      tmpFile = Files.createTempFile("nearinfinity-", ".biff");
+      tmpFile.toFile().deleteOnExit();
+      channel = FileChannel.open(tmpFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try (InflaterInputStream iis = getInflaterInputStream()) {
+        byte[] buf = new byte[65536];
+        long total = 0;
+        int n;
+        while ((n = iis.read(buf)) > 0) {
+          ByteBuffer bb = ByteBuffer.wrap(buf, 0, n);
+          while (bb.hasRemaining()) {
+            channel.write(bb);
+          }
+          total += n;
+        }
+        if (total != uncSize) {
+          throw new IOException("Unexpected size of decompressed data");
+        }
+      }
+      spillChannel = channel;
+      spillFile = tmpFile;
+      success = true;
+    } catch (ClosedByInterruptException e) {
+      throw e;
+    } catch (IOException e) {
+      System.err.println("Could not decompress " + getFile().getFileName() + " to disk: " + e.getMessage());
+      spillFailed = true;
+    } finally {
+      if (!success) {
+        SPILL_SIZE.addAndGet(-uncSize);
+        if (channel != null) {
+          try {
+            channel.close();
+          } catch (IOException e) {
+          }
+        }
+        if (tmpFile != null) {
+          try {
+            Files.deleteIfExists(tmpFile);
+          } catch (IOException e) {
+          }
+        }
+      }
+    }
+  }
+
+  private void closeCursor()
+  {
+    if (cursor != null) {
+      try {
+        cursor.close();
+      } catch (IOException e) {
+      }
+      cursor = null;
+      cursorOffset = 0;
+    }
+  }
+
+  private static void skipBytes(InputStream is, int length) throws IOException
+  {
+    while (length > 0) {
+      long n = is.skip(length);
+      if (n <= 0) {
+        throw new IOException("Unexpected end of decompressed data");
+      }
+      length -= n;
+    }
+  }
+
   // Returns an inflater input stream
   private InflaterInputStream getInflaterInputStream()
   {
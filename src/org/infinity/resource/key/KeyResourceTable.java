@@ -0,0 +1,227 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.key;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.infinity.util.Misc;
+
+/**
+ * Compact table of the resource entries defined by one or more KEY files.
+ * <p>
+ * Resource names are stored as packed 8-byte resrefs together with resource type, locator
+ * and source KEY file in primitive arrays. Lookups by name and type use an open-addressing
+ * hash table. Entries of a KEY file replace existing entries of the same name and type.
+ * {@link BIFFResourceEntry} objects are created only when requested.
+ */
+final class KeyResourceTable
+{
+  private static final int EMPTY = -1;
+
+  private final List<Path> keyFiles = new ArrayList<>();
+
+  // resrefs as raw bytes in little endian order, bytes after the first null byte are cleared
+  private long[] names;
+  // case-folded resrefs used for lookups
+  private long[] keys;
+  private int[] types;
+  private int[] locators;
+  // indices into keyFiles
+  private short[] sources;
+  // lazily created resource entries
+  private BIFFResourceEntry[] entries;
+  // open-addressing hash table of entry indices
+  private int[] slots;
+  private int size;
+
+  public KeyResourceTable()
+  {
+    clear();
+  }
+
+  /** Removes all entries from the table. */
+  public synchronized void clear()
+  {
+    keyFiles.clear();
+    names = new long[0];
+    keys = new long[0];
+    types = new int[0];
+    locators = new int[0];
+    sources = new short[0];
+    entries = new BIFFResourceEntry[0];
+    slots = new int[16];
+    Arrays.fill(slots, EMPTY);
+    size = 0;
+  }
+
+  /** Returns the number of resource entries in the table. */
+  public synchronized int size()
+  {
+    return size;
+  }
+
+  /**
+   * Adds the resource entries of a KEY file to the table. Entries of same name and type are replaced.
+   * @param keyFile Path of the KEY file.
+   * @param buffer Buffer with the KEY file content in little endian byte order.
+   * @param offset Start offset of the resource entries.
+   * @param count Number of resource entries.
+   */
+  public synchronized void addAll(Path keyFile, ByteBuffer buffer, int offset, int count)
+  {
+    int source = keyFiles.indexOf(keyFile);
+    if (source < 0) {
+      source = keyFiles.size();
+      keyFiles.add(keyFile);
+    }
+    ensureCapacity(size + count);
+
+    for (int i = 0, ofs = offset; i < count; i++, ofs += 14) {
+      final long name = clearPadding(buffer.getLong(ofs));
+      final long key = toUpperCase(name);
+      final int type = buffer.getShort(ofs + 8) & 0xffff;
+      final int slot = findSlot(key, type);
+      int index = slots[slot];
+      if (index == EMPTY) {
+        index = size++;
+        slots[slot] = index;
+        keys[index] = key;
+        types[index] = type;
+      }
+      names[index] = name;
+      locators[index] = buffer.getInt(ofs + 10);
+      sources[index] = (short)source;
+      entries[index] = null;
+    }
+  }
+
+  /**
+   * Returns the index of the entry with the specified resref and type.
+   * Returns -1 if the entry is not available.
+   */
+  public synchronized int indexOf(String resref, int type)
+  {
+    if (resref == null || resref.isEmpty()) {
+      return -1;
+    }
+    final byte[] buf = resref.getBytes(Misc.CHARSET_DEFAULT);
+    if (buf.length > 8) {
+      return -1;
+    }
+    long name = 0L;
+    for (int i = buf.length - 1; i >= 0; i--) {
+      name = (name << 8) | (buf[i] & 0xff);
+    }
+    return slots[findSlot(toUpperCase(clearPadding(name)), type)];
+  }
+
+  /** Returns the resource entry at the specified index. The entry is created on first access. */
+  public synchronized BIFFResourceEntry getEntry(int index)
+  {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    BIFFResourceEntry entry = entries[index];
+    if (entry == null) {
+      entry = new BIFFResourceEntry(keyFiles.get(sources[index]), toString(names[index]),
+                                    types[index], locators[index]);
+      entries[index] = entry;
+    }
+    return entry;
+  }
+
+  /** Returns all resource entries of the table in unspecified order. */
+  public synchronized BIFFResourceEntry[] getEntries()
+  {
+    final BIFFResourceEntry[] retVal = new BIFFResourceEntry[size];
+    for (int i = 0; i < size; i++) {
+      retVal[i] = getEntry(i);
+    }
+    return retVal;
+  }
+
+  // Returns the hash slot of the specified key, or the first free slot if the key is not available
+  private int findSlot(long key, int type)
+  {
+    final int mask = slots.length - 1;
+    long h = (key ^ type) * 0x9e3779b97f4a7c15L;
+    int slot = (int)(h ^ (h >>> 32)) & mask;
+    while (true) {
+      final int index = slots[slot];
+      if (index == EMPTY || (keys[index] == key && types[index] == type)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  // Makes room for the specified number of entries and rebuilds the hash table if needed
+  private void ensureCapacity(int capacity)
+  {
+    if (capacity > names.length) {
+      final int newCapacity = Math.max(capacity, names.length + (names.length >> 1));
+      names = Arrays.copyOf(names, newCapacity);
+      keys = Arrays.copyOf(keys, newCapacity);
+      types = Arrays.copyOf(types, newCapacity);
+      locators = Arrays.copyOf(locators, newCapacity);
+      sources = Arrays.copyOf(sources, newCapacity);
+      entries = Arrays.copyOf(entries, newCapacity);
+    }
+
+    // keep load factor below 0.5
+    if (capacity * 2 > slots.length) {
+      int numSlots = slots.length;
+      while (capacity * 2 > numSlots) {
+        numSlots <<= 1;
+      }
+      slots = new int[numSlots];
+      Arrays.fill(slots, EMPTY);
+      for (int i = 0; i < size; i++) {
+        slots[findSlot(keys[i], types[i])] = i;
+      }
+    }
+  }
+
+  // Clears all bytes following the first null byte, as done when reading resrefs as strings
+  private static long clearPadding(long name)
+  {
+    for (int i = 0; i < 8; i++) {
+      if (((name >>> (i * 8)) & 0xff) == 0) {
+        return (i > 0) ? name & ((1L << (i * 8)) - 1L) : 0L;
+      }
+    }
+    return name;
+  }
+
+  // Converts all letters of the packed resref to upper case (ASCII and Latin-1 letters only)
+  private static long toUpperCase(long name)
+  {
+    long retVal = name;
+    for (int i = 0; i < 8; i++) {
+      final int shift = i * 8;
+      final int b = (int)(name >>> shift) & 0xff;
+      if ((b >= 'a' && b <= 'z') || (b >= 0xe0 && b <= 0xfe && b != 0xf7)) {
+        retVal -= 0x20L << shift;
+      }
+    }
+    return retVal;
+  }
+
+  // Decodes the packed resref
+  private static String toString(long name)
+  {
+    final byte[] buf = new byte[8];
+    int len = 0;
+    while (len < 8 && ((name >>> (len * 8)) & 0xff) != 0) {
+      buf[len] = (byte)(name >>> (len * 8));
+      len++;
+    }
+    return new String(buf, 0, len, Misc.CHARSET_DEFAULT);
+  }
+}
@@ -13,20 +13,17 @@
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.TreeMap;
 
 import javax.swing.ImageIcon;
-import javax.swing.SwingUtilities;
 
 import org.infinity.icon.Icons;
 import org.infinity.resource.ResourceFactory;
 import org.infinity.util.IntegerHashMap;
-import org.infinity.util.Misc;
 import org.infinity.util.io.FileEx;
 import org.infinity.util.io.StreamUtils;
 
@@ -104,8 +101,11 @@
   /** Map of key file path => list of associated key files. */
   private final Map<Path, List<BIFFEntry>> biffEntries = new HashMap<>();
 
-  /** Sorted map of effective BIFFResourceEntry objects. */
-  private final TreeMap<String, BIFFResourceEntry> resourceEntries = new TreeMap<>(Misc.getIgnoreCaseComparator());
+  /** Table of effective resource entries. */
+  private final KeyResourceTable resourceTable = new KeyResourceTable();
+
+  /** Thread caching BIFF files in the background. Shared by all instances, since only one game is open at a time. */
+  private static volatile Thread biffLoader;
 
 
   public Keyfile(Path keyFile) throws FileNotFoundException
@@ -231,7 +231,6 @@ public int hashCode()
     hash = 31 * hash + ((extMap == null) ? 0 : extMap.hashCode());
     hash = 31 * hash + ((resourceIcons == null) ? 0 : resourceIcons.hashCode());
     hash = 31 * hash + ((biffEntries == null) ? 0 : biffEntries.hashCode());
-    hash = 31 * hash + ((resourceEntries == null) ? 0 : resourceEntries.hashCode());
     return hash;
   }
 
@@ -285,7 +284,12 @@ public void populateResourceTree(ResourceTreeModel treeModel) throws Exception
     if (treeModel != null) {
       init();
 
-      resourceEntries.values().forEach((entry) -> treeModel.addResourceEntry(entry, entry.getExtension(), true));
+      // adding entries in sorted order keeps insertions into the tree folders cheap
+      final BIFFResourceEntry[] entries = resourceTable.getEntries();
+      Arrays.sort(entries);
+      for (final BIFFResourceEntry entry : entries) {
+        treeModel.addResourceEntry(entry, entry.getExtension(), true);
+      }
 
       cacheBIFFs();
     }
@@ -330,6 +334,7 @@ public ImageIcon getIcon(String extension)
 
   public void closeBIFFFiles()
   {
+    cancelCacheBIFFs();
     AbstractBIFFReader.resetCache();
   }
 
@@ -422,7 +427,14 @@ public BIFFResourceEntry getResourceEntry(String resourceName)
   {
     BIFFResourceEntry retVal = null;
     if (resourceName != null) {
-      retVal = resourceEntries.get(resourceName.toUpperCase(Locale.ENGLISH));
+      final int p = resourceName.lastIndexOf('.');
+      if (p > 0) {
+        final int index = resourceTable.indexOf(resourceName.substring(0, p),
+                                                getExtensionType(resourceName.substring(p + 1)));
+        if (index >= 0) {
+          retVal = resourceTable.getEntry(index);
+        }
+      }
     }
     return retVal;
   }
@@ -464,29 +476,52 @@ public void write() throws IOException
     }
   }
 
-  /** Caches all BIFF files referenced in the current KEY file. */
+  /**
+   * Caches BIFF files referenced in the current KEY file in a background thread. No more files
+   * are opened than the BIFF cache can hold. A running prefetch is cancelled.
+   */
   private void cacheBIFFs()
   {
-    SwingUtilities.invokeLater(new Runnable() {
-      @Override
-      public void run()
-      {
-        biffEntries.values().forEach((biffList) -> {
-          biffList.forEach((entry) -> {
-            if (entry != null) {
-              Path biffPath = entry.getPath();
-              if (biffPath != null && FileEx.create(biffPath).isFile()) {
-                try {
-                  AbstractBIFFReader.open(biffPath);
-                } catch (Exception e) {
-                  e.printStackTrace();
-                }
-              }
-            }
-          });
-        });
+    cancelCacheBIFFs();
+
+    final List<BIFFEntry> entries = new ArrayList<>();
+    biffEntries.values().forEach((biffList) -> biffList.forEach((entry) -> {
+      if (entry != null) {
+        entries.add(entry);
+      }
+    }));
+    final int count = Math.min(entries.size(), AbstractBIFFReader.getCacheSize());
+
+    final Thread thread = new Thread(() -> {
+      for (int i = 0; i < count && biffLoader == Thread.currentThread(); i++) {
+        Path biffPath = entries.get(i).getPath();
+        if (biffPath != null && FileEx.create(biffPath).isFile()) {
+          try {
+            AbstractBIFFReader.open(biffPath);
+          } catch (Exception e) {
+            e.printStackTrace();
+          }
+        }
+      }
+    }, "BIFF prefetch");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    biffLoader = thread;
+    thread.start();
+  }
+
+  /** Stops caching BIFF files in the background and waits until the current file has been opened. */
+  private static void cancelCacheBIFFs()
+  {
+    final Thread thread = biffLoader;
+    biffLoader = null;
+    if (thread != null && thread != Thread.currentThread()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
       }
-    });
+    }
   }
 
   // Creates a list of ResourceEntry objects from the specified key file
@@ -539,7 +574,7 @@ private void init() throws IOException
     }
 
     closeBIFFFiles();
-    resourceEntries.clear();
+    resourceTable.clear();
     biffEntries.clear();
 
     List<Path> keyFiles = new ArrayList<>(1 + keyList.size());
@@ -579,9 +614,7 @@ private void init() throws IOException
         biffEntries.put(file, biffList);
 
         // processing resource entries
-        for (int i = 0, ofs = ofsRes; i < numRes; i++, ofs += 14) {
-          addResourceEntry(new BIFFResourceEntry(file, buffer, ofs));
-        }
+        resourceTable.addAll(file, buffer, ofsRes, numRes);
       }
     }
   }
@@ -599,17 +632,6 @@ private List<BIFFEntry> getBIFFList(Path keyFile, boolean remove)
     return null;
   }
 
-  /** Adds the specified resource entry to the list, overwrites existing entries of same name. */
-  private BIFFResourceEntry addResourceEntry(BIFFResourceEntry entry)
-  {
-    BIFFResourceEntry retVal = null;
-    if (entry != null) {
-      final String key = entry.getResourceName().toUpperCase(Locale.ENGLISH);
-      retVal = resourceEntries.put(key, entry);
-    }
-    return retVal;
-  }
-
   // Removes the specified BIFF entry and associated resource entries from cache and resource tree
 //  private void removeBIFFEntry(Path keyFile, BIFFEntry entry)
 //  {
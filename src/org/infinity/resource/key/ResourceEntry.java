@@ -191,6 +191,10 @@ public int[] getResourceInfo() throws Exception
   public String getSearchString()
   {
     if (searchString == null) {
+      searchString = SearchStringCache.getInstance().get(this);
+      if (searchString != null) {
+        return searchString;
+      }
       try {
         String extension = getExtension().toUpperCase();
         if (extension.equals("CRE") || extension.equals("CHR")) {
@@ -216,6 +220,7 @@ public String getSearchString()
         } else if (extension.equals("INI")) {
           searchString = PlainTextResource.getSearchString(this);
         }
+        SearchStringCache.getInstance().put(this, searchString);
       } catch (Exception e) {
         if ((NearInfinity.getInstance() != null) &&
             !BrowserMenuBar.getInstance().ignoreReadErrors()) {
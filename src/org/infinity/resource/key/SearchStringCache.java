@@ -0,0 +1,233 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.key;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.infinity.resource.Profile;
+import org.infinity.util.StringTable;
+import org.infinity.util.io.FileWatcher;
+import org.infinity.util.io.PersistentCache;
+
+/**
+ * Persistent cache of resource search strings as returned by {@link ResourceEntry#getSearchString()}.
+ * <p>
+ * Only resource types are cached whose search string is determined by the resource itself and
+ * the string table. Each cached string is associated with a fingerprint of the file containing
+ * the resource (override file or BIFF archive). The whole cache is discarded if the string table
+ * or the selected character set changes.
+ */
+public final class SearchStringCache
+{
+  /** Resource types whose search strings are cached. */
+  private static final String[] FILE_TYPES = {"CHR", "CRE", "ITM", "SPL", "STO"};
+
+  private static final String CACHE_FILE = "searchstrings.dat";
+  private static final String SIGNATURE = "NISRCHST";
+  private static final int VERSION = 2;
+
+  private final PersistentCache.Fingerprints fingerprints = new PersistentCache.Fingerprints();
+
+  // cached data of the current game
+  private volatile Store store;
+
+  /** Returns the search string cache. */
+  public static SearchStringCache getInstance()
+  {
+    return Holder.INSTANCE;
+  }
+
+  /** Writes modified data to disk and discards the cached data of the current game. Called when a game is closed. */
+  public static void clearCache()
+  {
+    getInstance().close();
+  }
+
+  /** Returns whether search strings of the specified resource type are cached. */
+  public static boolean isCacheable(ResourceEntry entry)
+  {
+    final String ext = entry.getExtension();
+    for (final String type : FILE_TYPES) {
+      if (type.equalsIgnoreCase(ext)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private SearchStringCache()
+  {
+  }
+
+  /**
+   * Returns the cached search string of the specified resource.
+   * Returns {@code null} if no up-to-date string is available.
+   */
+  public String get(ResourceEntry entry)
+  {
+    if (!isCacheable(entry)) {
+      return null;
+    }
+    final Entry e = getStore().entries.get(getEntryName(entry));
+    if (e != null && e.fingerprint == fingerprints.get(entry)) {
+      return e.value;
+    }
+    return null;
+  }
+
+  /** Stores the search string of the specified resource in the cache. */
+  public void put(ResourceEntry entry, String value)
+  {
+    if (value == null || !isCacheable(entry)) {
+      return;
+    }
+    long fingerprint = fingerprints.get(entry);
+    if (fingerprint != 0L) {
+      final Store s = getStore();
+      s.entries.put(getEntryName(entry), new Entry(fingerprint, value));
+      s.modified = true;
+    }
+  }
+
+  /** Writes cached data to disk if it has been modified. */
+  public void saveIfModified()
+  {
+    final Store s = store;
+    if (s != null) {
+      s.saveIfModified();
+    }
+  }
+
+  private Store getStore()
+  {
+    Store s = store;
+    if (s == null) {
+      synchronized (this) {
+        s = store;
+        if (s == null) {
+          s = new Store(Profile.getCacheFolder());
+          FileWatcher.getInstance().addFileWatchListener(fingerprints);
+          store = s;
+        }
+      }
+    }
+    return s;
+  }
+
+  private synchronized void close()
+  {
+    if (store != null) {
+      FileWatcher.getInstance().removeFileWatchListener(fingerprints);
+      store.saveIfModified();
+      store = null;
+      fingerprints.clear();
+    }
+  }
+
+  private static String getEntryName(ResourceEntry entry)
+  {
+    return entry.getResourceName().toUpperCase(Locale.ENGLISH);
+  }
+
+  // Returns a string that identifies the content of the currently used string table
+  private static String getStringTableId()
+  {
+    final StringBuilder sb = new StringBuilder();
+    final Path path = StringTable.getPath();
+    if (path != null) {
+      sb.append(path.toAbsolutePath().toString().toUpperCase(Locale.ENGLISH));
+      try {
+        sb.append('|').append(Files.size(path));
+        sb.append('|').append(Files.getLastModifiedTime(path).toMillis());
+      } catch (IOException e) {
+      }
+    }
+    sb.append('|').append(StringTable.getCharset().name());
+    return sb.toString();
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  private static final class Holder
+  {
+    static final SearchStringCache INSTANCE = new SearchStringCache();
+  }
+
+  /** Cached search strings of a single game. */
+  private static final class Store
+  {
+    final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    final Path cacheFile;
+    final String stringTableId;
+
+    volatile boolean modified;
+
+    Store(Path cacheFolder)
+    {
+      this.cacheFile = (cacheFolder != null) ? cacheFolder.resolve(CACHE_FILE) : null;
+      this.stringTableId = getStringTableId();
+      load();
+    }
+
+    synchronized void saveIfModified()
+    {
+      if (modified) {
+        modified = false;
+        PersistentCache.save(cacheFile, SIGNATURE, VERSION, dos -> {
+          dos.writeUTF(stringTableId);
+          final List<Map.Entry<String, Entry>> list = new ArrayList<>(entries.entrySet());
+          dos.writeInt(list.size());
+          for (final Map.Entry<String, Entry> e : list) {
+            dos.writeUTF(e.getKey());
+            dos.writeLong(e.getValue().fingerprint);
+            dos.writeUTF(e.getValue().value);
+          }
+        });
+      }
+    }
+
+    private void load()
+    {
+      boolean success = PersistentCache.load(cacheFile, SIGNATURE, VERSION, dis -> {
+        if (!stringTableId.equals(dis.readUTF())) {
+          return false;
+        }
+        int numEntries = dis.readInt();
+        for (int i = 0; i < numEntries; i++) {
+          final String name = dis.readUTF();
+          long fingerprint = dis.readLong();
+          final String value = dis.readUTF();
+          entries.put(name, new Entry(fingerprint, value));
+        }
+        return true;
+      });
+      if (!success) {
+        // discard incomplete data
+        entries.clear();
+      }
+    }
+  }
+
+  /** Cached search string of a single resource. */
+  private static final class Entry
+  {
+    /** Fingerprint of the source file at the time the search string was determined. */
+    public final long fingerprint;
+    public final String value;
+
+    public Entry(long fingerprint, String value)
+    {
+      this.fingerprint = fingerprint;
+      this.value = value;
+    }
+  }
+}
@@ -49,17 +49,17 @@ public static void clearCache()
   private static void addCacheEntry(Path path, String name, AudioBuffer buffer)
   {
     if (name != null && buffer != null) {
-      while (currentCacheSize + buffer.getAudioData().length > MAX_CACHE_SIZE &&
+      while (currentCacheSize + buffer.getBufferSize() > MAX_CACHE_SIZE &&
              !BufferCache.isEmpty()) {
         Iterator<Path> iter = BufferCache.keySet().iterator();
         if (iter.hasNext()) {
           AudioBuffer ab = BufferCache.get(iter.next());
           iter.remove();
-          currentCacheSize -= ab.getAudioData().length;
+          currentCacheSize -= ab.getBufferSize();
         }
       }
       BufferCache.put(getCacheKey(path, name), buffer);
-      currentCacheSize += buffer.getAudioData().length;
+      currentCacheSize += buffer.getBufferSize();
     }
   }
 
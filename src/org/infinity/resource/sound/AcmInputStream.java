@@ -0,0 +1,843 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.resource.sound;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.sound.sampled.AudioFormat;
+
+import org.infinity.resource.sound.AudioBuffer.AudioOverride;
+
+/**
+ * Decodes ACM encoded audio data on demand and provides it as stream of
+ * uncompressed 16-bit signed little endian PCM samples (without WAV header).
+ * <p>
+ * Only a single block of samples is decoded at a time. Decoding buffers are allocated
+ * once per stream and reused for all blocks.
+ */
+public class AcmInputStream extends InputStream
+{
+  private static final int ID_ACM = 0x01032897;
+  private static final int HEADER_SIZE = 14;
+
+  private final AudioOverride override;
+  private final int numSamples;       // total count of sound samples
+  private final int numChannels, sampleRate, levels, subBlocks, blockSize;
+  private final byte[] source;        // ACM input buffer
+  private final int sourceOffset;     // start of compressed data
+
+  private int samplesLeft;            // count of undecoded samples
+  private int samplesReady;           // count of decoded samples not yet consumed
+  private int blockPos;               // read position in decoded block
+  private int pendingByte = -1;       // high byte of a partially read sample
+  private int[] block;
+  private ValueUnpacker unpacker;     // ACM-stream unpacker
+  private SubbandDecoder decoder;     // Interplay's subband decoder
+
+  /**
+   * Creates a stream over the ACM data at the specified buffer offset.
+   * @param buffer Buffer containing ACM data.
+   * @param offset Start offset of the ACM header.
+   * @param override An optional override object to force number of channels or sample rate.
+   * @throws Exception If the ACM header is invalid.
+   */
+  public AcmInputStream(byte[] buffer, int offset, AudioOverride override) throws Exception
+  {
+    if (buffer == null)
+      throw new NullPointerException();
+    if (offset < 0 || offset + HEADER_SIZE > buffer.length)
+      throw new Exception("Input buffer too small");
+
+    if (override == null)
+      override = AudioOverride.override(0, 0, 0);
+    this.override = override;
+
+    int signature = getInt(buffer, offset);
+    int count = getInt(buffer, offset + 4);
+    int channels = getUnsignedShort(buffer, offset + 8);
+    if (override.numChannels > 0)
+      channels = override.numChannels;
+    int rate = getUnsignedShort(buffer, offset + 10);
+    if (override.sampleRate > 0)
+      rate = override.sampleRate;
+    int val = getUnsignedShort(buffer, offset + 12);
+
+    if (signature != ID_ACM)
+      throw new Exception("Invalid ACM header signature");
+    if (count < 0)
+      throw new Exception("Invalid number of sample: " + count);
+    if (channels < 1 || channels > 2)
+      throw new Exception("Unsupported number of channels: " + channels);
+    if (rate < 4096 || rate > 192000)
+      throw new Exception("Unsupported sample rate: " + rate);
+
+    this.source = buffer;
+    this.sourceOffset = offset + HEADER_SIZE;
+    this.numSamples = count;
+    this.numChannels = channels;
+    this.sampleRate = rate;
+    this.levels = val & 0x0f;
+    this.subBlocks = (val >>> 4) & 0x0fff;
+    this.blockSize = (1 << levels) * subBlocks;
+    if (blockSize == 0 && numSamples > 0)
+      throw new Exception("Invalid number of subblocks: " + subBlocks);
+    this.samplesLeft = numSamples;
+  }
+
+  /** Returns the number of audio channels. */
+  public int getChannels()
+  {
+    return numChannels;
+  }
+
+  /** Returns the sample rate in Hz. */
+  public int getSampleRate()
+  {
+    return sampleRate;
+  }
+
+  /** Returns the total number of samples of all channels. */
+  public int getSampleCount()
+  {
+    return numSamples;
+  }
+
+  /** Returns the bits per sample specified in the WAV header. Decoded samples are always 16 bit. */
+  public int getBitsPerSample()
+  {
+    if (override.bitsPerSample > 0)
+      return override.bitsPerSample;
+    else
+      return 16;    // always 16 bit (unless overridden)
+  }
+
+  /** Returns the format of the decoded audio data. */
+  public AudioFormat getFormat()
+  {
+    return new AudioFormat(sampleRate, 16, numChannels, true, false);
+  }
+
+  /** Returns the number of samples which have not been read yet. */
+  public int getSamplesRemaining()
+  {
+    return samplesLeft + samplesReady;
+  }
+
+  /**
+   * Decodes up to {@code sampleCount} samples as 16-bit little endian values into the specified buffer.
+   * @param outBuffer The output buffer.
+   * @param offset Start offset in the output buffer.
+   * @param sampleCount Max. number of samples to decode.
+   * @return The number of decoded samples, which is less than {@code sampleCount} only
+   *         if the end of the audio data has been reached.
+   */
+  public int readSamples(byte[] outBuffer, int offset, int sampleCount)
+  {
+    int res = 0;
+    while (res < sampleCount) {
+      if (samplesReady == 0) {
+        if (samplesLeft == 0)
+          break;
+        makeNewSamples();
+      }
+      int n = Math.min(samplesReady, sampleCount - res);
+      final int[] values = block;
+      final int shift = levels;
+      for (int i = 0, pos = blockPos; i < n; i++, pos++) {
+        int value = values[pos] >> shift;
+        outBuffer[offset++] = (byte)value;
+        outBuffer[offset++] = (byte)(value >> 8);
+      }
+      blockPos += n;
+      samplesReady -= n;
+      res += n;
+    }
+    return res;
+  }
+
+//--------------------- Begin Class InputStream ---------------------
+
+  @Override
+  public int read() throws IOException
+  {
+    byte[] b = new byte[1];
+    return (read(b, 0, 1) > 0) ? (b[0] & 0xff) : -1;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException
+  {
+    if (b == null)
+      throw new NullPointerException();
+    if (off < 0 || len < 0 || len > b.length - off)
+      throw new IndexOutOfBoundsException();
+    if (len == 0)
+      return 0;
+
+    int res = 0;
+    if (pendingByte >= 0) {
+      b[off + res++] = (byte)pendingByte;
+      pendingByte = -1;
+    }
+    res += readSamples(b, off + res, (len - res) >> 1) << 1;
+    if (res < len && (len - res) == 1 && getSamplesRemaining() > 0) {
+      // split sample across read calls
+      byte[] sample = new byte[2];
+      readSamples(sample, 0, 1);
+      b[off + res++] = sample[0];
+      pendingByte = sample[1] & 0xff;
+    }
+    return (res > 0) ? res : -1;
+  }
+
+  @Override
+  public int available() throws IOException
+  {
+    long size = (long)getSamplesRemaining() * 2L + ((pendingByte >= 0) ? 1 : 0);
+    return (int)Math.min(size, Integer.MAX_VALUE);
+  }
+
+//--------------------- End Class InputStream ---------------------
+
+  private void makeNewSamples()
+  {
+    if (block == null) {
+      block = new int[blockSize];
+      unpacker = new ValueUnpacker(levels, subBlocks, source, sourceOffset);
+      decoder = new SubbandDecoder(levels);
+    }
+    unpacker.getOneBlock(block);
+    decoder.decode(block, subBlocks);
+    blockPos = 0;
+    samplesReady = (blockSize > samplesLeft) ? samplesLeft : blockSize;
+    samplesLeft -= samplesReady;
+  }
+
+  private static int getInt(byte[] buffer, int offset)
+  {
+    return (buffer[offset] & 0xff) | ((buffer[offset+1] & 0xff) << 8) |
+           ((buffer[offset+2] & 0xff) << 16) | (buffer[offset+3] << 24);
+  }
+
+  private static int getUnsignedShort(byte[] buffer, int offset)
+  {
+    return (buffer[offset] & 0xff) | ((buffer[offset+1] & 0xff) << 8);
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  private static class ValueUnpacker
+  {
+    private static final byte[] TABLE1 = new byte[] {
+       0, 1, 2,  4, 5, 6,  8, 9,10,
+      16,17,18, 20,21,22, 24,25,26,
+      32,33,34, 36,37,38, 40,41,42,
+       0, 1, 2,  4, 5   // added for type-safety reasons
+    };
+    private static final short[] TABLE2 = new short[] {
+       0,  1,  2,  3,  4,   8,  9, 10, 11, 12,  16, 17, 18, 19, 20,  24, 25, 26, 27, 28,  32, 33, 34, 35, 36,
+      64, 65, 66, 67, 68,  72, 73, 74, 75, 76,  80, 81, 82, 83, 84,  88, 89, 90, 91, 92,  96, 97, 98, 99,100,
+     128,129,130,131,132, 136,137,138,139,140, 144,145,146,147,148, 152,153,154,155,156, 160,161,162,163,164,
+     192,193,194,195,196, 200,201,202,203,204, 208,209,210,211,212, 216,217,218,219,220, 224,225,226,227,228,
+     256,257,258,259,260, 264,265,266,267,268, 272,273,274,275,276, 280,281,282,283,284, 288,289,290,291,292,
+       0,  1,  2    // added for type-safety reasons
+    };
+    private static final short[] TABLE3 = new short[] {
+      0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A,
+      0x10, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, 0x17, 0x18, 0x19, 0x1A,
+      0x20, 0x21, 0x22, 0x23, 0x24, 0x25, 0x26, 0x27, 0x28, 0x29, 0x2A,
+      0x30, 0x31, 0x32, 0x33, 0x34, 0x35, 0x36, 0x37, 0x38, 0x39, 0x3A,
+      0x40, 0x41, 0x42, 0x43, 0x44, 0x45, 0x46, 0x47, 0x48, 0x49, 0x4A,
+      0x50, 0x51, 0x52, 0x53, 0x54, 0x55, 0x56, 0x57, 0x58, 0x59, 0x5A,
+      0x60, 0x61, 0x62, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69, 0x6A,
+      0x70, 0x71, 0x72, 0x73, 0x74, 0x75, 0x76, 0x77, 0x78, 0x79, 0x7A,
+      0x80, 0x81, 0x82, 0x83, 0x84, 0x85, 0x86, 0x87, 0x88, 0x89, 0x8A,
+      0x90, 0x91, 0x92, 0x93, 0x94, 0x95, 0x96, 0x97, 0x98, 0x99, 0x9A,
+      0xA0, 0xA1, 0xA2, 0xA3, 0xA4, 0xA5, 0xA6, 0xA7, 0xA8, 0xA9, 0xAA,
+      0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06  // added for type-safety reasons
+    };
+
+    // index of amplitude value 0 in ampBuf
+    private static final int MIDDLE = 0x8000;
+
+    private final int subBlocks, sbSize;
+    private final byte[] buffer;
+    private int bufferPos;
+    private int nextBits, availBits;
+    // amplitude values, which are kept across blocks
+    private final short[] ampBuf = new short[0x10000];
+    private int[] block;
+
+    private ValueUnpacker(int levels, int sbCount, byte[] buffer, int offset)
+    {
+      if (buffer == null)
+        throw new NullPointerException();
+
+      this.subBlocks = sbCount;
+      this.buffer = buffer;
+      this.bufferPos = offset;
+      this.nextBits = this.availBits = 0;
+      this.sbSize = 1 << levels;
+    }
+
+    private void getOneBlock(int[] block)
+    {
+      this.block = block;
+      int pwr = getBits(4) & 0x0f;
+      int val = getBits(16) & 0xffff;
+      int count = 1 << pwr;
+      int v = 0;
+
+      for (int i = 0; i < count; i++) {
+        ampBuf[MIDDLE + i] = (short)v;
+        v += val;
+      }
+      v = -val;
+      for (int i = 0; i < count; i++) {
+        ampBuf[MIDDLE - i - 1] = (short)v;
+        v -= val;
+      }
+
+      for (int pass = 0; pass < sbSize; pass++) {
+        int idx = getBits(5) & 0x1f;
+        if (fillerProc(idx, pass, idx) == 0)
+          return;
+      }
+    }
+
+    // *** These functions are used to fill the buffer with the amplitude values ***
+    private int fillerProc(int fn, int pass, int idx)
+    {
+      switch (fn & 31) {
+        case 0:
+          return zeroFill(pass, idx);
+        case 3: case 4: case 5: case 6: case 7: case 8: case 9:
+        case 10: case 11: case 12: case 13: case 14: case 15: case 16:
+          return linearFill(pass, idx);
+        case 17:
+          return k1Bits3(pass, idx);
+        case 18:
+          return k1Bits2(pass, idx);
+        case 19:
+          return t1Bits5(pass, idx);
+        case 20:
+          return k2Bits4(pass, idx);
+        case 21:
+          return k2Bits3(pass, idx);
+        case 22:
+          return t2Bits7(pass, idx);
+        case 23:
+          return k3Bits5(pass, idx);
+        case 24:
+          return k3Bits4(pass, idx);
+        case 26:
+          return k4Bits5(pass, idx);
+        case 27:
+          return k4Bits4(pass, idx);
+        case 29:
+          return t3Bits7(pass, idx);
+//        case 1: case 2: case 25: case 28: case 30: case 31:
+        default:
+          return return0(pass, idx);
+      }
+    }
+
+    private int return0(int pass, int idx)
+    {
+      return 0;
+    }
+
+    // used when the whole column pass is zero-filled
+    private int zeroFill(int pass, int idx)
+    {
+      for (int i = 0, pos = pass; i < subBlocks; i++, pos += sbSize) {
+        block[pos] = 0;
+      }
+      return 1;
+    }
+
+    private int linearFill(int pass, int idx)
+    {
+      int mask = (1 << idx) - 1;
+      int base = MIDDLE - (1 << (idx-1));
+      for (int i = 0; i < subBlocks; i++) {
+        block[i*sbSize+pass] = ampBuf[base + (getBits(idx) & mask)];
+      }
+      return 1;
+    }
+
+    // column with number pass is filled with zeros, and also +/-1, zeros are repeated frequently
+    private int k1Bits3(int pass, int idx)
+    {
+      // Efficiency (bits per value): 3-p0-2.5*p00, p00 - cnt of paired zeros, p0 - cnt of single zeros.
+      // it makes sense to use, when the frequency of paired zeros (p00) is greater than 2/3
+      for (int i = 0; i < subBlocks; i++) {
+        prepareBits(3);
+        if ((nextBits & 1) == 0) {
+          availBits--;
+          nextBits >>= 1;
+          block[i*sbSize+pass] = 0;
+          if ((++i) == subBlocks)
+            break;
+          block[i*sbSize+pass] = 0;
+        } else if ((nextBits & 2) == 0) {
+          availBits -= 2;
+          nextBits >>= 2;
+          block[i*sbSize+pass] = 0;
+        } else {
+          block[i*sbSize+pass] = ampBuf[MIDDLE + (((nextBits & 4) != 0) ? 1 : -1)];
+          availBits -= 3;
+          nextBits >>= 3;
+        }
+      }
+      return 1;
+    }
+
+    // column is filled with zero and +/-1
+    private int k1Bits2(int pass, int idx)
+    {
+      // Efficiency: 2-P0. P0 - cnt of any zero (P0 = p0 + p00)
+      // use it when P0 > 1/3
+      for (int i = 0; i < subBlocks; i++) {
+        prepareBits(2);
+        if ((nextBits & 1) == 0) {
+          availBits--;
+          nextBits >>= 1;
+          block[i*sbSize+pass] = 0;
+        } else {
+          block[i*sbSize+pass] = ampBuf[MIDDLE + (((nextBits & 2) != 0) ? 1 : -1)];
+          availBits -= 2;
+          nextBits >>= 2;
+        }
+      }
+      return 1;
+    }
+
+    // all the -1, 0, +1 triplets
+    private int t1Bits5(int pass, int idx)
+    {
+      // Efficiency: always 5/3 bits per value
+      // use it when P0 <= 1/3
+      for (int i = 0; i < subBlocks; i++) {
+        byte val = (byte)(getBits(5) & 0x1f);
+        val = TABLE1[val];
+
+        block[i*sbSize+pass] = ampBuf[MIDDLE + (val & 3)-1];
+        if ((++i) == subBlocks)
+          break;
+        val >>= 2;
+        block[i*sbSize+pass] = ampBuf[MIDDLE + (val & 3)-1];
+        if ((++i) == subBlocks)
+          break;
+        val >>= 2;
+        block[i*sbSize+pass] = ampBuf[MIDDLE + val-1];
+      }
+      return 1;
+    }
+
+    // -2, -1, 0, 1, 2, and repeating zeros
+    private int k2Bits4(int pass, int idx)
+    {
+      // Efficiency: 4-2*p0-3.5*p00, p00 - cnt of paired zeros, p0 - cnt of single zeros.
+      // makes sense to use when p00>2/3
+      for (int i = 0; i < subBlocks; i++) {
+        prepareBits(4);
+        if ((nextBits & 1) == 0) {
+          availBits--;
+          nextBits >>= 1;
+          block[i*sbSize+pass] = 0;
+          if ((++i) == subBlocks)
+            break;
+          block[i*sbSize+pass] = 0;
+        } else if ((nextBits & 2) == 0) {
+          availBits -= 2;
+          nextBits >>= 2;
+          block[i*sbSize+pass] = 0;
+        } else {
+          block[i*sbSize+pass] =
+              ((nextBits & 8) != 0) ? ampBuf[MIDDLE + (((nextBits & 4) != 0) ? 2 : 1)] :
+                                      ampBuf[MIDDLE + (((nextBits & 4) != 0) ? -1 : -2)];
+          availBits -= 4;
+          nextBits >>= 4;
+        }
+      }
+      return 1;
+    }
+
+    // -2, -1, 0, 1, 2
+    private int k2Bits3(int pass, int idx)
+    {
+      // Efficiency: 3-2*P0, P0 - cnt of any zero (P0 = p0 + p00)
+      // use when P0>1/3
+      for (int i = 0; i < subBlocks; i++) {
+        prepareBits(3);
+        if ((nextBits & 1) == 0) {
+          availBits--;
+          nextBits >>= 1;
+          block[i*sbSize+pass] = 0;
+        } else {
+          block[i*sbSize+pass] =
+              ((nextBits & 4) != 0) ? ampBuf[MIDDLE + (((nextBits & 2) != 0) ? 2 : 1)] :
+                                      ampBuf[MIDDLE + (((nextBits & 2) != 0) ? -1 : -2)];
+          availBits -= 3;
+          nextBits >>= 3;
+        }
+      }
+      return 1;
+    }
+
+    // all the +/-2, +/-1, 0  triplets
+    private int t2Bits7(int pass, int idx)
+    {
+      // Efficiency: always 7/3 bits per value
+      // use it when p0 <= 1/3
+      for (int i = 0; i < subBlocks; i++) {
+        short val = (short)(getBits(7) & 0x7f);
+        val = TABLE2[val];
+
+        block[i*sbSize+pass] = ampBuf[MIDDLE + (val & 7)-2];
+        if ((++i) == subBlocks)
+          break;
+        val >>= 3;
+        block[i*sbSize+pass] = ampBuf[MIDDLE + (val & 7)-2];
+        if ((++i) == subBlocks)
+          break;
+        val >>= 3;
+        block[i*sbSize+pass] = ampBuf[MIDDLE + val-2];
+      }
+      return 1;
+    }
+
+    // fills with values: -3, -2, -1, 0, 1, 2, 3, and double zeros
+    private int k3Bits5(int pass, int idx)
+    {
+      // Efficiency: 5-3*p0-4.5*p00-p1, p00 - cnt of paired zeros, p0 - cnt of single zeros, p1 - cnt of +/- 1.
+      // can be used when frequency of paired zeros (p00) is greater than 2/3
+      for (int i = 0; i < subBlocks; i++) {
+        prepareBits(5);
+        if ((nextBits & 1) == 0) {
+          availBits--;
+          nextBits >>= 1;
+          block[i*sbSize+pass] = 0;
+          if ((++i) == subBlocks)
+            break;
+          block[i*sbSize+pass] = 0;
+        } else if ((nextBits & 2) == 0) {
+          availBits -= 2;
+          nextBits >>= 2;
+          block[i*sbSize+pass] = 0;
+        } else if ((nextBits & 4) == 0) {
+          block[i*sbSize+pass] = ampBuf[MIDDLE + (((nextBits & 8) != 0) ? 1 : -1)];
+          availBits -= 4;
+          nextBits >>= 4;
+        } else {
+          availBits -= 5;
+          int val = (nextBits & 0x18) >> 3;
+          nextBits >>= 5;
+          if (val >= 2)
+            val += 3;
+          block[i*sbSize+pass] = ampBuf[MIDDLE + val-3];
+        }
+      }
+      return 1;
+    }
+
+    // fills with values: -3, -2, -1, 0, 1, 2, 3.
+    private int k3Bits4(int pass, int idx)
+    {
+      // Efficiency: 4-3*P0-p1, P0 - cnt of all zeros (P0 = p0 + p00), p1 - cnt of +/- 1.
+      for (int i = 0; i < subBlocks; i++) {
+        prepareBits(4);
+        if ((nextBits & 1) == 0) {
+          availBits--;
+          nextBits >>= 1;
+          block[i*sbSize+pass] = 0;
+        } else if ((nextBits & 2) == 0) {
+          availBits -= 3;
+          block[i*sbSize+pass] = ampBuf[MIDDLE + (((nextBits & 4) != 0) ? 1 : -1)];
+          nextBits >>= 3;
+        } else {
+          int val = (nextBits & 0x0c) >> 2;
+          availBits -= 4;
+          nextBits >>= 4;
+          if (val >= 2)
+            val += 3;
+          block[i*sbSize+pass] = ampBuf[MIDDLE + val-3];
+        }
+      }
+      return 1;
+    }
+
+    // fills with values: +/-4, +/-3, +/-2, +/-1, 0, and double zeros
+    private int k4Bits5(int pass, int idx)
+    {
+      // Efficiency: 5-3*p0-4.5*p00, p00 - cnt of paired zeros, p0 - cnt of single zeros.
+      // makes sense to use when p00>2/3
+      for (int i = 0; i < subBlocks; i++) {
+        prepareBits(5);
+        if ((nextBits & 1) == 0) {
+          availBits--;
+          nextBits >>= 1;
+          block[i*sbSize+pass] = 0;
+          if ((++i) == subBlocks)
+            break;
+          block[i*sbSize+pass] = 0;
+        } else if ((nextBits & 2) == 0) {
+          availBits -= 2;
+          nextBits >>= 2;
+          block[i*sbSize+pass] = 0;
+        } else {
+          int val = (nextBits & 0x1c) >> 2;
+          if (val >= 4)
+            val++;
+          block[i*sbSize+pass] = ampBuf[MIDDLE + val-4];
+          availBits -= 5;
+          nextBits >>= 5;
+        }
+      }
+      return 1;
+    }
+
+    // fills with values: +/-4, +/-3, +/-2, +/-1, 0, and double zeros
+    private int k4Bits4(int pass, int idx)
+    {
+      // Efficiency: 4-3*P0, P0 - cnt of all zeros (both single and paired).
+      for (int i = 0; i < subBlocks; i++) {
+        prepareBits(4);
+        if ((nextBits & 1) == 0) {
+          availBits--;
+          nextBits >>= 1;
+          block[i*sbSize+pass] = 0;
+        } else {
+          int val = (nextBits & 0x0e) >> 1;
+          availBits -= 4;
+          nextBits >>= 4;
+          if (val >= 4)
+            val++;
+          block[i*sbSize+pass] = ampBuf[MIDDLE + val-4];
+        }
+      }
+      return 1;
+    }
+
+    // all the pairs of values from -5 to +5
+    private int t3Bits7(int pass, int idx)
+    {
+      // Efficiency: 7/2 bits per value
+      for (int i = 0; i < subBlocks; i++) {
+        short val = (short)(getBits(7) & 0x7f);
+        val = TABLE3[val];
+
+        block[i*sbSize+pass] = ampBuf[MIDDLE + (val & 0x0f) - 5];
+        if ((++i) == subBlocks)
+          break;
+        val >>= 4;
+        block[i*sbSize+pass] = ampBuf[MIDDLE + val-5];
+      }
+      return 1;
+    }
+
+
+    // request bits
+    private void prepareBits(int bits)
+    {
+      while (bits > availBits) {
+        int oneByte;
+        if (bufferPos < buffer.length) {
+          oneByte = buffer[bufferPos++] & 0xff;
+        } else
+          oneByte = 0;
+        nextBits |= oneByte << availBits;
+        availBits += 8;
+      }
+    }
+
+    // request and return next bits
+    private int getBits(int bits)
+    {
+      prepareBits(bits);
+      int res = nextBits;
+      availBits -= bits;
+      nextBits >>= bits;
+      return res;
+    }
+  }
+
+
+  private static class SubbandDecoder
+  {
+    private final int levels, blockSize;
+    private short[] memS;   // state of the first transform stage
+    private int[] memI;     // state of the remaining transform stages
+
+    private SubbandDecoder(int levels)
+    {
+      this.levels = levels;
+      blockSize = 1 << this.levels;
+      init();
+    }
+
+    private void decode(int[] buffer, int blocks)
+    {
+      if (levels == 0)
+        return;
+
+      int sbSize = blockSize >> 1;    // current subband size
+
+      blocks <<= 1;
+      sub_4d3fcc(buffer, sbSize, blocks);
+
+      for (int i = 0; i < blocks; i++) {
+        buffer[i*sbSize]++;
+      }
+
+      sbSize >>= 1;
+      blocks <<= 1;
+
+      int memOfs = 0;
+      while (sbSize != 0) {
+        sub_4d420c(memOfs, buffer, sbSize, blocks);
+        memOfs += sbSize << 1;
+        sbSize >>= 1;
+        blocks <<= 1;
+      }
+    }
+
+    private void init()
+    {
+      if (levels > 0) {
+        memS = new short[blockSize];
+        memI = new int[blockSize - 2];
+      }
+    }
+
+    private void sub_4d3fcc(int[] buf, int sbSize, int blocks)
+    {
+      final short[] mem = memS;
+      int row0 = 0, row1 = 0, row2 = 0, row3 = 0, db0 = 0, db1 = 0;
+      int sbSize2 = sbSize * 2;
+      int sbSize3 = sbSize * 3;
+      if (blocks == 2) {
+        for (int i = 0, m = 0; i < sbSize; i++, m += 2) {
+          row0 = buf[i];
+          row1 = buf[i+sbSize];
+          buf[i] = row0 + mem[m] + (mem[m+1] << 1);
+          buf[i+sbSize] = (row0 << 1) - mem[m+1] - row1;
+          mem[m] = (short)row0;
+          mem[m+1] = (short)row1;
+        }
+      } else if (blocks == 4) {
+        for (int i = 0, m = 0; i < sbSize; i++, m += 2) {
+          row0 = buf[i];
+          row1 = buf[i+sbSize];
+          row2 = buf[i+sbSize2];
+          row3 = buf[i+sbSize3];
+
+          buf[i]         =  mem[m] + (mem[m+1] << 1) + row0;
+          buf[i+sbSize]  = -mem[m+1] + (row0 << 1) - row1;
+          buf[i+sbSize2] =  row0 + (row1 << 1) + row2;
+          buf[i+sbSize3] = -row1 + (row2 << 1) - row3;
+
+          mem[m] = (short)row2;
+          mem[m+1] = (short)row3;
+        }
+      } else {
+        for (int i = 0, m = 0; i < sbSize; i++, m += 2) {
+          int p = i;
+          if ((blocks & 2) != 0) {
+            row0 = buf[p];
+            row1 = buf[p+sbSize];
+
+            buf[p]        =  mem[m] + (mem[m+1] << 1) + row0;
+            buf[p+sbSize] = -mem[m+1] + (row0 << 1) - row1;
+            p += sbSize2;
+
+            db0 = row0;
+            db1 = row1;
+          } else {
+            db0 = mem[m];
+            db1 = mem[m+1];
+          }
+
+          for (int j = 0; j < (blocks >> 2); j++) {
+            row0 = buf[p];
+            buf[p] = db0 + (db1 << 1) + row0;
+            p += sbSize;
+
+            row1 = buf[p];
+            buf[p] = -db1 + (row0 << 1) - row1;
+            p += sbSize;
+
+            row2 = buf[p];
+            buf[p] = row0 + (row1 << 1) + row2;
+            p += sbSize;
+
+            row3 = buf[p];
+            buf[p] = -row1 + (row2 << 1) - row3;
+            p += sbSize;
+
+            db0 = row2;
+            db1 = row3;
+          }
+          mem[m] = (short)row2;
+          mem[m+1] = (short)row3;
+        }
+      }
+    }
+
+    private void sub_4d420c(int memOfs, int[] buf, int sbSize, int blocks)
+    {
+      final int[] mem = memI;
+      int row0 = 0, row1 = 0, row2 = 0, row3 = 0, db0 = 0, db1 = 0;
+      int sbSize2 = sbSize * 2;
+      int sbSize3 = sbSize * 3;
+      if (blocks == 4) {
+        for (int i = 0, m = memOfs; i < sbSize; i++, m += 2) {
+          row0 = buf[i];
+          row1 = buf[i+sbSize];
+          row2 = buf[i+sbSize2];
+          row3 = buf[i+sbSize3];
+
+          buf[i]         =  mem[m] + (mem[m+1] << 1) + row0;
+          buf[i+sbSize]  = -mem[m+1] + (row0 << 1) - row1;
+          buf[i+sbSize2] =  row0 + (row1 << 1) + row2;
+          buf[i+sbSize3] = -row1 + (row2 << 1) - row3;
+
+          mem[m] = row2;
+          mem[m+1] = row3;
+        }
+      } else {
+        for (int i = 0, m = memOfs; i < sbSize; i++, m += 2) {
+          int p = i;
+          db0 = mem[m];
+          db1 = mem[m+1];
+          for (int j = 0; j < (blocks >> 2); j++) {
+            row0 = buf[p];
+            buf[p] = db0 + (db1 << 1) + row0;
+            p += sbSize;
+
+            row1 = buf[p];
+            buf[p] = -db1 + (row0 << 1) - row1;
+            p += sbSize;
+
+            row2 = buf[p];
+            buf[p] = row0 + (row1 << 1) + row2;
+            p += sbSize;
+
+            row3 = buf[p];
+            buf[p] = -row1 + (row2 << 1) - row3;
+            p += sbSize;
+
+            db0 = row2;
+            db1 = row3;
+          }
+          mem[m] = row2;
+          mem[m+1] = row3;
+        }
+      }
+    }
+  }
+}
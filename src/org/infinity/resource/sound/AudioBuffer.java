@@ -4,9 +4,15 @@
 
 package org.infinity.resource.sound;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
 import org.infinity.resource.key.ResourceEntry;
+import org.infinity.util.DynamicArray;
 import org.infinity.util.io.StreamUtils;
 
 /**
@@ -52,6 +58,57 @@ public byte[] getAudioData()
     return data;
   }
 
+  /**
+   * Returns a stream of the uncompressed PCM audio data. Each call returns a new stream,
+   * which starts at the beginning of the audio data.
+   * @return Stream of PCM audio data, or {@code null} if no audio data is available.
+   * @throws Exception On error
+   */
+  public AudioInputStream getAudioInputStream() throws Exception
+  {
+    byte[] buffer = getAudioData();
+    if (buffer != null) {
+      return AudioSystem.getAudioInputStream(new ByteArrayInputStream(buffer));
+    }
+    return null;
+  }
+
+  /**
+   * Writes the uncompressed PCM data including WAV header to the specified stream.
+   * @param os The output stream.
+   * @return Number of bytes written.
+   * @throws Exception On error
+   */
+  public long writeAudioData(OutputStream os) throws Exception
+  {
+    byte[] buffer = getAudioData();
+    if (buffer != null) {
+      os.write(buffer);
+      return buffer.length;
+    }
+    return 0L;
+  }
+
+  /**
+   * Returns the total number of samples of all channels.
+   */
+  public int getSampleCount()
+  {
+    if (data != null && data.length >= 44) {
+      int bytesPerSample = Math.max(1, DynamicArray.getUnsignedShort(data, 34) / 8);
+      return DynamicArray.getInt(data, 40) / bytesPerSample;
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the number of bytes occupied by the audio data held by this object.
+   */
+  public long getBufferSize()
+  {
+    return (data != null) ? data.length : 0L;
+  }
+
   /**
    * Converts the source audio data into uncompressed PCM WAV data.
    * @param buffer Buffer containing source audio data.
@@ -11,12 +11,14 @@
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JPanel;
 
+import org.infinity.gui.BrowserMenuBar;
 import org.infinity.gui.Center;
 import org.infinity.gui.ChildFrame;
 import org.infinity.icon.Icons;
@@ -44,6 +46,8 @@ abstract class AbstractReferenceSearcher extends AbstractSearcher implements Run
   private final ReferenceHitFrame hitFrame;
   /** Actual list of resources in which perform search. */
   private List<ResourceEntry> files;
+  /** Reference index used to skip irrelevant resources. {@code null} if not available. */
+  private ReferenceIndex index;
 
   AbstractReferenceSearcher(ResourceEntry targetEntry, String filetypes[], Component parent)
   {
@@ -114,12 +118,23 @@ else if (event.getSource() == bCancel) {
   @Override
   public void run()
   {
+    if (BrowserMenuBar.getInstance() != null && BrowserMenuBar.getInstance().getIndexReferences()) {
+      index = ReferenceIndex.getInstance();
+      files = index.filter(files, getIndexKeys());
+    }
+
     // executing multithreaded search
-    if (runSearch("Searching", files)) {
-      hitFrame.close();
-      return;
+    try {
+      if (runSearch("Searching", files)) {
+        hitFrame.close();
+        return;
+      }
+      hitFrame.setVisible(true);
+    } finally {
+      if (index != null) {
+        index.saveIfModified();
+      }
     }
-    hitFrame.setVisible(true);
   }
 
 // --------------------- End Interface Runnable ---------------------
@@ -128,9 +143,14 @@ public void run()
   protected Runnable newWorker(ResourceEntry entry)
   {
     return () -> {
-      final Resource resource = ResourceFactory.getResource(entry);
-      if (resource != null) {
-        search(entry, resource);
+      if (isCandidate(entry)) {
+        final Resource resource = ResourceFactory.getResource(entry);
+        if (resource != null) {
+          search(entry, resource);
+          if (index != null && !index.isIndexed(entry)) {
+            index.update(entry, resource);
+          }
+        }
       }
       advanceProgress();
     };
@@ -169,6 +189,31 @@ synchronized void addHit(ResourceEntry entry, String line, int lineNr)
    */
   abstract void search(ResourceEntry entry, Resource resource);
 
+  /**
+   * Returns the {@link ReferenceIndex} keys of all values matched by this searcher. Resources
+   * whose index records don't contain any of the keys are skipped by the search.
+   *
+   * @return Collection of index keys, or {@code null} if the reference index can not be used
+   *         by this searcher.
+   */
+  Collection<String> getIndexKeys()
+  {
+    return null;
+  }
+
+  /**
+   * Returns whether the specified resource has to be loaded and searched. Implementations may
+   * inspect the raw resource data to skip resources which can not contain any matches.
+   * Skipped resources are not added to the reference index.
+   *
+   * @param entry Resource to check
+   * @return {@code false} if the resource can be skipped, {@code true} otherwise
+   */
+  boolean isCandidate(ResourceEntry entry)
+  {
+    return true;
+  }
+
   ResourceEntry getTargetEntry()
   {
     return targetEntry;
@@ -6,15 +6,16 @@
 
 import java.awt.Component;
 import java.util.List;
-import java.util.concurrent.ThreadPoolExecutor;
 
 import javax.swing.JOptionPane;
 import javax.swing.ProgressMonitor;
 
 import org.infinity.NearInfinity;
+import org.infinity.resource.key.BIFFLocality;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.util.Debugging;
 import org.infinity.util.Misc;
+import org.infinity.util.WorkPipeline;
 
 /**
  * Utility class for performing searching of resources in several threads with
@@ -88,45 +89,36 @@ protected boolean runSearch(String operation, List<ResourceEntry> entries)
       lastExt = entries.get(0).getExtension();
       updateProgressNote();
 
-      final ThreadPoolExecutor executor = Misc.createThreadPool();
-      boolean isCancelled = false;
+      boolean isCancelled;
       Debugging.timerReset();
-      int i = 0;
-      for (ResourceEntry entry : entries) {
-        if (progress.isCanceled()) {
-          break;
-        }
-        if (entry == null) {
-          ++i;
-          advanceProgress(false);
-          continue;
-        }
-        if (i++ % 10 == 0) {
-          final String ext = entry.getExtension();
-          if (!lastExt.equalsIgnoreCase(ext)) {
-            lastExt = ext;
-            updateProgressNote();
+      try (WorkPipeline pipeline = new WorkPipeline(operation)) {
+        int i = 0;
+        // reading resources in the order of their location reduces random disk access
+        for (ResourceEntry entry : BIFFLocality.sort(entries)) {
+          if (progress.isCanceled()) {
+            pipeline.cancel();
+            break;
+          }
+          if (entry == null) {
+            ++i;
+            advanceProgress(false);
+            continue;
+          }
+          if (i++ % 10 == 0) {
+            final String ext = entry.getExtension();
+            if (!lastExt.equalsIgnoreCase(ext)) {
+              lastExt = ext;
+              updateProgressNote();
+            }
           }
-        }
-
-        Misc.isQueueReady(executor, true, -1);
-        executor.execute(newWorker(entry));
-      }
-
-      // enforcing thread termination if process has been cancelled
-      if (isCancelled) {
-        executor.shutdownNow();
-      } else {
-        executor.shutdown();
-      }
 
-      // waiting for pending threads to terminate
-      while (!executor.isTerminated()) {
-        if (!isCancelled && progress.isCanceled()) {
-          executor.shutdownNow();
-          isCancelled = true;
+          if (!pipeline.submit(newWorker(entry))) {
+            break;
+          }
         }
-        try { Thread.sleep(1); } catch (InterruptedException e) {}
+
+        // waiting for pending work items to complete
+        isCancelled = pipeline.join(progress::isCanceled);
       }
 
       Debugging.timerShow(operation + " completed", Debugging.TimeFormat.MILLISECONDS);
@@ -0,0 +1,420 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.search;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.infinity.datatype.ProRef;
+import org.infinity.datatype.ResourceRef;
+import org.infinity.datatype.StringRef;
+import org.infinity.datatype.TextString;
+import org.infinity.resource.AbstractStruct;
+import org.infinity.resource.Profile;
+import org.infinity.resource.Resource;
+import org.infinity.resource.ResourceFactory;
+import org.infinity.resource.StructEntry;
+import org.infinity.resource.bcs.BcsResource;
+import org.infinity.resource.bcs.Compiler;
+import org.infinity.resource.bcs.Decompiler;
+import org.infinity.resource.bcs.ScriptType;
+import org.infinity.resource.dlg.AbstractCode;
+import org.infinity.resource.dlg.Action;
+import org.infinity.resource.key.ResourceEntry;
+import org.infinity.resource.text.PlainTextResource;
+import org.infinity.util.io.FileWatcher;
+import org.infinity.util.io.PersistentCache;
+
+/**
+ * Persistent reverse index of string references, resource references and script names used by
+ * game resources.
+ * <p>
+ * The index is used by reference searchers to skip resources which can not contain any matches.
+ * Each indexed resource is associated with a fingerprint of its source file (override file or
+ * BIFF archive), so that stale entries are ignored and rebuilt automatically. Resources of types
+ * that are not covered by the index are always considered candidates.
+ */
+public final class ReferenceIndex
+{
+  /** Resource types covered by the index. */
+  public static final String[] FILE_TYPES = {"2DA", "ARE", "BCS", "BS", "CHR", "CHU", "CRE", "DLG",
+                                             "EFF", "GAM", "INI", "ITM", "MENU", "PRO", "SPL", "SRC",
+                                             "STO", "TOH", "VEF", "VVC", "WED", "WMP"};
+
+  private static final String INDEX_FILE = "refindex.dat";
+  private static final String SIGNATURE = "NIREFIDX";
+  private static final int VERSION = 1;
+
+  /** Key prefix for resource names, script names and other identifiers. */
+  private static final String PREFIX_NAME = "N:";
+  /** Key prefix for string references. */
+  private static final String PREFIX_STRREF = "S:";
+
+  /** Identifiers are split at every character that is not matched by "\b" in regular expressions. */
+  private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^A-Za-z0-9_]+");
+  private static final Pattern TOKEN_NAME = Pattern.compile("[A-Za-z0-9_]+");
+
+  private static ReferenceIndex instance;
+
+  private final ConcurrentHashMap<String, Record> records = new ConcurrentHashMap<>();
+  private final PersistentCache.Fingerprints fingerprints = new PersistentCache.Fingerprints();
+  private final Path indexFile;
+
+  private volatile boolean modified;
+  private volatile Thread indexer;
+  private volatile boolean cancelled;
+
+  /** Returns the reference index of the current game. Loads index data from disk if available. */
+  public static synchronized ReferenceIndex getInstance()
+  {
+    if (instance == null) {
+      instance = new ReferenceIndex(Profile.getCacheFolder());
+    }
+    return instance;
+  }
+
+  /** Stops background indexing and discards the current index instance. Called when a game is closed. */
+  public static synchronized void clearCache()
+  {
+    if (instance != null) {
+      instance.close();
+      instance = null;
+    }
+  }
+
+  /** Starts building the index for all supported resources of the current game in a background thread. */
+  public static void startIndexing()
+  {
+    getInstance().startIndexer();
+  }
+
+  /** Returns the key representing the specified resource name (without extension) or script name. */
+  public static String nameKey(String name)
+  {
+    return PREFIX_NAME + name.trim().toUpperCase(Locale.ENGLISH);
+  }
+
+  /** Returns the key representing the specified string reference. */
+  public static String strrefKey(int strref)
+  {
+    return PREFIX_STRREF + strref;
+  }
+
+  private ReferenceIndex(Path cacheFolder)
+  {
+    this.indexFile = (cacheFolder != null) ? cacheFolder.resolve(INDEX_FILE) : null;
+    load();
+    FileWatcher.getInstance().addFileWatchListener(fingerprints);
+  }
+
+  /**
+   * Returns the subset of the specified resources that may contain any of the specified keys.
+   * Resources which are not (or no longer) indexed are always included.
+   * @param entries List of resources to filter.
+   * @param keys Keys created by {@link #nameKey(String)} or {@link #strrefKey(int)}.
+   *             Specify {@code null} to skip filtering.
+   * @return Filtered list of resources.
+   */
+  public List<ResourceEntry> filter(List<ResourceEntry> entries, Collection<String> keys)
+  {
+    if (entries == null || keys == null || keys.isEmpty()) {
+      return entries;
+    }
+
+    // tokenized content can only be filtered by keys consisting of word characters
+    boolean tokenSafe = true;
+    for (final String key : keys) {
+      if (key.startsWith(PREFIX_NAME) && !TOKEN_NAME.matcher(key.substring(PREFIX_NAME.length())).matches()) {
+        tokenSafe = false;
+        break;
+      }
+    }
+
+    final List<ResourceEntry> retVal = new ArrayList<>(entries.size());
+    for (final ResourceEntry entry : entries) {
+      final Record record = getRecord(entry);
+      if (record == null || (record.tokenized && !tokenSafe) || record.containsAny(keys)) {
+        retVal.add(entry);
+      }
+    }
+    return retVal;
+  }
+
+  /** Returns whether an up-to-date index record exists for the specified resource. */
+  public boolean isIndexed(ResourceEntry entry)
+  {
+    return getRecord(entry) != null;
+  }
+
+  /**
+   * Adds or updates the index record of the specified resource. Does nothing if the resource
+   * type is not supported by the index.
+   * @param entry The resource entry.
+   * @param resource The resource instance of {@code entry}.
+   */
+  public void update(ResourceEntry entry, Resource resource)
+  {
+    if (entry == null || resource == null) {
+      return;
+    }
+    long fingerprint = fingerprints.get(entry);
+    if (fingerprint == 0L) {
+      return;
+    }
+
+    final Set<String> keys = new HashSet<>();
+    boolean tokenized;
+    try {
+      if (resource instanceof BcsResource) {
+        tokenized = true;
+        addScriptKeys(keys, ((BcsResource)resource).getCode(), null);
+      } else if (resource instanceof PlainTextResource) {
+        tokenized = true;
+        addTextKeys(keys, ((PlainTextResource)resource).getText());
+      } else if (resource instanceof AbstractStruct) {
+        tokenized = addStructKeys(keys, (AbstractStruct)resource);
+      } else {
+        return;
+      }
+    } catch (Exception e) {
+      // don't index resources with incomplete results
+      return;
+    }
+
+    records.put(getRecordName(entry), new Record(fingerprint, tokenized, keys));
+    modified = true;
+  }
+
+  /** Writes index data to disk if it has been modified. */
+  public synchronized void saveIfModified()
+  {
+    if (modified) {
+      save();
+    }
+  }
+
+  private void startIndexer()
+  {
+    synchronized (this) {
+      if (indexer != null && indexer.isAlive()) {
+        return;
+      }
+      cancelled = false;
+      indexer = new Thread(this::buildIndex, "ReferenceIndexer");
+      indexer.setDaemon(true);
+      indexer.setPriority(Thread.MIN_PRIORITY);
+      indexer.start();
+    }
+  }
+
+  // Indexes all supported resources which are not yet indexed
+  private void buildIndex()
+  {
+    int count = 0;
+    for (final String type : FILE_TYPES) {
+      for (final ResourceEntry entry : ResourceFactory.getResources(type)) {
+        if (cancelled) {
+          saveIfModified();
+          return;
+        }
+        if (!isIndexed(entry)) {
+          update(entry, ResourceFactory.getResource(entry));
+          if (++count % 2000 == 0) {
+            saveIfModified();
+          }
+        }
+      }
+    }
+    saveIfModified();
+  }
+
+  private void close()
+  {
+    cancelled = true;
+    FileWatcher.getInstance().removeFileWatchListener(fingerprints);
+    if (indexer == null || !indexer.isAlive()) {
+      saveIfModified();
+    }
+  }
+
+  // Returns the index record of the specified resource only if it is up-to-date
+  private Record getRecord(ResourceEntry entry)
+  {
+    final Record record = records.get(getRecordName(entry));
+    if (record != null && record.fingerprint == fingerprints.get(entry)) {
+      return record;
+    }
+    return null;
+  }
+
+  private static String getRecordName(ResourceEntry entry)
+  {
+    return entry.getResourceName().toUpperCase(Locale.ENGLISH);
+  }
+
+  // Collects keys from the specified structure. Returns whether tokenized content was encountered.
+  private static boolean addStructKeys(Set<String> keys, AbstractStruct struct) throws Exception
+  {
+    boolean tokenized = false;
+    for (final StructEntry o : struct.getFields()) {
+      if (o instanceof ProRef) {
+        final ResourceEntry entry = ((ProRef)o).getSelectedEntry();
+        if (entry != null) {
+          keys.add(nameKey(entry.getResourceRef()));
+        }
+      } else if (o instanceof ResourceRef) {
+        if (!((ResourceRef)o).isEmpty()) {
+          keys.add(nameKey(((ResourceRef)o).getText()));
+        }
+      } else if (o instanceof StringRef) {
+        keys.add(strrefKey(((StringRef)o).getValue()));
+      } else if (o instanceof TextString) {
+        keys.add(nameKey(((TextString)o).getText()));
+      } else if (o instanceof AbstractCode) {
+        final AbstractCode code = (AbstractCode)o;
+        final ScriptType type = (code instanceof Action) ? ScriptType.ACTION : ScriptType.TRIGGER;
+        addTokens(keys, code.getText());
+        final Compiler compiler = new Compiler(code.getText(), type);
+        final String byteCode = compiler.getCode();
+        if (compiler.getErrors().isEmpty()) {
+          addScriptKeys(keys, byteCode, type);
+        }
+        tokenized = true;
+      } else if (o instanceof AbstractStruct) {
+        tokenized |= addStructKeys(keys, (AbstractStruct)o);
+      }
+    }
+    return tokenized;
+  }
+
+  // Collects keys from the specified compiled script code
+  private static void addScriptKeys(Set<String> keys, String code, ScriptType type) throws Exception
+  {
+    addTokens(keys, code);
+    final Decompiler decompiler = (type != null) ? new Decompiler(code, type, true)
+                                                 : new Decompiler(code, true);
+    decompiler.setGenerateComments(false);
+    decompiler.setGenerateResourcesUsed(true);
+    addTokens(keys, decompiler.decompile());
+    for (final Integer strref : decompiler.getStringRefsUsed()) {
+      keys.add(strrefKey(strref.intValue()));
+    }
+  }
+
+  // Collects keys from the specified plain text
+  private static void addTextKeys(Set<String> keys, String text)
+  {
+    addTokens(keys, text);
+    final Matcher m = StringReferenceSearcher.NUMBER_PATTERN.matcher(text);
+    while (m.find()) {
+      try {
+        keys.add(strrefKey(Integer.parseInt(m.group())));
+      } catch (NumberFormatException e) {
+      }
+    }
+  }
+
+  private static void addTokens(Set<String> keys, String text)
+  {
+    if (text != null) {
+      for (final String token : TOKEN_SEPARATOR.split(text)) {
+        if (!token.isEmpty()) {
+          keys.add(nameKey(token));
+        }
+      }
+    }
+  }
+
+  private synchronized void load()
+  {
+    boolean success = PersistentCache.load(indexFile, SIGNATURE, VERSION, dis -> {
+      final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+      int numRecords = dis.readInt();
+      for (int i = 0; i < numRecords; i++) {
+        final String name = dis.readUTF();
+        long fingerprint = dis.readLong();
+        boolean tokenized = dis.readBoolean();
+        int numKeys = dis.readInt();
+        final String[] keys = new String[numKeys];
+        for (int j = 0; j < numKeys; j++) {
+          final String key = dis.readUTF();
+          final String pooled = pool.putIfAbsent(key, key);
+          keys[j] = (pooled != null) ? pooled : key;
+        }
+        records.put(name, new Record(fingerprint, tokenized, keys));
+      }
+      return true;
+    });
+    if (!success) {
+      // discard incomplete data
+      records.clear();
+    }
+  }
+
+  private synchronized void save()
+  {
+    modified = false;
+    PersistentCache.save(indexFile, SIGNATURE, VERSION, dos -> {
+      final List<Map.Entry<String, Record>> list = new ArrayList<>(records.entrySet());
+      dos.writeInt(list.size());
+      for (final Map.Entry<String, Record> e : list) {
+        final Record record = e.getValue();
+        dos.writeUTF(e.getKey());
+        dos.writeLong(record.fingerprint);
+        dos.writeBoolean(record.tokenized);
+        dos.writeInt(record.keys.length);
+        for (final String key : record.keys) {
+          dos.writeUTF(key);
+        }
+      }
+    });
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  /** Index data of a single resource. */
+  private static final class Record
+  {
+    /** Fingerprint of the source file at the time the resource was indexed. */
+    public final long fingerprint;
+    /** Indicates whether keys have been created from script or text content. */
+    public final boolean tokenized;
+    /** Sorted array of keys. */
+    public final String[] keys;
+
+    public Record(long fingerprint, boolean tokenized, Set<String> keys)
+    {
+      this(fingerprint, tokenized, keys.toArray(new String[keys.size()]));
+    }
+
+    public Record(long fingerprint, boolean tokenized, String[] keys)
+    {
+      this.fingerprint = fingerprint;
+      this.tokenized = tokenized;
+      this.keys = keys;
+      Arrays.sort(this.keys);
+    }
+
+    public boolean containsAny(Collection<String> keys)
+    {
+      for (final String key : keys) {
+        if (Arrays.binarySearch(this.keys, key) >= 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -7,6 +7,8 @@
 import java.awt.Component;
 import java.io.BufferedReader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.regex.Matcher;
@@ -37,6 +39,8 @@
 
 public final class ReferenceSearcher extends AbstractReferenceSearcher
 {
+  /** Array of resource extensions which can contain resource references. */
+  public static final String[] FILE_TYPES = AbstractReferenceSearcher.FILE_TYPES;
   /** Optional alternate name to search for. */
   private String creDeathVar;
 
@@ -87,6 +91,26 @@ protected void search(ResourceEntry entry, Resource resource)
     }
   }
 
+  @Override
+  Collection<String> getIndexKeys()
+  {
+    final String name = targetEntry.getResourceRef();
+    final List<String> keys = new ArrayList<>();
+    keys.add(ReferenceIndex.nameKey(name));
+    keys.add(ReferenceIndex.nameKey("AP_" + name));
+    keys.add(ReferenceIndex.nameKey("GA_" + name));
+    if (creDeathVar != null) {
+      keys.add(ReferenceIndex.nameKey(creDeathVar));
+    }
+    if (targetEntry.getExtension().equalsIgnoreCase("SPL")) {
+      final String symbol = org.infinity.resource.spl.Viewer.getSymbolicName(targetEntry, false);
+      if (symbol != null && !symbol.isEmpty()) {
+        keys.add(ReferenceIndex.nameKey(symbol));
+      }
+    }
+    return keys;
+  }
+
   private void searchDialog(ResourceEntry entry, AbstractStruct dialog)
   {
     final String targetName = targetEntry.getResourceName();
@@ -5,6 +5,8 @@
 package org.infinity.search;
 
 import java.awt.Component;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.infinity.datatype.IsTextual;
@@ -50,6 +52,12 @@ protected void search(ResourceEntry entry, Resource resource)
     }
   }
 
+  @Override
+  Collection<String> getIndexKeys()
+  {
+    return Collections.singletonList(ReferenceIndex.nameKey(targetEntry.getResourceRef()));
+  }
+
   private void searchStruct(ResourceEntry entry, AbstractStruct struct)
   {
     final String name = targetEntry.getResourceName();
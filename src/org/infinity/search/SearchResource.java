@@ -28,8 +28,6 @@
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.Vector;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import javax.swing.BorderFactory;
 import javax.swing.ComboBoxEditor;
@@ -84,6 +82,7 @@
 import org.infinity.resource.cre.CreResource;
 import org.infinity.resource.itm.Ability;
 import org.infinity.resource.itm.ItmResource;
+import org.infinity.resource.key.BIFFLocality;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.resource.other.VvcResource;
 import org.infinity.resource.pro.ProAreaType;
@@ -97,6 +96,7 @@
 import org.infinity.util.IdsMapEntry;
 import org.infinity.util.Misc;
 import org.infinity.util.SimpleListModel;
+import org.infinity.util.WorkPipeline;
 import org.infinity.util.io.StreamUtils;
 import org.infinity.util.tuples.Couple;
 
@@ -233,18 +233,13 @@ public void run()
           SearchOptions so = panel.getOptions();
 
           // using parallel jobs to speed up search
-          ThreadPoolExecutor executor = Misc.createThreadPool();
-          for (int i = 0; i < resources.size(); i++) {
-            Misc.isQueueReady(executor, true, -1);
-            executor.execute(new SearchWorker(found, so, resources.get(i)));
-          }
+          try (WorkPipeline pipeline = new WorkPipeline("Resource search")) {
+            for (final ResourceEntry entry : BIFFLocality.sort(resources)) {
+              pipeline.submit(new SearchWorker(found, so, entry));
+            }
 
-          // waiting for threads to finish
-          executor.shutdown();
-          try {
-            executor.awaitTermination(60, TimeUnit.SECONDS);
-          } catch (InterruptedException e) {
-            e.printStackTrace();
+            // waiting for work items to finish
+            pipeline.join(null);
           }
 
           // preparing results for output
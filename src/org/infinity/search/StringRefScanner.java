@@ -0,0 +1,125 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.infinity.resource.key.ResourceEntry;
+
+/**
+ * Lightweight read-only parser which determines whether a CRE, ITM or SPL resource may contain a
+ * specific string reference without creating the field tree of the resource.
+ * <p>
+ * Only the header fields containing string references and the effect sections are visited.
+ * Effect parameters are interpreted by opcode when the full structure is created, so every
+ * 4 byte value of an effect block is considered a potential string reference. The result is a
+ * superset of the string references found by a full parse.
+ */
+final class StringRefScanner
+{
+  private static final int EFFECT_SIZE      = 0x30;
+  private static final int EFFECT2_SIZE     = 0x108;
+  private static final int ITM_ABILITY_SIZE = 0x38;
+  private static final int SPL_ABILITY_SIZE = 0x28;
+
+  /**
+   * Returns whether the specified resource may contain the given string reference.
+   * Returns {@code true} if the resource type or version is not supported or the resource
+   * data can not be read.
+   */
+  public static boolean mayContain(ResourceEntry entry, int strref)
+  {
+    final String ext = entry.getExtension();
+    if (!"CRE".equalsIgnoreCase(ext) && !"ITM".equalsIgnoreCase(ext) && !"SPL".equalsIgnoreCase(ext)) {
+      return true;
+    }
+
+    try {
+      final ByteBuffer buffer = entry.getResourceBuffer().duplicate().order(ByteOrder.LITTLE_ENDIAN);
+      if (buffer.limit() < 8) {
+        return true;
+      }
+      final String sig = getString(buffer, 0, 8);
+      if (sig.equals("CRE V1.0")) {
+        return mayContainCre(buffer, strref);
+      } else if (sig.equals("ITM V1  ") || sig.equals("ITM V1.1") || sig.equals("SPL V1  ")) {
+        return mayContainItmSpl(buffer, strref, sig.startsWith("ITM") ? ITM_ABILITY_SIZE : SPL_ABILITY_SIZE,
+                                sig.equals("ITM V1.1"));
+      }
+    } catch (Exception e) {
+      // unreadable data is handled by the regular search
+    }
+    return true;
+  }
+
+  private static boolean mayContainCre(ByteBuffer buffer, int strref)
+  {
+    // long name, short name and 100 sound slots
+    if (buffer.limit() < 0x2d4 || buffer.getInt(0x08) == strref || buffer.getInt(0x0c) == strref) {
+      return true;
+    }
+    for (int ofs = 0xa4; ofs < 0x234; ofs += 4) {
+      if (buffer.getInt(ofs) == strref) {
+        return true;
+      }
+    }
+
+    final int effectSize = (buffer.get(0x33) == 1) ? EFFECT2_SIZE : EFFECT_SIZE;
+    return containsValue(buffer, buffer.getInt(0x2c4), buffer.getInt(0x2c8) & 0xffffffffL, effectSize, strref);
+  }
+
+  private static boolean mayContainItmSpl(ByteBuffer buffer, int strref, int abilitySize, boolean isItmV11)
+  {
+    // names and descriptions, and speaker name of PST items
+    if (buffer.limit() < 0x72 || buffer.getInt(0x08) == strref || buffer.getInt(0x0c) == strref ||
+        buffer.getInt(0x50) == strref || buffer.getInt(0x54) == strref) {
+      return true;
+    }
+    if (isItmV11 && (buffer.limit() < 0x7e || buffer.getInt(0x7a) == strref)) {
+      return true;
+    }
+
+    // global effects are followed by the effects of all abilities
+    long numEffects = buffer.getShort(0x70) & 0xffff;
+    final int abilityOffset = buffer.getInt(0x64);
+    final int numAbilities = buffer.getShort(0x68) & 0xffff;
+    if (abilityOffset < 0 || (long)abilityOffset + (long)numAbilities * abilitySize > buffer.limit()) {
+      return true;
+    }
+    for (int i = 0; i < numAbilities; i++) {
+      numEffects += buffer.getShort(abilityOffset + i * abilitySize + 0x1e) & 0xffff;
+    }
+    return containsValue(buffer, buffer.getInt(0x6a), numEffects, EFFECT_SIZE, strref);
+  }
+
+  // Returns whether any 4 byte value in the specified section matches, or the section is out of bounds
+  private static boolean containsValue(ByteBuffer buffer, int offset, long count, int size, int value)
+  {
+    final long end = offset + count * size;
+    if (offset < 0 || count < 0 || end > buffer.limit()) {
+      return true;
+    }
+    for (int ofs = offset; ofs + 4 <= end; ofs++) {
+      if (buffer.getInt(ofs) == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String getString(ByteBuffer buffer, int offset, int length)
+  {
+    final StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append((char)(buffer.get(offset + i) & 0xff));
+    }
+    return sb.toString();
+  }
+
+  private StringRefScanner()
+  {
+  }
+}
@@ -5,6 +5,8 @@
 package org.infinity.search;
 
 import java.awt.Component;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -74,6 +76,18 @@ protected void search(ResourceEntry entry, Resource resource)
     }
   }
 
+  @Override
+  Collection<String> getIndexKeys()
+  {
+    return Collections.singletonList(ReferenceIndex.strrefKey(searchvalue));
+  }
+
+  @Override
+  boolean isCandidate(ResourceEntry entry)
+  {
+    return StringRefScanner.mayContain(entry, searchvalue);
+  }
+
   private void searchDialog(ResourceEntry entry, AbstractStruct dialog)
   {
     for (final StructEntry o : dialog.getFields()) {
@@ -27,8 +27,6 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.swing.AbstractButton;
@@ -72,11 +70,13 @@
 import org.infinity.resource.ResourceFactory;
 import org.infinity.resource.Viewable;
 import org.infinity.resource.dlg.DlgResource;
+import org.infinity.resource.key.BIFFLocality;
 import org.infinity.resource.key.ResourceEntry;
 import org.infinity.search.ReferenceHitFrame;
 import org.infinity.util.Debugging;
 import org.infinity.util.Misc;
 import org.infinity.util.SimpleListModel;
+import org.infinity.util.WorkPipeline;
 
 public class AdvancedSearch extends ChildFrame implements Runnable
 {
@@ -516,18 +516,13 @@ public void run()
         List<SearchOptions> searchOptions = getSearchOptions();
 
         // using parallel jobs to speed up search
-        ThreadPoolExecutor executor = Misc.createThreadPool();
-        for (final ResourceEntry entry : resources) {
-          Misc.isQueueReady(executor, true, -1);
-          executor.execute(new AdvancedSearchWorker(found, filterOp, searchOptions, entry, pbProgress));
-        }
+        try (WorkPipeline pipeline = new WorkPipeline("Advanced search")) {
+          for (final ResourceEntry entry : BIFFLocality.sort(resources)) {
+            pipeline.submit(new AdvancedSearchWorker(found, filterOp, searchOptions, entry, pbProgress));
+          }
 
-        // waiting for threads to finish
-        executor.shutdown();
-        try {
-          executor.awaitTermination(60, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-          e.printStackTrace();
+          // waiting for work items to finish
+          pipeline.join(null);
         }
 
         // preparing results for output
@@ -10,7 +10,7 @@
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.infinity.NearInfinity;
@@ -29,7 +29,9 @@
   private static final Map<String, Set<ResourceEntry>> scriptNamesCre = new HashMap<>();
   private static final Set<String> scriptNamesAre = new HashSet<>();
 
-  private static boolean initialized = false;
+  private static volatile boolean initialized = false;
+  // signaled when the indexing process has finished
+  private static volatile CountDownLatch initSignal = new CountDownLatch(1);
 
   public static void creInvalid(ResourceEntry entry)
   {
@@ -51,6 +53,7 @@ public static void clearCache()
       scriptNamesCre.clear();
       scriptNamesAre.clear();
       initialized = false;
+      initSignal = new CountDownLatch(1);
     }
   }
 
@@ -116,12 +119,15 @@ public static Set<String> getCreScriptNames()
   /** Waits until indexing process has finished or time out occurred. */
   private static boolean ensureInitialized(int timeOutMS)
   {
-    long timeOut = (timeOutMS >= 0) ? System.nanoTime() + (timeOutMS * 1000000L) : -1L;
-    while (!isInitialized() &&
-           (timeOut == -1L || System.nanoTime() < timeOut)) {
+    if (!isInitialized()) {
       try {
-        Thread.sleep(1);
+        if (timeOutMS >= 0) {
+          initSignal.await(timeOutMS, TimeUnit.MILLISECONDS);
+        } else {
+          initSignal.await();
+        }
       } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
       }
     }
 
@@ -140,6 +146,7 @@ private static String normalized(String s)
   private static void initialize()
   {
     if (!isInitialized()) {
+      final CountDownLatch signal = initSignal;
       Runnable worker = new Runnable() {
 
         @Override
@@ -153,37 +160,30 @@ public void run()
             statusBar.setMessage(message);
           }
 
-          ThreadPoolExecutor executor = Misc.createThreadPool();
-          List<ResourceEntry> files = ResourceFactory.getResources("CRE");
-          // Including CHR resources to reduce number of warnings in IWD/IWD2 if NPC mods are installed
-          files.addAll(ResourceFactory.getResources("CHR", Profile.getProperty(Profile.Key.GET_GAME_EXTRA_FOLDERS)));
-          for (final ResourceEntry entry : files) {
-            if (entry == null) { continue; }
+          try (WorkPipeline pipeline = new WorkPipeline("CreMapCache")) {
+            List<ResourceEntry> files = ResourceFactory.getResources("CRE");
+            // Including CHR resources to reduce number of warnings in IWD/IWD2 if NPC mods are installed
+            files.addAll(ResourceFactory.getResources("CHR", Profile.getProperty(Profile.Key.GET_GAME_EXTRA_FOLDERS)));
+            for (final ResourceEntry entry : files) {
+              if (entry == null) { continue; }
 
-            Misc.isQueueReady(executor, true, -1);
-            executor.execute(new CreWorker(entry));
-          }
+              pipeline.submit(new CreWorker(entry));
+            }
 
-          scriptNamesAre.add("none"); // default script name for many CRE resources
-          for (final ResourceEntry entry : ResourceFactory.getResources("ARE")) {
-            if (entry == null) { continue; }
+            scriptNamesAre.add("none"); // default script name for many CRE resources
+            for (final ResourceEntry entry : ResourceFactory.getResources("ARE")) {
+              if (entry == null) { continue; }
 
-            Misc.isQueueReady(executor, true, -1);
-            executor.execute(new AreWorker(entry));
-          }
+              pipeline.submit(new AreWorker(entry));
+            }
 
-          for (final ResourceEntry entry : ResourceFactory.getResources("INI")) {
-            if (entry == null) { continue; }
+            for (final ResourceEntry entry : ResourceFactory.getResources("INI")) {
+              if (entry == null) { continue; }
 
-            Misc.isQueueReady(executor, true, -1);
-            executor.execute(new IniWorker(entry));
-          }
+              pipeline.submit(new IniWorker(entry));
+            }
 
-          executor.shutdown();
-          try {
-            executor.awaitTermination(60, TimeUnit.SECONDS);
-          } catch (InterruptedException e) {
-            e.printStackTrace();
+            pipeline.join(null);
           }
 
           if (statusBar != null && statusBar.getMessage().startsWith(message)) {
@@ -191,6 +191,7 @@ public void run()
           }
 
           initialized = true;
+          signal.countDown();
         }
       };
       new Thread(worker).start();
@@ -0,0 +1,148 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.util;
+
+import java.util.Arrays;
+
+/**
+ * Hash map with primitive {@code int} keys and values, based on open addressing with linear probing.
+ * <p>
+ * Intended for caches in tight loops, such as mapping colors to palette indices.
+ * Neither keys nor values are boxed and {@link #clear()} completes in constant time.
+ * This class is not thread-safe.
+ */
+public final class IntegerIntMap
+{
+  private static final int MIN_CAPACITY = 16;
+
+  private int[] keys;
+  private int[] values;
+  // entry is in use only if its stamp matches the current generation
+  private int[] stamps;
+  private int generation;
+  private int size;
+  private int threshold;
+
+  /** Creates an empty map with a default capacity. */
+  public IntegerIntMap()
+  {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Creates an empty map which can store the specified number of entries without resizing.
+   * @param expectedSize Expected max. number of entries.
+   */
+  public IntegerIntMap(int expectedSize)
+  {
+    int capacity = MIN_CAPACITY;
+    while (capacity < (long)expectedSize * 2L && capacity < (1 << 30)) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+
+  /** Returns the number of entries in the map. */
+  public int size()
+  {
+    return size;
+  }
+
+  /** Returns whether the map contains no entries. */
+  public boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /** Returns whether the map contains an entry for the specified key. */
+  public boolean containsKey(int key)
+  {
+    return indexOf(key) >= 0;
+  }
+
+  /**
+   * Returns the value associated with the specified key.
+   * @param key The key to look up.
+   * @param defaultValue Value to return if the map does not contain the key.
+   * @return The associated value or {@code defaultValue}.
+   */
+  public int get(int key, int defaultValue)
+  {
+    int idx = indexOf(key);
+    return (idx >= 0) ? values[idx] : defaultValue;
+  }
+
+  /** Associates the specified value with the specified key. An existing value is replaced. */
+  public void put(int key, int value)
+  {
+    final int mask = keys.length - 1;
+    int idx = hash(key) & mask;
+    while (stamps[idx] == generation) {
+      if (keys[idx] == key) {
+        values[idx] = value;
+        return;
+      }
+      idx = (idx + 1) & mask;
+    }
+    keys[idx] = key;
+    values[idx] = value;
+    stamps[idx] = generation;
+    if (++size > threshold) {
+      resize(keys.length << 1);
+    }
+  }
+
+  /** Removes all entries from the map. The allocated storage is kept. */
+  public void clear()
+  {
+    size = 0;
+    if (++generation == 0) {
+      // stamps wrapped around: invalidate all entries explicitly
+      Arrays.fill(stamps, 0);
+      generation = 1;
+    }
+  }
+
+  private int indexOf(int key)
+  {
+    final int mask = keys.length - 1;
+    int idx = hash(key) & mask;
+    while (stamps[idx] == generation) {
+      if (keys[idx] == key) {
+        return idx;
+      }
+      idx = (idx + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void allocate(int capacity)
+  {
+    keys = new int[capacity];
+    values = new int[capacity];
+    stamps = new int[capacity];
+    generation = 1;
+    size = 0;
+    threshold = capacity / 2;
+  }
+
+  private void resize(int capacity)
+  {
+    final int[] oldKeys = keys, oldValues = values, oldStamps = stamps;
+    final int oldGeneration = generation;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldStamps[i] == oldGeneration) {
+        put(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+
+  private static int hash(int key)
+  {
+    int h = key * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+}
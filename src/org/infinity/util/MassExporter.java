@@ -28,7 +28,7 @@
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.imageio.ImageIO;
 import javax.swing.JButton;
@@ -40,8 +40,10 @@
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import javax.swing.ProgressMonitor;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
@@ -65,7 +67,9 @@
 import org.infinity.resource.graphics.PvrDecoder;
 import org.infinity.resource.graphics.TisDecoder;
 import org.infinity.resource.graphics.TisResource;
+import org.infinity.resource.key.BIFFLocality;
 import org.infinity.resource.key.ResourceEntry;
+import org.infinity.resource.sound.AudioBuffer;
 import org.infinity.resource.sound.AudioFactory;
 import org.infinity.resource.video.MveResource;
 import org.infinity.util.io.FileEx;
@@ -89,6 +93,8 @@ public final class MassExporter extends ChildFrame implements ActionListener, Li
   private final JCheckBox cbDecompile = new JCheckBox("Decompile scripts", true);
   private final JCheckBox cbDecrypt = new JCheckBox("Decrypt text files", true);
   private final JCheckBox cbConvertWAV = new JCheckBox("Convert sounds", true);
+  private final JSpinner sAudioThreads =
+      new JSpinner(new SpinnerNumberModel(Runtime.getRuntime().availableProcessors(), 1, 64, 1));
   private final JCheckBox cbConvertCRE = new JCheckBox("Convert CHR=>CRE", false);
   private final JCheckBox cbDecompress = new JCheckBox("Decompress BAM/MOS", false);
   private final JCheckBox cbConvertToPNG = new JCheckBox("Export MOS/PVRZ/TIS as PNG", false);
@@ -106,6 +112,9 @@ public final class MassExporter extends ChildFrame implements ActionListener, Li
   private ProgressMonitor progress;
   private int progressIndex;
   private List<ResourceEntry> selectedFiles;
+  // number of converted sounds and their total number of samples
+  private final AtomicLong audioCount = new AtomicLong();
+  private final AtomicLong audioSamples = new AtomicLong();
 
   public MassExporter()
   {
@@ -125,6 +134,8 @@ public MassExporter()
     cbConvertToPNG.setToolTipText("Caution: Selecting both MOS and TIS may overwrite or skip some files!");
     cbExtractFramesBAM.setToolTipText("Note: Frames of each BAM resource are exported into separate subfolders.");
     cbConvertTisVersion.setToolTipText("Caution: Conversion may take a long time. Files may be renamed to conform to naming scheme for PVRZ-based TIS files.");
+    sAudioThreads.setToolTipText("Number of sounds to convert concurrently.");
+    cbConvertWAV.addActionListener(this);
     cbIncludeExtraDirs.setToolTipText("Include extra folders, such as \"Characters\" or \"Portraits\", except savegames.");
 
     JPanel leftPanel = new JPanel(new BorderLayout());
@@ -143,6 +154,12 @@ public MassExporter()
     pBamFrames.add(cbExtractFramesBAM);
     pBamFrames.add(cbExtractFramesBAMFormat);
 
+    JPanel pConvertWav = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+    pConvertWav.add(cbConvertWAV);
+    pConvertWav.add(new JLabel(" using "));
+    pConvertWav.add(sAudioThreads);
+    pConvertWav.add(new JLabel(" threads"));
+
     JPanel pTisConvert = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
     pTisConvert.add(cbConvertTisVersion);
     pTisConvert.add(cbConvertTisList);
@@ -155,7 +172,7 @@ public MassExporter()
     bottomRightPanel.add(cbIncludeExtraDirs, gbc);
     gbc = ViewerUtil.setGBC(gbc, 0, 2, 1, 1, 1.0, 1.0, GridBagConstraints.FIRST_LINE_START,
                             GridBagConstraints.HORIZONTAL, new Insets(2, 0, 0, 0), 0, 0);
-    bottomRightPanel.add(cbConvertWAV, gbc);
+    bottomRightPanel.add(pConvertWav, gbc);
     gbc = ViewerUtil.setGBC(gbc, 0, 3, 1, 1, 1.0, 1.0, GridBagConstraints.FIRST_LINE_START,
                             GridBagConstraints.HORIZONTAL, new Insets(2, 0, 0, 0), 0, 0);
     bottomRightPanel.add(cbConvertCRE, gbc);
@@ -246,6 +263,8 @@ public void actionPerformed(ActionEvent event)
     }
     else if (event.getSource() == bCancel) {
       setVisible(false);
+    } else if (event.getSource() == cbConvertWAV) {
+      sAudioThreads.setEnabled(cbConvertWAV.isSelected());
     } else if (event.getSource() == bDirectory) {
       if (fc.showDialog(this, "Select") == JFileChooser.APPROVE_OPTION)
         tfDirectory.setText(fc.getSelectedFile().toString());
@@ -292,10 +311,11 @@ public void run()
       for (final String newVar : selectedTypes) {
         selectedFiles.addAll(ResourceFactory.getResources(newVar, extraDirs));
       }
+      // reading resources in the order of their location reduces random disk access
+      selectedFiles = BIFFLocality.sort(selectedFiles);
 
       // executing multithreaded search
-      boolean isCancelled = false;
-      ThreadPoolExecutor executor = Misc.createThreadPool();
+      boolean isCancelled;
       progress = new ProgressMonitor(NearInfinity.getInstance(), "Exporting...",
                                      String.format(FMT_PROGRESS, getResourceCount(), getResourceCount()),
                                      0, selectedFiles.size());
@@ -304,38 +324,38 @@ public void run()
       progress.setProgress(0);
       progress.setNote(String.format(FMT_PROGRESS, 0, getResourceCount()));
       Debugging.timerReset();
-      for (int i = 0, count = getResourceCount(); i < count; i++) {
-        Misc.isQueueReady(executor, true, -1);
-        executor.execute(new Worker(selectedFiles.get(i)));
-        if (progress.isCanceled()) {
-          isCancelled = true;
-          break;
+      audioCount.set(0L);
+      audioSamples.set(0L);
+      long audioTime = System.nanoTime();
+      // sound conversions are decoded by a separate pipeline with a user-defined number of threads
+      final int audioThreads = ((Number)sAudioThreads.getValue()).intValue();
+      try (WorkPipeline pipeline = new WorkPipeline("Mass export");
+           WorkPipeline audioPipeline = new WorkPipeline("Mass export audio", audioThreads, audioThreads * 2)) {
+        for (int i = 0, count = getResourceCount(); i < count; i++) {
+          final ResourceEntry entry = selectedFiles.get(i);
+          final WorkPipeline target = isAudioConversion(entry) ? audioPipeline : pipeline;
+          if (!target.submit(new Worker(entry))) {
+            break;
+          }
+          if (progress.isCanceled()) {
+            pipeline.cancel();
+            audioPipeline.cancel();
+            break;
+          }
         }
-      }
-
-      // enforcing thread termination if process has been cancelled
-      if (isCancelled) {
-        executor.shutdownNow();
-      } else {
-        executor.shutdown();
-      }
 
-      // waiting for pending threads to terminate
-      while (!executor.isTerminated()) {
-        if (!isCancelled && progress.isCanceled()) {
-          executor.shutdownNow();
-          isCancelled = true;
-        }
-        try { Thread.sleep(1); } catch (InterruptedException e) {}
+        // waiting for pending work items to complete
+        isCancelled = audioPipeline.join(progress::isCanceled);
+        audioTime = System.nanoTime() - audioTime;
+        isCancelled |= pipeline.join(progress::isCanceled);
       }
 
-      if (isCancelled) {
-        JOptionPane.showMessageDialog(NearInfinity.getInstance(), "Mass export aborted",
-                                      "Info", JOptionPane.INFORMATION_MESSAGE);
-      } else {
-        JOptionPane.showMessageDialog(NearInfinity.getInstance(), "Mass export completed",
-                                      "Info", JOptionPane.INFORMATION_MESSAGE);
+      String msg = isCancelled ? "Mass export aborted" : "Mass export completed";
+      if (audioCount.get() > 0L) {
+        double rate = audioSamples.get() * 1000000000.0 / Math.max(1L, audioTime);
+        msg += String.format("\nSounds converted: %d (%d samples/s)", audioCount.get(), (long)rate);
       }
+      JOptionPane.showMessageDialog(NearInfinity.getInstance(), msg, "Info", JOptionPane.INFORMATION_MESSAGE);
     } finally {
       advanceProgress(true);
       if (selectedFiles != null) {
@@ -348,6 +368,12 @@ public void run()
 
 // --------------------- End Interface Runnable ---------------------
 
+  // Returns whether the specified resource is exported by the sound conversion
+  private boolean isAudioConversion(ResourceEntry entry)
+  {
+    return entry != null && entry.getExtension().equalsIgnoreCase("WAV") && cbConvertWAV.isSelected();
+  }
+
   private int getResourceCount()
   {
     return (selectedFiles != null) ? selectedFiles.size() : 0;
@@ -422,12 +448,14 @@ private void decompressBamMos(ResourceEntry entry, Path output) throws Exception
 
   private void decompressWav(ResourceEntry entry, Path output) throws Exception
   {
-    ByteBuffer buffer = StreamUtils.getByteBuffer(AudioFactory.convertAudio(entry));
-    if (buffer != null && buffer.limit() > 0) {
+    AudioBuffer audio = AudioFactory.getAudioBuffer(entry, null);
+    if (audio != null) {
       // Keep trying. File may be in use by another thread.
       try (OutputStream os = tryOpenOutputStream(output, 10, 100)) {
-        StreamUtils.writeBytes(os, buffer);
+        audio.writeAudioData(os);
       }
+      audioCount.incrementAndGet();
+      audioSamples.addAndGet(audio.getSampleCount());
     }
   }
 
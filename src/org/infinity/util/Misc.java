@@ -282,7 +282,9 @@ public static ThreadPoolExecutor createThreadPool(int numThreads, int maxQueueSi
    * @param block Specify {@code true} to block execution as long as the queue is full.
    * @param maxWaitMs Specify max. time to block queue, in milliseconds. Specify -1 to block indefinitely.
    * @return {@code true} if queue is ready for new elements, {@code false} otherwise.
+   * @deprecated Polls the queue state. Use {@link WorkPipeline} for blocking submission instead.
    */
+  @Deprecated
   public static boolean isQueueReady(ThreadPoolExecutor executor, boolean block, int maxWaitMs)
   {
     if (executor != null) {
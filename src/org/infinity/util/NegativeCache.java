@@ -0,0 +1,109 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.util;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe cache of keys that are known to be unavailable, e.g. failed file lookups.
+ * <p>
+ * Each key is stamped with the generation of the cache that was current when the lookup
+ * started. {@link #invalidate()} starts a new generation, which discards all keys including
+ * those of lookups that are still running:
+ * <pre>
+ * int generation = cache.getGeneration();
+ * if (!cache.contains(key)) {
+ *   value = lookup(key);
+ *   if (value == null) cache.add(key, generation);
+ * }
+ * </pre>
+ */
+public final class NegativeCache<K>
+{
+  private final ConcurrentHashMap<K, Integer> map = new ConcurrentHashMap<>();
+  private final AtomicInteger generation = new AtomicInteger();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final int maxCount;
+
+  /**
+   * Creates a new cache.
+   * @param maxCount Max. number of keys to store. The cache is cleared when this number is exceeded.
+   */
+  public NegativeCache(int maxCount)
+  {
+    this.maxCount = Math.max(1, maxCount);
+  }
+
+  /** Returns the current generation of the cache. */
+  public int getGeneration()
+  {
+    return generation.get();
+  }
+
+  /** Returns whether the specified key is known to be unavailable in the current generation. */
+  public boolean contains(K key)
+  {
+    final Integer stamp = map.get(key);
+    if (stamp != null && stamp.intValue() == generation.get()) {
+      hits.incrementAndGet();
+      return true;
+    }
+    misses.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Marks the specified key as unavailable.
+   * @param key The key to add.
+   * @param generation The generation that was current when the lookup of the key started.
+   *                   The key is ignored if the cache has been invalidated in the meantime.
+   */
+  public void add(K key, int generation)
+  {
+    Objects.requireNonNull(key);
+    if (generation == this.generation.get()) {
+      if (map.size() >= maxCount) {
+        map.clear();
+      }
+      map.put(key, Integer.valueOf(generation));
+    }
+  }
+
+  /** Discards all keys. */
+  public void invalidate()
+  {
+    generation.incrementAndGet();
+    map.clear();
+  }
+
+  /** Returns the number of stored keys. */
+  public int getCount()
+  {
+    return map.size();
+  }
+
+  /** Returns the number of lookups that found a key. */
+  public long getHitCount()
+  {
+    return hits.get();
+  }
+
+  /** Returns the number of lookups that did not find a key. */
+  public long getMissCount()
+  {
+    return misses.get();
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%d entries, generation %d, %d hits, %d misses",
+                         getCount(), getGeneration(), getHitCount(), getMissCount());
+  }
+}
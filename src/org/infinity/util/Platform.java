@@ -4,6 +4,9 @@
 
 package org.infinity.util;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 /**
  * This class can be used to determine the operating system where this Java application is running.
  */
@@ -32,6 +35,43 @@ public enum OS {
   /** Returns the system-dependent name-separator character as string for the current platform. */
   public final static String SEPARATOR = System.getProperty("file.separator");
 
+  /**
+   * Returns the platform-specific root folder for persistent cache data of this application.
+   * The folder is not guaranteed to exist.
+   */
+  public static Path getCacheFolder()
+  {
+    Path retVal = null;
+    String home = System.getProperty("user.home");
+    switch (getPlatform()) {
+      case Windows:
+      {
+        String appData = System.getenv("LOCALAPPDATA");
+        if (appData == null || appData.isEmpty()) {
+          appData = System.getenv("APPDATA");
+        }
+        if (appData != null && !appData.isEmpty()) {
+          retVal = Paths.get(appData, "NearInfinity", "cache");
+        }
+        break;
+      }
+      case MacOS:
+        retVal = Paths.get(home, "Library", "Caches", "NearInfinity");
+        break;
+      default:
+      {
+        String cacheHome = System.getenv("XDG_CACHE_HOME");
+        if (cacheHome != null && !cacheHome.isEmpty()) {
+          retVal = Paths.get(cacheHome, "nearinfinity");
+        }
+      }
+    }
+    if (retVal == null) {
+      retVal = Paths.get(home, ".cache", "nearinfinity");
+    }
+    return retVal;
+  }
+
   /**
    * Determines the current operating system.
    */
@@ -0,0 +1,222 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.util;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe cache which limits the accumulated size of its entries instead of their number.
+ * <p>
+ * The size of each entry is determined by a weigher function, usually the number of bytes
+ * occupied by the value. Lookups do not block. Entries are evicted in second-chance order when
+ * the max. size is exceeded: the oldest entry is removed unless it has been accessed since the
+ * last eviction pass, in which case it is moved to the end of the queue.
+ */
+public final class SizeBoundedCache<K, V>
+{
+  private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+  // eviction queue, guarded by "this"
+  private final ArrayDeque<Node<K, V>> queue = new ArrayDeque<>();
+  private final ToLongFunction<? super V> weigher;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  private long maxSize;
+  private long size;
+
+  /**
+   * Creates a new cache.
+   * @param maxSize Max. accumulated size of all entries. Specify 0 to disable the cache.
+   * @param weigher Function that returns the size of a cached value.
+   */
+  public SizeBoundedCache(long maxSize, ToLongFunction<? super V> weigher)
+  {
+    this.weigher = Objects.requireNonNull(weigher);
+    this.maxSize = Math.max(0L, maxSize);
+  }
+
+  /** Returns the value associated with the specified key, or {@code null} if not available. */
+  public V get(K key)
+  {
+    final Node<K, V> node = map.get(key);
+    if (node != null) {
+      node.referenced = true;
+      hits.incrementAndGet();
+      return node.value;
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Returns the value associated with the specified key. If not available the value is
+   * created by the specified function and added to the cache. The function is called without
+   * holding locks, i.e. concurrent callers may create the same value more than once.
+   * @param key The key of the value.
+   * @param loader Function that creates the value. May return {@code null}.
+   * @return The cached or newly created value.
+   */
+  public V get(K key, Function<? super K, ? extends V> loader)
+  {
+    V value = get(key);
+    if (value == null) {
+      value = loader.apply(key);
+      if (value != null) {
+        final V prev = putIfAbsent(key, value);
+        if (prev != null) {
+          value = prev;
+        }
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Associates the specified value with the specified key. Previous values are replaced.
+   * Entries are evicted if the max. cache size is exceeded.
+   */
+  public void put(K key, V value)
+  {
+    add(key, value, true);
+  }
+
+  /**
+   * Associates the specified value with the specified key if the key is not yet in the cache.
+   * @return The value that is already associated with the key, or {@code null} if the specified value was added.
+   */
+  public V putIfAbsent(K key, V value)
+  {
+    return add(key, value, false);
+  }
+
+  /** Removes the entry of the specified key. Returns the removed value, or {@code null} if not available. */
+  public synchronized V remove(K key)
+  {
+    final Node<K, V> node = map.remove(key);
+    if (node != null) {
+      queue.remove(node);
+      size -= node.weight;
+      return node.value;
+    }
+    return null;
+  }
+
+  /** Removes all entries from the cache. Statistics are not affected. */
+  public synchronized void clear()
+  {
+    map.clear();
+    queue.clear();
+    size = 0L;
+  }
+
+  /** Returns the number of cached entries. */
+  public int getCount()
+  {
+    return map.size();
+  }
+
+  /** Returns the accumulated size of all cached entries. */
+  public synchronized long getSize()
+  {
+    return size;
+  }
+
+  /** Returns the max. accumulated size of all cached entries. */
+  public synchronized long getMaxSize()
+  {
+    return maxSize;
+  }
+
+  /** Sets the max. accumulated size of all cached entries. Excess entries are evicted immediately. */
+  public synchronized void setMaxSize(long maxSize)
+  {
+    this.maxSize = Math.max(0L, maxSize);
+    evict();
+  }
+
+  /** Returns the number of lookups that found a cached value. */
+  public long getHitCount()
+  {
+    return hits.get();
+  }
+
+  /** Returns the number of lookups that did not find a cached value. */
+  public long getMissCount()
+  {
+    return misses.get();
+  }
+
+  /** Returns the number of entries that have been removed to stay within the max. cache size. */
+  public long getEvictionCount()
+  {
+    return evictions.get();
+  }
+
+  @Override
+  public synchronized String toString()
+  {
+    return String.format("%d entries, %d of %d bytes, %d hits, %d misses, %d evictions",
+                         getCount(), size, maxSize, getHitCount(), getMissCount(), getEvictionCount());
+  }
+
+  private synchronized V add(K key, V value, boolean replace)
+  {
+    Objects.requireNonNull(key);
+    Objects.requireNonNull(value);
+    final Node<K, V> node = new Node<>(key, value, Math.max(0L, weigher.applyAsLong(value)));
+    final Node<K, V> prev = replace ? map.put(key, node) : map.putIfAbsent(key, node);
+    if (prev != null) {
+      if (!replace) {
+        prev.referenced = true;
+        return prev.value;
+      }
+      queue.remove(prev);
+      size -= prev.weight;
+    }
+    size += node.weight;
+    queue.addLast(node);
+    evict();
+    return null;
+  }
+
+  // Removes entries in second-chance order until the cache fits into the max. size
+  private void evict()
+  {
+    while (size > maxSize && !queue.isEmpty()) {
+      final Node<K, V> node = queue.pollFirst();
+      if (node.referenced) {
+        node.referenced = false;
+        queue.addLast(node);
+      } else {
+        map.remove(node.key);
+        size -= node.weight;
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  private static final class Node<K, V>
+  {
+    final K key;
+    final V value;
+    final long weight;
+    volatile boolean referenced;
+
+    Node(K key, V value, long weight)
+    {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+}
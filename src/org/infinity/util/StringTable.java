@@ -7,6 +7,7 @@
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
@@ -15,7 +16,8 @@
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.EnumMap;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.infinity.NearInfinity;
 import org.infinity.datatype.DecNumber;
@@ -982,7 +984,7 @@ private static StringTable instance(Type type)
   }
 
   private final ArrayList<StringEntry> entries = new ArrayList<>();
-  private final HashMap<Integer, Integer> entriesVirtual = new HashMap<>();
+  private final ConcurrentHashMap<Integer, Integer> entriesVirtual = new ConcurrentHashMap<>();
   private final Path tlkPath;
   private final StringTable.Type tlkType;
 
@@ -990,6 +992,10 @@ private static StringTable instance(Type type)
   private int numEntries, ofsStrings;
   private ByteBuffer headerData;
   private int entriesPending;
+  // lazily decoded string entries which have not yet been transferred to "entries"
+  private volatile AtomicReferenceArray<StringEntry> entriesLoaded;
+  // shared channel for reading string data on demand
+  private volatile FileChannel channel;
 //  private boolean fullyLoaded;
 
   private short langId;
@@ -1105,11 +1111,14 @@ private void _setPitch(int index, int value) throws IndexOutOfBoundsException
   private StringEntry _getEntry(int index) throws IndexOutOfBoundsException
   {
     index = _getTranslatedIndex(index);
-    _ensureIndexIsLoaded(index);
-    StringEntry entry;
+    StringEntry entry = null;
     if (index >= 0 && index < entries.size()) {
       entry = entries.get(index);
-    } else {
+      if (entry == null) {
+        entry = _ensureIndexIsLoaded(index);
+      }
+    }
+    if (entry == null) {
       entry = StringEntry.getInvalidEntry();
     }
     return entry;
@@ -1142,6 +1151,7 @@ private void _init()
           while (entries.size() < numEntries) {
             entries.add(null);
           }
+          entriesLoaded = new AtomicReferenceArray<>(numEntries);
 
           entriesPending = numEntries;
           initialized = true;
@@ -1161,6 +1171,8 @@ private void _reset()
   {
     synchronized (entries) {
       entries.clear();
+      entriesLoaded = null;
+      _close();
       headerData = null;
       ofsStrings = numEntries = entriesPending = -1;
       initialized = false;
@@ -1174,42 +1186,91 @@ private FileChannel _open() throws IOException
     return FileChannel.open(_getPath(), StandardOpenOption.READ);
   }
 
-  private StringEntry _loadEntry(FileChannel ch, int index) throws IOException, IndexOutOfBoundsException,
-                                                            IllegalArgumentException
+  // Returns the shared channel for reading string data. Opens the channel if needed.
+  private FileChannel _getChannel() throws IOException
   {
-    if (index < 0 || index >= _getNumEntries()) {
+    FileChannel ch = channel;
+    if (ch == null || !ch.isOpen()) {
+      synchronized (this) {
+        ch = channel;
+        if (ch == null || !ch.isOpen()) {
+          ch = _open();
+          channel = ch;
+        }
+      }
+    }
+    return ch;
+  }
+
+  // Closes the shared channel for reading string data
+  private synchronized void _close()
+  {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+      }
+      channel = null;
+    }
+  }
+
+  // Decodes the specified string entry from file. Safe to be called concurrently.
+  private StringEntry _loadEntry(int index) throws IOException, IndexOutOfBoundsException,
+                                                   IllegalArgumentException
+  {
+    final ByteBuffer header = headerData;
+    if (index < 0 || header == null || index * 26 + 26 > header.limit()) {
       throw new IndexOutOfBoundsException();
     }
 
-    StringEntry entry = null;
-    if (ch != null) {
-      int ofs = index * 26; // rel. offset entry
-      headerData.position(ofs);
-      short flags = headerData.getShort();
-      String soundRef = StreamUtils.readString(headerData, 8);
-      int volume = headerData.getInt();
-      int pitch = headerData.getInt();
-      int ofsString = ofsStrings + headerData.getInt();
-      int lenString = headerData.getInt();
-      headerData.position(0);
-      String text = null;
-      if (lenString > 0) {
-        try {
-          ch.position(ofsString);
-          text = StreamUtils.readString(ch, lenString, getCharset());
-          if (!CharsetDetector.getLookup().isExcluded(index)) {
-            text = CharsetDetector.getLookup().decodeString(text);
-          }
-        } catch (IllegalArgumentException e) {
-          System.err.println("Error: Illegal offset " + ofsString + " for string entry " + index);
-          text = "";
+    int ofs = index * 26; // rel. offset entry
+    short flags = header.getShort(ofs);
+    String soundRef = StreamUtils.readString(header.duplicate(), ofs + 2, 8);
+    int volume = header.getInt(ofs + 10);
+    int pitch = header.getInt(ofs + 14);
+    int ofsString = ofsStrings + header.getInt(ofs + 18);
+    int lenString = header.getInt(ofs + 22);
+    String text = null;
+    if (lenString > 0) {
+      try {
+        text = _readString(ofsString, lenString);
+        if (!CharsetDetector.getLookup().isExcluded(index)) {
+          text = CharsetDetector.getLookup().decodeString(text);
         }
-      } else {
+      } catch (IllegalArgumentException e) {
+        System.err.println("Error: Illegal offset " + ofsString + " for string entry " + index);
         text = "";
       }
-      entry = new StringEntry(this, flags, soundRef, volume, pitch, text);
+    } else {
+      text = "";
     }
-    return entry;
+    return new StringEntry(this, flags, soundRef, volume, pitch, text);
+  }
+
+  // Reads string data from the specified file offset using positional read operations
+  private String _readString(long offset, int length) throws IOException
+  {
+    if (offset < 0) {
+      throw new IllegalArgumentException();
+    }
+    ByteBuffer bb = ByteBuffer.wrap(new byte[length]);
+    for (int retry = 0; ; retry++) {
+      try {
+        FileChannel ch = _getChannel();
+        while (bb.hasRemaining()) {
+          if (ch.read(bb, offset + bb.position()) < 0) {
+            throw new IOException("End of stream");
+          }
+        }
+        break;
+      } catch (ClosedChannelException e) {
+        // channel has been closed by another thread
+        if (retry > 0) {
+          throw e;
+        }
+      }
+    }
+    return new String(bb.array(), getCharset());
   }
 
   private int _insertEntry(int index) throws IndexOutOfBoundsException
@@ -1254,10 +1315,10 @@ private void _ensureFullyLoaded()
   {
     if (entriesPending > 0) {
       synchronized (entries) {
-        try (FileChannel ch = _open()) {
+        try {
           for (int idx = 0, num = _getNumEntries(); idx < num; idx++) {
             if (entries.get(idx) == null) {
-              StringEntry entry = _loadEntry(ch, idx);
+              StringEntry entry = _ensureIndexIsLoaded(idx);
               if (entry != null) {
                 entries.set(idx, entry);
               } else {
@@ -1268,36 +1329,53 @@ private void _ensureFullyLoaded()
           entriesPending = 0;
         } catch (Exception e) {
           e.printStackTrace();
+        } finally {
+          _close();
         }
       }
     }
   }
 
-  // Makes sure the specified string entry is loaded into memory
-  private void _ensureIndexIsLoaded(int index)
+  // Makes sure the specified string entry is loaded into memory and returns it.
+  // Returns null if the entry is not available.
+  private StringEntry _ensureIndexIsLoaded(int index)
   {
-    index = _getTranslatedIndex(index);
-    if (entriesPending > 0 && index >= 0 && index < _getNumEntries() && entries.get(index) == null) {
-      synchronized (entries) {
-        try (FileChannel ch = _open()) {
-          StringEntry entry = _loadEntry(ch, index);
-          if (entry != null) {
-            entries.set(index, entry);
-            entriesPending--;
-          } else {
-            throw new Exception();
-          }
-        } catch (Exception e) {
-          e.printStackTrace();
-        }
+    final AtomicReferenceArray<StringEntry> loaded = entriesLoaded;
+    if (loaded == null || index < 0 || index >= loaded.length()) {
+      return null;
+    }
+
+    StringEntry entry = loaded.get(index);
+    if (entry == null) {
+      try {
+        entry = _loadEntry(index);
+      } catch (Exception e) {
+        e.printStackTrace();
+        return null;
+      }
+      // another thread may have published the same entry in the meantime
+      if (!loaded.compareAndSet(index, null, entry)) {
+        entry = loaded.get(index);
       }
     }
+    return entry;
   }
 
   private void _resetEntries()
   {
     if (_isModified()) {
       synchronized (entries) {
+        AtomicReferenceArray<StringEntry> loaded = entriesLoaded;
+        if (loaded == null) {
+          loaded = new AtomicReferenceArray<>(numEntries);
+          entriesLoaded = loaded;
+        }
+        for (int idx = 0, cnt = loaded.length(); idx < cnt; idx++) {
+          StringEntry entry = loaded.get(idx);
+          if (entry != null && entry.isModified()) {
+            loaded.set(idx, null);
+          }
+        }
         for (int idx = 0, cnt = entries.size(); idx < cnt; idx++) {
           if (entries.get(idx) != null && entries.get(idx).isModified()) {
             entries.set(idx, null);
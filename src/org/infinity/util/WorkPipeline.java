@@ -0,0 +1,277 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.util;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Executes work items in a fixed number of threads with bounded back-pressure.
+ * <p>
+ * {@link #submit(Runnable)} blocks while the maximum number of pending work items is reached,
+ * {@link #join(BooleanSupplier)} waits for all submitted work items to complete and
+ * {@link #cancel()} discards pending work items and interrupts running ones. Waiting is
+ * performed without polling.
+ * <p>
+ * Example:
+ * <pre>
+ * try (WorkPipeline pipeline = new WorkPipeline("Search")) {
+ *   for (ResourceEntry entry : entries) {
+ *     if (!pipeline.submit(() -> search(entry))) break;
+ *   }
+ *   boolean cancelled = pipeline.join(progress::isCanceled);
+ * }
+ * </pre>
+ */
+public final class WorkPipeline implements AutoCloseable
+{
+  /** Interval for evaluating cancel conditions while waiting for completion, in milliseconds. */
+  private static final long CANCEL_CHECK_INTERVAL = 50L;
+
+  private final String name;
+  private final ThreadPoolExecutor executor;
+  private final Semaphore slots;
+  private final Object lock = new Object();
+  private final AtomicLong submitted = new AtomicLong();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+  private final long startTime = System.nanoTime();
+
+  private int pending;
+  private volatile boolean cancelled;
+
+  /**
+   * Creates a work pipeline with one thread per available CPU core and room for
+   * twice as many pending work items.
+   * @param name Name of the pipeline. Used for naming worker threads.
+   */
+  public WorkPipeline(String name)
+  {
+    this(name, Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  /**
+   * Creates a work pipeline with the specified parameters.
+   * @param name Name of the pipeline. Used for naming worker threads.
+   * @param numThreads Max. number of parallel threads to execute. Must be >= 1.
+   * @param maxQueueSize Max. number of work items waiting for execution. Must be >= {@code numThreads}.
+   */
+  public WorkPipeline(String name, int numThreads, int maxQueueSize)
+  {
+    this.name = (name != null) ? name : "WorkPipeline";
+    numThreads = Math.max(1, numThreads);
+    maxQueueSize = Math.max(numThreads, maxQueueSize);
+    this.slots = new Semaphore(numThreads + maxQueueSize);
+    this.executor = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+                                           new LinkedBlockingQueue<Runnable>(), new WorkerFactory(this.name));
+  }
+
+  /**
+   * Submits the specified work item for execution. Blocks while the maximum number of
+   * pending work items is reached.
+   * @param task The work item to execute.
+   * @return {@code true} if the work item has been accepted,
+   *         {@code false} if the pipeline has been cancelled or the calling thread was interrupted.
+   */
+  public boolean submit(Runnable task)
+  {
+    if (task == null) {
+      throw new NullPointerException();
+    }
+    if (cancelled) {
+      return false;
+    }
+    try {
+      slots.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+
+    synchronized (lock) {
+      if (cancelled) {
+        slots.release();
+        return false;
+      }
+      pending++;
+      submitted.incrementAndGet();
+      executor.execute(new Task(task));
+    }
+    return true;
+  }
+
+  /**
+   * Waits until all submitted work items have been processed.
+   * @param cancelCheck Optional condition which is evaluated periodically while waiting.
+   *                    The pipeline is {@link #cancel() cancelled} as soon as it returns {@code true}.
+   *                    Specify {@code null} to wait unconditionally.
+   * @return {@code true} if the pipeline has been cancelled, {@code false} otherwise.
+   */
+  public boolean join(BooleanSupplier cancelCheck)
+  {
+    try {
+      synchronized (lock) {
+        while (pending > 0) {
+          if (cancelCheck != null && !cancelled && cancelCheck.getAsBoolean()) {
+            cancel();
+          }
+          lock.wait((cancelCheck != null) ? CANCEL_CHECK_INTERVAL : 0L);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      cancel();
+    }
+    return cancelled;
+  }
+
+  /** Discards all pending work items and interrupts work items that are currently executed. */
+  public void cancel()
+  {
+    final List<Runnable> list;
+    synchronized (lock) {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      list = executor.shutdownNow();
+    }
+    for (final Runnable r : list) {
+      if (r instanceof Task) {
+        ((Task)r).finish(skipped);
+      }
+    }
+  }
+
+  /** Returns whether the pipeline has been cancelled. */
+  public boolean isCancelled()
+  {
+    return cancelled;
+  }
+
+  /** Returns the name of the pipeline. */
+  public String getName()
+  {
+    return name;
+  }
+
+  /** Returns the number of submitted work items. */
+  public long getSubmittedCount()
+  {
+    return submitted.get();
+  }
+
+  /** Returns the number of successfully completed work items. */
+  public long getCompletedCount()
+  {
+    return completed.get();
+  }
+
+  /** Returns the number of work items that terminated with an exception. */
+  public long getFailedCount()
+  {
+    return failed.get();
+  }
+
+  /** Returns the number of work items that were discarded by {@link #cancel()}. */
+  public long getSkippedCount()
+  {
+    return skipped.get();
+  }
+
+  /** Returns the average number of processed work items per second since the pipeline was created. */
+  public double getThroughput()
+  {
+    double seconds = (System.nanoTime() - startTime) / 1000000000.0;
+    return (seconds > 0.0) ? (completed.get() + failed.get()) / seconds : 0.0;
+  }
+
+  /** Shuts down the worker threads. Work items that have already been submitted are still processed. */
+  @Override
+  public void close()
+  {
+    executor.shutdown();
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%s: %d submitted, %d completed, %d failed, %d skipped (%.1f items/s)",
+                         name, getSubmittedCount(), getCompletedCount(), getFailedCount(),
+                         getSkippedCount(), getThroughput());
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  // Wraps a work item to keep track of its completion
+  private final class Task implements Runnable
+  {
+    private final Runnable task;
+
+    public Task(Runnable task)
+    {
+      this.task = task;
+    }
+
+    @Override
+    public void run()
+    {
+      if (cancelled) {
+        finish(skipped);
+        return;
+      }
+      AtomicLong counter = failed;
+      try {
+        task.run();
+        counter = completed;
+      } catch (Throwable t) {
+        if (!cancelled) {
+          t.printStackTrace();
+        }
+      } finally {
+        finish(counter);
+      }
+    }
+
+    public void finish(AtomicLong counter)
+    {
+      counter.incrementAndGet();
+      slots.release();
+      synchronized (lock) {
+        if (--pending == 0) {
+          lock.notifyAll();
+        }
+      }
+    }
+  }
+
+  // Creates named worker threads
+  private static final class WorkerFactory implements ThreadFactory
+  {
+    private final AtomicInteger counter = new AtomicInteger();
+    private final String name;
+
+    public WorkerFactory(String name)
+    {
+      this.name = name;
+    }
+
+    @Override
+    public Thread newThread(Runnable r)
+    {
+      final Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
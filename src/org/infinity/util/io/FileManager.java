@@ -5,16 +5,16 @@
 package org.infinity.util.io;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardWatchEventKinds;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import org.infinity.util.Platform;
@@ -26,7 +26,12 @@
  */
 public class FileManager implements FileWatchListener
 {
-  private static final HashMap<Path, HashSet<Path>> pathCache = new HashMap<>();
+  private static final ConcurrentHashMap<Path, DirectoryIndex> pathCache = new ConcurrentHashMap<>();
+
+  // Statistics of cached file lookups
+  private static final AtomicLong cacheHits = new AtomicLong();
+  private static final AtomicLong cacheMisses = new AtomicLong();
+  private static final AtomicLong directoryLoads = new AtomicLong();
 
   private static FileManager instance;
 
@@ -227,6 +232,24 @@ public static void unregisterFile(Path file)
     _unregisterFile(file);
   }
 
+  /** Returns the number of cached file lookups which found a matching file. */
+  public static long getCacheHits()
+  {
+    return cacheHits.get();
+  }
+
+  /** Returns the number of cached file lookups which did not find a matching file. */
+  public static long getCacheMisses()
+  {
+    return cacheMisses.get();
+  }
+
+  /** Returns the number of directories which have been read into the file cache. */
+  public static long getDirectoryLoads()
+  {
+    return directoryLoads.get();
+  }
+
   /**
    * Returns whether the file system the specified {@code path} is pointing to
    * is restricted to read-only operations.
@@ -484,20 +507,28 @@ private static Path _resolve(Path path)
     if (path != null && isFileSystemCaseSensitive(path.getFileSystem()) && !FileEx.create(path).exists()) {
       boolean found = false;
       Path curPath = path.normalize().toAbsolutePath();
+
+      // shortcut: only the file name has to be resolved in most cases
+      Path parent = curPath.getParent();
+      if (parent != null && curPath.getFileName() != null && FileEx.create(parent).isDirectory()) {
+        DirectoryIndex index = _cacheDirectory(parent, false);
+        if (index != null) {
+          Path file = index.get(curPath.getFileName().toString());
+          return (file != null) ? file : curPath;
+        }
+      }
+
       Path dir = curPath.getRoot();
       for (final Path searchPath: curPath) {
         String searchString = searchPath.getFileName().toString();
         found = false;
-        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
-          for (final Path dirPath: ds) {
-            String dirString = dirPath.getFileName().toString();
-            if (searchString.equalsIgnoreCase(dirString)) {
-              dir = dir.resolve(dirString);
-              found = true;
-              break;
-            }
+        DirectoryIndex index = _cacheDirectory(dir, false);
+        if (index != null) {
+          Path dirPath = index.get(searchString);
+          if (dirPath != null) {
+            dir = dir.resolve(dirPath.getFileName().toString());
+            found = true;
           }
-        } catch (Throwable t) {
         }
         if (!found) {
           break;
@@ -520,9 +551,9 @@ private static void _registerFile(Path file)
   {
     if (file != null) {
       file = _resolve(file);
-      HashSet<Path> set = pathCache.get(file.getParent());
-      if (set != null) {
-        set.add(file);
+      DirectoryIndex index = pathCache.get(file.getParent());
+      if (index != null) {
+        index.add(file);
       }
     }
   }
@@ -531,21 +562,20 @@ private static void _unregisterFile(Path file)
   {
     if (file != null) {
       file = _resolve(file);
-      HashSet<Path> set = pathCache.get(file.getParent());
-      if (set != null) {
-        set.remove(file);
-        if (set.isEmpty()) {
-          pathCache.remove(file.getParent());
+      DirectoryIndex index = pathCache.get(file.getParent());
+      if (index != null) {
+        index.remove(file);
+        if (index.isEmpty()) {
+          pathCache.remove(file.getParent(), index);
         }
-      } else if (pathCache.containsKey(file)) {
-        pathCache.remove(file);
       }
+      pathCache.remove(file);
     }
   }
 
   private static void _invalidateDirectory(Path dir)
   {
-    if (dir != null && pathCache.containsKey(dir)) {
+    if (dir != null) {
       pathCache.remove(dir);
     }
   }
@@ -555,49 +585,116 @@ private static Path _resolveExisting(Path path)
     Path retVal = _resolve(path);
     if (retVal != null) {
       Path folder = retVal.getParent();
-      HashSet<Path> list = pathCache.get(folder);
-      if (list == null) {
-        list = _cacheDirectory(folder, false);
-      }
-      if (list == null) {
+      DirectoryIndex index = _cacheDirectory(folder, false);
+      if (index == null) {
         retVal = null;
       } else {
-        final String pathString = path.getFileName().toString();
-        retVal = list
-            .parallelStream()
-            .filter(p -> pathString.equalsIgnoreCase(p.getFileName().toString()))
-            .findAny()
-            .orElse(null);
+        retVal = index.get(path.getFileName().toString());
       }
     }
     return retVal;
   }
 
-  private static HashSet<Path> _cacheDirectory(Path path, boolean force)
+  private static DirectoryIndex _cacheDirectory(Path path, boolean force)
   {
-    HashSet<Path> retVal = null;
-    if (path != null && FileEx.create(path).isDirectory()) {
-      if (force) {
-        pathCache.remove(path);
+    DirectoryIndex retVal = null;
+    if (path != null) {
+      if (!force) {
+        retVal = pathCache.get(path);
+        if (retVal != null && !FileWatcher.getInstance().isRunning() &&
+            retVal.lastModified != getLastModified(path)) {
+          // directory content has been changed without notification
+          pathCache.remove(path, retVal);
+          retVal = null;
+        }
       }
-      retVal = pathCache.get(path);
-      if (retVal == null) {
-        HashSet<Path> fileList = new HashSet<>();
+      if (retVal == null && FileEx.create(path).isDirectory()) {
+        final DirectoryIndex index = new DirectoryIndex(getLastModified(path));
         try (Stream<Path> pathStream = Files.list(path)) {
-          pathStream.forEach((file) -> { fileList.add(file); });
+          pathStream.forEach(index::add);
         } catch (IOException e) {
         }
-        retVal = fileList;
-        pathCache.put(path, retVal);
+        directoryLoads.incrementAndGet();
+        if (force) {
+          pathCache.put(path, index);
+          retVal = index;
+        } else {
+          retVal = pathCache.putIfAbsent(path, index);
+          if (retVal == null) {
+            retVal = index;
+          }
+        }
       }
     }
     return retVal;
   }
 
+  // Returns the modification time of the specified path in milliseconds, or -1 if not available
+  private static long getLastModified(Path path)
+  {
+    try {
+      return Files.getLastModifiedTime(path).toMillis();
+    } catch (IOException e) {
+      return -1L;
+    }
+  }
+
   // Returns whether the specified filesystem is case-sensitive
   private static boolean isFileSystemCaseSensitive(FileSystem fs)
   {
     // quick&dirty solution
     return Platform.IS_UNIX;
   }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  /**
+   * Maps case-folded file names of a single directory to the actual file paths.
+   * The index is reloaded if the modification time of the directory changes while
+   * the {@link FileWatcher} is not running.
+   */
+  private static final class DirectoryIndex
+  {
+    private final ConcurrentHashMap<String, Path> files = new ConcurrentHashMap<>();
+    /** Modification time of the directory when the index was loaded. */
+    public final long lastModified;
+
+    public DirectoryIndex(long lastModified)
+    {
+      this.lastModified = lastModified;
+    }
+
+    /** Returns the path of the file matching the specified name, ignoring case. */
+    public Path get(String name)
+    {
+      Path retVal = (name != null) ? files.get(fold(name)) : null;
+      if (retVal != null) {
+        cacheHits.incrementAndGet();
+      } else {
+        cacheMisses.incrementAndGet();
+      }
+      return retVal;
+    }
+
+    public void add(Path file)
+    {
+      files.putIfAbsent(fold(file.getFileName().toString()), file);
+    }
+
+    public void remove(Path file)
+    {
+      files.remove(fold(file.getFileName().toString()), file);
+    }
+
+    public boolean isEmpty()
+    {
+      return files.isEmpty();
+    }
+
+    // Returns a representation of the specified name that is identical for all case variants
+    private static String fold(String name)
+    {
+      return name.toUpperCase(Locale.ENGLISH).toLowerCase(Locale.ENGLISH);
+    }
+  }
 }
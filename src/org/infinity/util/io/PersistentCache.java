@@ -0,0 +1,167 @@
+// Near Infinity - An Infinity Engine Browser and Editor
+// Copyright (C) 2001 - 2019 Jon Olav Hauglid
+// See LICENSE.txt for license information
+
+package org.infinity.util.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.infinity.resource.key.ResourceEntry;
+import org.infinity.util.io.FileWatcher.FileWatchEvent;
+import org.infinity.util.io.FileWatcher.FileWatchListener;
+
+/**
+ * Helper methods for caches of resource data which are persisted in the game's cache folder.
+ * <p>
+ * Cache files are gzip compressed and start with a signature and a version number.
+ * Cached data of a resource is validated by a fingerprint of the file containing the resource.
+ */
+public final class PersistentCache
+{
+  /**
+   * Reads the specified cache file. Does nothing if the file does not exist or does not match
+   * the specified signature and version.
+   * @param file The cache file.
+   * @param signature Signature of the cache file.
+   * @param version Version of the cache file format.
+   * @param reader Reads the remaining cache data.
+   * @return {@code true} if the data has been read completely, {@code false} otherwise.
+   */
+  public static boolean load(Path file, String signature, int version, DataReader reader)
+  {
+    if (file == null || !Files.isRegularFile(file)) {
+      return false;
+    }
+
+    try (DataInputStream dis = new DataInputStream(new BufferedInputStream(
+        new GZIPInputStream(Files.newInputStream(file))))) {
+      final byte[] sig = new byte[signature.length()];
+      dis.readFully(sig);
+      if (!signature.equals(new String(sig, StandardCharsets.US_ASCII)) || dis.readInt() != version) {
+        return false;
+      }
+      return reader.read(dis);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Writes the specified cache file. Data is written to a temporary file first, which replaces
+   * the cache file when complete.
+   * @param file The cache file.
+   * @param signature Signature of the cache file.
+   * @param version Version of the cache file format.
+   * @param writer Writes the cache data.
+   */
+  public static void save(Path file, String signature, int version, DataWriter writer)
+  {
+    if (file == null) {
+      return;
+    }
+
+    Path tmpFile = null;
+    try {
+      Files.createDirectories(file.getParent());
+      tmpFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(
+          new GZIPOutputStream(Files.newOutputStream(tmpFile))))) {
+        dos.write(signature.getBytes(StandardCharsets.US_ASCII));
+        dos.writeInt(version);
+        writer.write(dos);
+      }
+      Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+      tmpFile = null;
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      if (tmpFile != null) {
+        try {
+          Files.deleteIfExists(tmpFile);
+        } catch (IOException e) {
+        }
+      }
+    }
+  }
+
+  private PersistentCache()
+  {
+  }
+
+//-------------------------- INNER CLASSES --------------------------
+
+  @FunctionalInterface
+  public interface DataReader
+  {
+    /** Reads cache data. Returns {@code false} if the data is not applicable. */
+    boolean read(DataInputStream dis) throws IOException;
+  }
+
+  @FunctionalInterface
+  public interface DataWriter
+  {
+    void write(DataOutputStream dos) throws IOException;
+  }
+
+  /**
+   * Fingerprints of files containing resources, based on path, size and modification time.
+   * Fingerprints are determined once and reset by {@link FileWatcher} events.
+   */
+  public static final class Fingerprints implements FileWatchListener
+  {
+    private final ConcurrentHashMap<Path, Long> fingerprints = new ConcurrentHashMap<>();
+
+    /** Returns a fingerprint of the file containing the specified resource. Returns 0 if not available. */
+    public long get(ResourceEntry entry)
+    {
+      final Path path = entry.getActualPath();
+      if (path == null) {
+        return 0L;
+      }
+      return get(path);
+    }
+
+    /** Returns a fingerprint of the specified file. Returns 0 if not available. */
+    public long get(Path path)
+    {
+      return fingerprints.computeIfAbsent(path, p -> {
+        try {
+          long size = Files.size(p);
+          long time = Files.getLastModifiedTime(p).toMillis();
+          long hash = p.toAbsolutePath().toString().toUpperCase(Locale.ENGLISH).hashCode();
+          return ((hash * 31L + size) * 31L + time) | 1L;
+        } catch (IOException e) {
+          return 0L;
+        }
+      }).longValue();
+    }
+
+    /** Discards all fingerprints. */
+    public void clear()
+    {
+      fingerprints.clear();
+    }
+
+    @Override
+    public void fileChanged(FileWatchEvent e)
+    {
+      if (e.getPath() != null) {
+        fingerprints.remove(e.getPath());
+      } else {
+        fingerprints.clear();
+      }
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package org.infinity.util;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntegerIntMapTest {
+  //public void put(int key, int value), public int get(int key, int defaultValue)
+  @Test
+  public void testPutAndGetMatchHashMap() {
+    final IntegerIntMap map = new IntegerIntMap();
+    final HashMap<Integer, Integer> expected = new HashMap<>();
+    final Random rnd = new Random(1234L);
+    for (int i = 0; i < 20000; i++) {
+      int key = rnd.nextInt(5000) - 2500;
+      map.put(key, i);
+      expected.put(key, i);
+    }
+    Assert.assertEquals(expected.size(), map.size());
+    for (int key = -2500; key < 2500; key++) {
+      Integer value = expected.get(key);
+      Assert.assertEquals((value != null) ? value.intValue() : -1, map.get(key, -1));
+    }
+  }
+
+  //public void clear()
+  @Test
+  public void testClearRemovesAllEntries() {
+    final IntegerIntMap map = new IntegerIntMap(4);
+    for (int i = 0; i < 100; i++) {
+      map.put(i * 31, i);
+    }
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertFalse(map.containsKey(0));
+    map.put(0xff00ff00, 7);
+    Assert.assertEquals(7, map.get(0xff00ff00, -1));
+    Assert.assertEquals(1, map.size());
+  }
+}
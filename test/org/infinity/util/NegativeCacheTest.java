@@ -0,0 +1,30 @@
+package org.infinity.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NegativeCacheTest {
+  //public boolean contains(K key), public void add(K key, int generation)
+  @Test
+  public void testAddedKeysAreCountedAsHits() {
+    final NegativeCache<String> cache = new NegativeCache<>(10);
+    Assert.assertFalse(cache.contains("A"));
+    cache.add("A", cache.getGeneration());
+    Assert.assertTrue(cache.contains("A"));
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(1, cache.getMissCount());
+  }
+
+  //public void invalidate()
+  @Test
+  public void testInvalidateDiscardsKeysOfRunningLookups() {
+    final NegativeCache<String> cache = new NegativeCache<>(10);
+    cache.add("A", cache.getGeneration());
+    final int generation = cache.getGeneration();
+    cache.invalidate();
+    cache.add("B", generation);
+    Assert.assertFalse(cache.contains("A"));
+    Assert.assertFalse(cache.contains("B"));
+    Assert.assertEquals(0, cache.getCount());
+  }
+}
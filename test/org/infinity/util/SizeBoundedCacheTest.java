@@ -0,0 +1,44 @@
+package org.infinity.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SizeBoundedCacheTest {
+  //public void put(K key, V value)
+  @Test
+  public void testPutEvictsOldestEntriesBeyondMaxSize() {
+    final SizeBoundedCache<String, byte[]> cache = new SizeBoundedCache<>(100, v -> v.length);
+    cache.put("a", new byte[40]);
+    cache.put("b", new byte[40]);
+    cache.put("c", new byte[40]);
+    Assert.assertNull(cache.get("a"));
+    Assert.assertNotNull(cache.get("b"));
+    Assert.assertNotNull(cache.get("c"));
+    Assert.assertEquals(80, cache.getSize());
+    Assert.assertEquals(1, cache.getEvictionCount());
+  }
+
+  @Test
+  public void testRecentlyUsedEntriesGetSecondChance() {
+    final SizeBoundedCache<String, byte[]> cache = new SizeBoundedCache<>(100, v -> v.length);
+    cache.put("a", new byte[40]);
+    cache.put("b", new byte[40]);
+    cache.get("a");
+    cache.put("c", new byte[40]);
+    Assert.assertNotNull(cache.get("a"));
+    Assert.assertNull(cache.get("b"));
+    Assert.assertEquals(2, cache.getCount());
+  }
+
+  //public V get(K key, Function<? super K, ? extends V> loader)
+  @Test
+  public void testGetWithLoaderCountsHitsAndMisses() {
+    final SizeBoundedCache<Integer, String> cache = new SizeBoundedCache<>(1000, String::length);
+    Assert.assertEquals("1", cache.get(1, String::valueOf));
+    Assert.assertEquals("1", cache.get(1, k -> "other"));
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(1, cache.getMissCount());
+    cache.setMaxSize(0);
+    Assert.assertEquals(0, cache.getCount());
+  }
+}
@@ -0,0 +1,53 @@
+package org.infinity.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WorkPipelineTest {
+  //public boolean submit(Runnable task), public boolean join(BooleanSupplier cancelCheck)
+  @Test
+  public void testJoinWaitsForAllWorkItems() {
+    final AtomicInteger counter = new AtomicInteger();
+    try (WorkPipeline pipeline = new WorkPipeline("Test", 4, 8)) {
+      for (int i = 0; i < 1000; i++) {
+        Assert.assertTrue(pipeline.submit(counter::incrementAndGet));
+      }
+      Assert.assertFalse(pipeline.join(null));
+      Assert.assertEquals(1000, counter.get());
+      Assert.assertEquals(1000, pipeline.getCompletedCount());
+    }
+  }
+
+  @Test
+  public void testFailedWorkItemsAreCounted() {
+    try (WorkPipeline pipeline = new WorkPipeline("Test", 2, 2)) {
+      pipeline.submit(() -> { throw new IllegalStateException("expected"); });
+      pipeline.submit(() -> {});
+      Assert.assertFalse(pipeline.join(null));
+      Assert.assertEquals(1, pipeline.getFailedCount());
+      Assert.assertEquals(1, pipeline.getCompletedCount());
+    }
+  }
+
+  //public void cancel()
+  @Test
+  public void testCancelSkipsPendingWorkItems() throws InterruptedException {
+    final CountDownLatch started = new CountDownLatch(1);
+    try (WorkPipeline pipeline = new WorkPipeline("Test", 1, 4)) {
+      pipeline.submit(() -> {
+        started.countDown();
+        try { Thread.sleep(10000); } catch (InterruptedException e) {}
+      });
+      for (int i = 0; i < 4; i++) {
+        pipeline.submit(() -> {});
+      }
+      started.await();
+      Assert.assertTrue(pipeline.join(() -> true));
+      Assert.assertFalse(pipeline.submit(() -> {}));
+      Assert.assertEquals(4, pipeline.getSkippedCount());
+    }
+  }
+}